@@ -0,0 +1,73 @@
+package org.a.banapi.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.a.banapi.api.BanJsonDecoder;
+import org.a.banapi.model.BanRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.lang.reflect.Type;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 解码 /bans 接口响应
+ * <p>
+ * streaming 为当前的 BanJsonDecoder；gsonTree 为改造前先解析成 List&lt;Map&gt; 再逐条转换的方式。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BanDecodeBenchmark {
+    private static final Type MAP_LIST = new TypeToken<List<Map<String, Object>>>() {
+    }.getType();
+
+    @Param({"100", "10000", "100000"})
+    public int size;
+
+    private String json;
+    private Gson gson;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        json = BenchmarkData.bansJson(size, 42);
+        gson = new Gson();
+    }
+
+    @Benchmark
+    public List<BanRecord> streaming() throws IOException {
+        return BanJsonDecoder.readBanList(new StringReader(json));
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> gsonTree() {
+        List<Map<String, Object>> bans = gson.fromJson(new StringReader(json), MAP_LIST);
+        // 与旧实现一样逐条读取字段，避免只测到解析而没有访问
+        for (Map<String, Object> ban : bans) {
+            Object id = ban.get("id");
+            if (id instanceof Number) {
+                ban.put("id", ((Number) id).intValue());
+            }
+            ban.get("nickname");
+            ban.get("isReleased");
+        }
+        return bans;
+    }
+}
@@ -0,0 +1,87 @@
+package org.a.banapi.benchmarks;
+
+import org.a.banapi.cache.BanIndex;
+import org.a.banapi.model.BanRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 登录时按玩家名查找封禁记录（findPlayerBan）
+ * <p>
+ * indexed* 为当前实现（BanIndex小写名索引），linear* 为改造前逐条 equalsIgnoreCase 的基线。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BanLookupBenchmark {
+    @Param({"1000", "100000", "1000000"})
+    public int size;
+
+    private BanIndex index;
+    private List<BanRecord> records;
+    private String[] hits;
+    private String[] misses;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        records = BenchmarkData.bans(size, 42);
+        index = BanIndex.build(records);
+        hits = new String[1024];
+        misses = new String[1024];
+        for (int i = 0; i < hits.length; i++) {
+            // 模拟登录时玩家名大小写与记录不一致
+            hits[i] = BenchmarkData.playerName((int) ((i * 2654435761L) % size)).toUpperCase();
+            misses[i] = BenchmarkData.cleanName(i);
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & 1023;
+    }
+
+    @Benchmark
+    public BanRecord indexedHit() {
+        return index.findByName(hits[next()]);
+    }
+
+    @Benchmark
+    public BanRecord indexedMiss() {
+        return index.findByName(misses[next()]);
+    }
+
+    @Benchmark
+    public BanRecord linearHit() {
+        return linearFind(hits[next()]);
+    }
+
+    @Benchmark
+    public BanRecord linearMiss() {
+        return linearFind(misses[next()]);
+    }
+
+    private BanRecord linearFind(String playerName) {
+        for (BanRecord ban : records) {
+            if (ban.getNickname() != null && ban.getNickname().equalsIgnoreCase(playerName) && !ban.isReleased()) {
+                return ban;
+            }
+        }
+        return null;
+    }
+}
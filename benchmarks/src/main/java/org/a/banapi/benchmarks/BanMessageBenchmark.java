@@ -0,0 +1,89 @@
+package org.a.banapi.benchmarks;
+
+import org.a.banapi.config.ConfigManager;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.util.BanMessageFormatter;
+import org.a.banapi.util.MessageTemplate;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 生成踢出消息（buildBanMessage），使用与默认配置相同的消息格式
+ * <p>
+ * replaceChain 为改造前逐个 String.replace 的基线，compiled 为预编译模板，cached 为按封禁ID缓存后的登录路径。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BanMessageBenchmark {
+    static final String DEFAULT_FORMAT =
+            "§4§l您已被服务器封禁!\n" +
+            "§c▶ §f原因: §e{reason}\n" +
+            "§c▶ §f管理员: §e{admin}\n" +
+            "§c▶ §f封禁时间: §e{startTime}\n" +
+            "§c▶ §f封禁类型: §e{banType}\n" +
+            "§c▶ §f解封时间: §e{endTime}\n" +
+            "§c▶ §f封禁ID: §7#{id}\n\n" +
+            "§7如有异议，请联系管理员或在官网申诉";
+
+    private BanRecord[] bans;
+    private MessageTemplate template;
+    private BanMessageFormatter formatter;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        List<BanRecord> records = BenchmarkData.bans(1024, 42);
+        bans = records.toArray(new BanRecord[0]);
+        template = MessageTemplate.compile(DEFAULT_FORMAT, ConfigManager.BAN_MESSAGE_PLACEHOLDERS);
+        formatter = new BanMessageFormatter(2048);
+    }
+
+    private BanRecord next() {
+        cursor = (cursor + 1) & 1023;
+        return bans[cursor];
+    }
+
+    @Benchmark
+    public String replaceChain() {
+        BanRecord banInfo = next();
+        boolean permanent = banInfo.isPermanent();
+        return DEFAULT_FORMAT
+            .replace("{id}", String.valueOf(banInfo.getId()))
+            .replace("{reason}", orDefault(banInfo.getReason(), "违反服务器规则"))
+            .replace("{admin}", orDefault(banInfo.getAdmin(), "系统"))
+            .replace("{startTime}", orDefault(banInfo.getStartTimeDisplay(), "未知时间"))
+            .replace("{endTime}", permanent ? "永久" : orDefault(banInfo.getEndTimeDisplay(), "未知"))
+            .replace("{banType}", permanent ? "永久封禁" : "临时封禁")
+            .replace("{isPermanent}", String.valueOf(permanent));
+    }
+
+    @Benchmark
+    public String compiled() {
+        return BanMessageFormatter.render(template, next());
+    }
+
+    @Benchmark
+    public String cached() {
+        return formatter.format(template, next());
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+}
@@ -0,0 +1,66 @@
+package org.a.banapi.benchmarks;
+
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.search.BanSearchIndex;
+import org.a.banapi.search.SearchIndex;
+import org.a.banapi.search.SearchQuery;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.time.Instant;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * /banapi search 使用的本地搜索索引：选择性高的组合条件与只有时间、标记条件的宽查询
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class BanSearchBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private SearchIndex<BanRecord> index;
+    private SearchQuery combined;
+    private SearchQuery reason;
+    private SearchQuery timeRange;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        index = BanSearchIndex.forBans(Collections.unmodifiableList(BenchmarkData.bans(size, 42)));
+        long now = Instant.parse("2025-01-01T00:00:00Z").toEpochMilli();
+        combined = SearchQuery.parse("admin:console reason:作弊 status:active since:30d type:temp", now);
+        reason = SearchQuery.parse("reason:漏洞", now);
+        timeRange = SearchQuery.parse("since:2024-06-01 until:2024-06-30 type:perm", now);
+    }
+
+    @Benchmark
+    public List<BanRecord> combined() {
+        return index.search(combined);
+    }
+
+    @Benchmark
+    public List<BanRecord> reasonOnly() {
+        return index.search(reason);
+    }
+
+    @Benchmark
+    public List<BanRecord> timeRangeAndFlag() {
+        return index.search(timeRange);
+    }
+}
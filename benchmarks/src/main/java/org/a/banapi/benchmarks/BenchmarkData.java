@@ -0,0 +1,120 @@
+package org.a.banapi.benchmarks;
+
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.PublicBanData;
+import org.a.banapi.model.PublicBanRecord;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试使用的合成数据，固定随机种子保证每次运行的数据相同
+ */
+final class BenchmarkData {
+    private static final String[] REASONS = {
+            "使用作弊客户端", "恶意破坏建筑", "辱骂其他玩家", "刷屏广告", "利用漏洞刷物品", "违反服务器规则"
+    };
+    private static final String[] ADMINS = {"Console", "admin", "Moderator_A", "Moderator_B", "系统"};
+    private static final long BASE_TIME = Instant.parse("2024-01-01T00:00:00Z").toEpochMilli();
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * @return 第i个玩家名，与生成的封禁记录一一对应
+     */
+    static String playerName(int i) {
+        return "Player_" + Integer.toString(i, 36) + "_" + (i % 97);
+    }
+
+    /**
+     * @return 不在任何封禁列表中的玩家名
+     */
+    static String cleanName(int i) {
+        return "Clean_" + Integer.toString(i, 36);
+    }
+
+    /**
+     * 生成封禁记录，约20%已解除，约30%为永久封禁
+     */
+    static List<BanRecord> bans(int count, long seed) {
+        Random random = new Random(seed);
+        List<BanRecord> bans = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            bans.add(ban(i, random));
+        }
+        return bans;
+    }
+
+    static BanRecord ban(int i, Random random) {
+        boolean permanent = random.nextInt(10) < 3;
+        long start = BASE_TIME + random.nextInt(365 * 24 * 3600) * 1000L;
+        long end = start + (1 + random.nextInt(30)) * 24L * 3600 * 1000;
+        String startTime = Instant.ofEpochMilli(start).toString();
+        return new BanRecord(i + 1, playerName(i), REASONS[random.nextInt(REASONS.length)],
+                ADMINS[random.nextInt(ADMINS.length)], permanent, random.nextInt(10) < 2,
+                startTime, permanent ? null : Instant.ofEpochMilli(end).toString(), startTime);
+    }
+
+    /**
+     * 生成与 /bans 接口格式一致的JSON数组，包含解码器会跳过的额外字段
+     */
+    static String bansJson(int count, long seed) {
+        StringBuilder json = new StringBuilder(count * 260);
+        json.append('[');
+        for (BanRecord ban : bans(count, seed)) {
+            if (json.length() > 1) {
+                json.append(',');
+            }
+            json.append("{\"id\":").append(ban.getId())
+                    .append(",\"nickname\":\"").append(ban.getNickname())
+                    .append("\",\"reason\":\"").append(ban.getReason())
+                    .append("\",\"admin\":\"").append(ban.getAdmin())
+                    .append("\",\"isPermanent\":").append(ban.isPermanent())
+                    .append(",\"isReleased\":").append(ban.isReleased())
+                    .append(",\"startTime\":\"").append(ban.getStartTime()).append('"')
+                    .append(",\"endTime\":").append(ban.getEndTime() == null ? "null" : "\"" + ban.getEndTime() + "\"")
+                    .append(",\"updatedAt\":\"").append(ban.getUpdatedAt())
+                    .append("\",\"server\":\"lobby\",\"evidence\":[\"https://example.com/e/").append(ban.getId())
+                    .append("\"]}");
+        }
+        return json.append(']').toString();
+    }
+
+    /**
+     * 生成公共封禁数据：玩家封禁与IP封禁各 count 条，IP中约10%为/24网段
+     */
+    static PublicBanData publicData(int count, long seed) {
+        Random random = new Random(seed);
+        List<PublicBanRecord> players = new ArrayList<>(count);
+        List<PublicBanRecord> ips = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String timestamp = Instant.ofEpochMilli(BASE_TIME + random.nextInt(365 * 24 * 3600) * 1000L).toString();
+            String cause = REASONS[random.nextInt(REASONS.length)];
+            players.add(new PublicBanRecord(playerName(i), null, cause, timestamp, null));
+            String ip = bannedIp(i);
+            if (i % 10 == 0) {
+                ip = ip.substring(0, ip.lastIndexOf('.')) + ".0/24";
+            }
+            ips.add(new PublicBanRecord(null, ip, cause, timestamp, Collections.singletonList(playerName(i))));
+        }
+        return new PublicBanData(players, ips, count, count);
+    }
+
+    /**
+     * @return 第i条IP封禁对应的地址（10.x.x.x）
+     */
+    static String bannedIp(int i) {
+        return "10." + ((i >>> 16) & 0xFF) + "." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+
+    /**
+     * @return 不在任何封禁网段中的地址（172.16.x.x）
+     */
+    static String cleanIp(int i) {
+        return "172.16." + ((i >>> 8) & 0xFF) + "." + (i & 0xFF);
+    }
+}
@@ -0,0 +1,113 @@
+package org.a.banapi.benchmarks;
+
+import org.a.banapi.api.PublicBanSnapshot;
+import org.a.banapi.model.PublicBanRecord;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Locale;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 公共封禁数据的 checkPlayerBan / checkIpBan 查找
+ * <p>
+ * 玩家查找与 PublicAPIService 相同：先查布隆过滤器，再查精确索引；IP查找走前缀树。
+ * linear* 为逐条比较的基线。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class PublicBanCheckBenchmark {
+    @Param({"1000", "100000"})
+    public int size;
+
+    private PublicBanSnapshot snapshot;
+    private String[] bannedNames;
+    private String[] cleanNames;
+    private String[] bannedIps;
+    private String[] cleanIps;
+    private int cursor;
+
+    @Setup(Level.Trial)
+    public void setup() {
+        snapshot = PublicBanSnapshot.build(BenchmarkData.publicData(size, 7), 0.01, System.currentTimeMillis());
+        bannedNames = new String[1024];
+        cleanNames = new String[1024];
+        bannedIps = new String[1024];
+        cleanIps = new String[1024];
+        for (int i = 0; i < 1024; i++) {
+            int n = (int) ((i * 2654435761L) % size);
+            bannedNames[i] = BenchmarkData.playerName(n);
+            cleanNames[i] = BenchmarkData.cleanName(i);
+            bannedIps[i] = BenchmarkData.bannedIp(n);
+            cleanIps[i] = BenchmarkData.cleanIp(i);
+        }
+    }
+
+    private int next() {
+        return cursor = (cursor + 1) & 1023;
+    }
+
+    @Benchmark
+    public PublicBanRecord checkPlayerBanned() {
+        return checkPlayer(bannedNames[next()]);
+    }
+
+    @Benchmark
+    public PublicBanRecord checkPlayerClean() {
+        return checkPlayer(cleanNames[next()]);
+    }
+
+    @Benchmark
+    public PublicBanRecord checkIpBanned() {
+        return snapshot.getIpIndex().lookup(bannedIps[next()]);
+    }
+
+    @Benchmark
+    public PublicBanRecord checkIpClean() {
+        return snapshot.getIpIndex().lookup(cleanIps[next()]);
+    }
+
+    @Benchmark
+    public PublicBanRecord linearPlayerClean() {
+        String name = cleanNames[next()];
+        for (PublicBanRecord player : snapshot.getData().getActivePlayers()) {
+            if (name.equalsIgnoreCase(player.getUsername())) {
+                return player;
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public PublicBanRecord linearIpClean() {
+        String ip = cleanIps[next()];
+        for (PublicBanRecord record : snapshot.getData().getActiveIps()) {
+            if (ip.equals(record.getIp())) {
+                return record;
+            }
+        }
+        return null;
+    }
+
+    private PublicBanRecord checkPlayer(String playerName) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        if (!snapshot.getPlayerFilter().mightContain(key)) {
+            return null;
+        }
+        return snapshot.findPlayer(key);
+    }
+}
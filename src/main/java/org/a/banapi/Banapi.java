@@ -3,17 +3,30 @@ package org.a.banapi;
 import org.a.banapi.api.APIService;
 import org.a.banapi.api.PublicAPIService;
 import org.a.banapi.bungee.BungeeMessenger;
+import org.a.banapi.cache.BanCache;
+import org.a.banapi.cache.BanSnapshotStore;
 import org.a.banapi.commands.BanAPICommand;
 import org.a.banapi.commands.GetAPICommand;
 import org.a.banapi.commands.PublicBanCommand;
 import org.a.banapi.config.ConfigManager;
+import org.a.banapi.listeners.LoginCheckStats;
+import org.a.banapi.listeners.LoginDecisionCache;
 import org.a.banapi.listeners.PlayerLoginListener;
+import org.a.banapi.metrics.MetricsRegistry;
+import org.a.banapi.metrics.PrometheusExporter;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.tasks.BanEventSubscriber;
+import org.a.banapi.tasks.BanExpiryTask;
 import org.a.banapi.tasks.BanUpdateTask;
+import org.a.banapi.util.IoExecutor;
+import org.a.banapi.wal.WriteBehindQueue;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.File;
+import java.io.IOException;
 import java.util.Collections;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 
 /**
@@ -21,11 +34,20 @@ import java.util.Set;
  */
 public final class Banapi extends JavaPlugin {
     private final Set<String> notifiedBans = Collections.synchronizedSet(new HashSet<>());
+    private final BanCache banCache = new BanCache();
+    private final MetricsRegistry metrics = new MetricsRegistry();
     private ConfigManager configManager;
+    private IoExecutor ioExecutor;
     private APIService apiService;
     private PublicAPIService publicAPIService;
+    private BanSnapshotStore banSnapshotStore;
     private BanUpdateTask banUpdateTask;
+    private BanExpiryTask banExpiryTask;
+    private BanEventSubscriber banEventSubscriber;
     private BungeeMessenger bungeeMessenger;
+    private PlayerLoginListener loginListener;
+    private PrometheusExporter prometheusExporter;
+    private WriteBehindQueue writeQueue;
 
     @Override
     public void onEnable() {
@@ -38,9 +60,30 @@ public final class Banapi extends JavaPlugin {
         saveDefaultConfig();
         configManager = new ConfigManager(this);
 
+        // 初始化I/O线程池，网络请求不占用Bukkit共享的异步线程池
+        ioExecutor = IoExecutor.create(configManager.isVirtualThreadsEnabled(),
+                configManager.getIoMaxThreads(), configManager.getIoQueueSize(), getLogger());
+
         // 初始化API服务
-        apiService = new APIService(configManager);
+        apiService = new APIService(configManager, ioExecutor, banCache, metrics);
         publicAPIService = new PublicAPIService(this);
+        if (configManager.isPublicApiEnabled()) {
+            publicAPIService.preload();
+        }
+
+        // 加载本地封禁快照，保证首次同步完成前（或API不可用时）仍能执行封禁
+        banSnapshotStore = new BanSnapshotStore(getDataFolder());
+        loadBanSnapshot();
+
+        // 打开写前日志，恢复上次未提交到API的封禁操作
+        if (configManager.isWriteBehindEnabled()) {
+            try {
+                writeQueue = WriteBehindQueue.open(this, new File(getDataFolder(), "writes.wal").toPath());
+                writeQueue.start();
+            } catch (IOException e) {
+                getLogger().severe("无法打开写前日志，封禁操作将直接提交到API: " + e.getMessage());
+            }
+        }
         
         // 初始化BungeeCord支持
         if (configManager.isBungeeEnabled()) {
@@ -51,6 +94,12 @@ public final class Banapi extends JavaPlugin {
         // 启动定时任务
         banUpdateTask = new BanUpdateTask(this, apiService);
         banUpdateTask.start();
+        banExpiryTask = new BanExpiryTask(this);
+        banExpiryTask.start();
+        if (configManager.isPushEnabled()) {
+            banEventSubscriber = new BanEventSubscriber(this, apiService);
+            banEventSubscriber.start();
+        }
 
         // 注册命令
         this.getCommand("getapi").setExecutor(new GetAPICommand(this));
@@ -58,17 +107,137 @@ public final class Banapi extends JavaPlugin {
         this.getCommand("publicban").setExecutor(new PublicBanCommand(this));
 
         // 注册监听器
-        getServer().getPluginManager().registerEvents(new PlayerLoginListener(this, apiService, publicAPIService), this);
+        loginListener = new PlayerLoginListener(this, apiService, publicAPIService, banCache);
+        getServer().getPluginManager().registerEvents(loginListener, this);
+
+        // 注册指标
+        registerMetrics();
+        if (configManager.isPrometheusEnabled()) {
+            try {
+                prometheusExporter = new PrometheusExporter(metrics, configManager.getPrometheusPort());
+                getLogger().info("Prometheus指标已在 http://127.0.0.1:" + prometheusExporter.getPort() + "/metrics 提供");
+            } catch (IOException e) {
+                getLogger().warning("无法启动Prometheus指标服务: " + e.getMessage());
+            }
+        }
 
         getLogger().info("BanAPI插件已启用");
         getLogger().info("已集成公共封禁API");
     }
 
+    /**
+     * 将各组件已有的计数导出为仪表
+     */
+    private void registerMetrics() {
+        metrics.gauge("banapi_index_records", "本地封禁索引中的记录数", () -> banCache.current().size());
+        metrics.gauge("banapi_index_version", "本地封禁索引版本", banCache::getVersion);
+        metrics.gauge("banapi_expiry_pending", "等待到期的临时封禁数", banExpiryTask::getPendingCount);
+
+        LoginCheckStats stats = loginListener.getStats();
+        metrics.functionCounter("banapi_login_lookups_total", "登录检查查询次数", stats::getIndexLookups, "source", "index");
+        metrics.functionCounter("banapi_login_lookups_total", "登录检查查询次数", stats::getFallbackLookups, "source", "api");
+        metrics.functionCounter("banapi_login_banned_total", "因封禁被拒绝登录的次数", stats::getBanned);
+        metrics.functionCounter("banapi_login_failures_total", "登录检查失败次数", stats::getTimeouts, "reason", "timeout");
+        metrics.functionCounter("banapi_login_failures_total", "登录检查失败次数", stats::getErrors, "reason", "error");
+        metrics.functionCounter("banapi_login_rechecks_total", "登录复查次数", stats::getRechecksScheduled, "result", "scheduled");
+        metrics.functionCounter("banapi_login_rechecks_total", "登录复查次数", stats::getRechecksKicked, "result", "kicked");
+
+        LoginDecisionCache decisionCache = loginListener.getDecisionCache();
+        metrics.functionCounter("banapi_decision_cache_requests_total", "登录结果缓存查询次数", decisionCache::getHits, "result", "hit");
+        metrics.functionCounter("banapi_decision_cache_requests_total", "登录结果缓存查询次数", decisionCache::getMisses, "result", "miss");
+        metrics.gauge("banapi_decision_cache_size", "登录结果缓存条目数", decisionCache::size);
+
+        metrics.functionCounter("banapi_public_cache_requests_total", "公共封禁数据缓存查询次数", publicAPIService::getCacheHits, "result", "hit");
+        metrics.functionCounter("banapi_public_cache_requests_total", "公共封禁数据缓存查询次数", publicAPIService::getStaleServes, "result", "stale");
+        metrics.functionCounter("banapi_public_refresh_total", "公共封禁数据刷新次数", publicAPIService::getRefreshCount, "result", "ok");
+        metrics.functionCounter("banapi_public_refresh_total", "公共封禁数据刷新次数", publicAPIService::getRefreshFailures, "result", "error");
+        metrics.functionCounter("banapi_public_bloom_total", "公共封禁玩家名过滤结果", publicAPIService::getBloomRejects, "result", "rejected");
+        metrics.functionCounter("banapi_public_bloom_total", "公共封禁玩家名过滤结果", publicAPIService::getBloomMatches, "result", "matched");
+        metrics.functionCounter("banapi_public_bloom_total", "公共封禁玩家名过滤结果", publicAPIService::getBloomFalsePositives, "result", "false_positive");
+
+        metrics.functionCounter("banapi_http_coalesced_total", "被合并的请求数", apiService::getCoalescerDeduplicated);
+        metrics.gauge("banapi_http_inflight", "在途的可合并请求数", apiService::getCoalescerInFlight);
+        metrics.gauge("banapi_circuit_state", "熔断器状态（0关闭，1半开，2打开）", () -> {
+            switch (apiService.getCircuitBreaker().getState()) {
+                case OPEN:
+                    return 2;
+                case HALF_OPEN:
+                    return 1;
+                default:
+                    return 0;
+            }
+        });
+        metrics.functionCounter("banapi_circuit_transitions_total", "熔断器状态切换次数", apiService.getCircuitBreaker()::getTransitions);
+        metrics.functionCounter("banapi_circuit_rejected_total", "熔断器拒绝的请求数", apiService.getCircuitBreaker()::getRejected);
+        metrics.functionCounter("banapi_local_fallbacks_total", "熔断期间使用本地数据回答的次数", apiService::getLocalFallbacks);
+        metrics.functionCounter("banapi_retries_total", "重试次数", apiService.getRetryBudget()::getGranted, "result", "granted");
+        metrics.functionCounter("banapi_retries_total", "重试次数", apiService.getRetryBudget()::getDenied, "result", "denied");
+        metrics.functionCounter("banapi_hedges_total", "对冲请求次数", apiService::getHedgesSent, "result", "sent");
+        metrics.functionCounter("banapi_hedges_total", "对冲请求次数", apiService::getHedgeWins, "result", "won");
+
+        if (writeQueue != null) {
+            metrics.gauge("banapi_wal_pending", "写前日志中未提交的操作数", writeQueue::getPendingCount);
+            metrics.functionCounter("banapi_wal_writes_total", "写前日志操作提交结果", writeQueue::getAcknowledged, "result", "acknowledged");
+            metrics.functionCounter("banapi_wal_writes_total", "写前日志操作提交结果", writeQueue::getRejected, "result", "rejected");
+            metrics.functionCounter("banapi_wal_retries_total", "写前日志提交失败后的重试次数", writeQueue::getRetries);
+        }
+
+        if (banEventSubscriber != null) {
+            metrics.gauge("banapi_push_connected", "封禁事件推送是否已连接", () -> banEventSubscriber.isConnected() ? 1 : 0);
+            metrics.functionCounter("banapi_push_events_total", "已应用的封禁推送事件数", banEventSubscriber::getEvents);
+            metrics.functionCounter("banapi_push_reconnects_total", "封禁事件推送重连次数", banEventSubscriber::getReconnects);
+        }
+
+        if (bungeeMessenger != null) {
+            metrics.functionCounter("banapi_bungee_sync_messages_total", "子服之间的封禁同步消息数", bungeeMessenger::getSent, "direction", "sent");
+            metrics.functionCounter("banapi_bungee_sync_messages_total", "子服之间的封禁同步消息数", bungeeMessenger::getReceived, "direction", "received");
+        }
+
+        metrics.gauge("banapi_executor_active", "I/O线程池执行中的任务数", ioExecutor::getActive);
+        metrics.gauge("banapi_executor_queued", "I/O线程池排队的任务数", ioExecutor::getQueued);
+        metrics.functionCounter("banapi_executor_tasks_total", "I/O线程池任务数", ioExecutor::getCompleted, "result", "completed");
+        metrics.functionCounter("banapi_executor_tasks_total", "I/O线程池任务数", ioExecutor::getFailed, "result", "failed");
+        metrics.functionCounter("banapi_executor_tasks_total", "I/O线程池任务数", ioExecutor::getRejected, "result", "rejected");
+    }
+
+    private void loadBanSnapshot() {
+        long start = System.nanoTime();
+        try {
+            List<BanRecord> records = banSnapshotStore.load();
+            if (records != null) {
+                banCache.replace(records);
+                getLogger().info("已从本地快照加载 " + records.size() + " 条封禁记录，耗时 "
+                        + (System.nanoTime() - start) / 1_000_000 + " ms");
+            }
+        } catch (IOException e) {
+            getLogger().warning("加载本地封禁快照失败: " + e.getMessage());
+        }
+    }
+
     @Override
     public void onDisable() {
+        if (prometheusExporter != null) {
+            prometheusExporter.stop();
+        }
+        if (banEventSubscriber != null) {
+            banEventSubscriber.stop();
+        }
         if (banUpdateTask != null) {
             banUpdateTask.cancel();
         }
+        if (banExpiryTask != null) {
+            banExpiryTask.cancel();
+        }
+        if (writeQueue != null) {
+            try {
+                writeQueue.close();
+            } catch (IOException e) {
+                getLogger().warning("关闭写前日志失败: " + e.getMessage());
+            }
+        }
+        if (ioExecutor != null && !ioExecutor.shutdownGracefully(5000)) {
+            getLogger().warning("I/O线程池未能在5秒内结束，已中断剩余任务");
+        }
 
         getLogger().info("BanAPI插件已禁用");
     }
@@ -81,6 +250,78 @@ public final class Banapi extends JavaPlugin {
         return apiService;
     }
 
+    /**
+     * 获取BanAPI专用的I/O线程池
+     * @return I/O线程池
+     */
+    public IoExecutor getIoExecutor() {
+        return ioExecutor;
+    }
+
+    /**
+     * 获取指标注册表
+     * @return 指标注册表
+     */
+    public MetricsRegistry getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 获取本地封禁索引缓存
+     * @return 本地封禁索引缓存
+     */
+    public BanCache getBanCache() {
+        return banCache;
+    }
+
+    /**
+     * 获取本地封禁快照存储
+     * @return 本地封禁快照存储
+     */
+    public BanSnapshotStore getBanSnapshotStore() {
+        return banSnapshotStore;
+    }
+
+    /**
+     * 获取管理员封禁操作的写后提交队列
+     * @return 写后提交队列，未启用或写前日志无法打开时返回null
+     */
+    public WriteBehindQueue getWriteQueue() {
+        return writeQueue;
+    }
+
+    /**
+     * 获取封禁列表同步任务
+     * @return 封禁列表同步任务
+     */
+    public BanUpdateTask getBanUpdateTask() {
+        return banUpdateTask;
+    }
+
+    /**
+     * 获取封禁事件推送订阅
+     * @return 封禁事件推送订阅，未启用推送时返回null
+     */
+    public BanEventSubscriber getBanEventSubscriber() {
+        return banEventSubscriber;
+    }
+
+    /**
+     * 获取临时封禁到期任务
+     * @return 临时封禁到期任务
+     */
+    public BanExpiryTask getBanExpiryTask() {
+        return banExpiryTask;
+    }
+
+    /**
+     * 获取玩家登录监听器
+     * @return 玩家登录监听器
+     */
+    public PlayerLoginListener getLoginListener() {
+        return loginListener;
+    }
+
     /**
      * 获取已公告封禁玩家集合
      * @return 线程安全的已公告封禁玩家集合
@@ -1,31 +1,129 @@
 package org.a.banapi.api;
 
 import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import okhttp3.*;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+import org.a.banapi.cache.BanCache;
+import org.a.banapi.cache.BanIndex;
 import org.a.banapi.config.ConfigManager;
+import org.a.banapi.metrics.Histogram;
+import org.a.banapi.metrics.MetricsRegistry;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.NewBan;
+import org.a.banapi.model.Page;
+import org.a.banapi.util.IoExecutor;
 import org.bukkit.plugin.java.JavaPlugin;
 
 import java.io.IOException;
-import java.lang.reflect.Type;
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
 import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.BiConsumer;
+import java.util.function.Function;
 
+/**
+ * 访问BanAPIService的客户端
+ * <p>
+ * 每个接口都提供同步和异步两种调用方式，共用同一套请求构建与响应解析逻辑。异步方法基于OkHttp的
+ * 异步调度器（运行在插件自己的I/O线程池上），请求在途期间不占用线程；
+ * 返回的future被取消时，对应的HTTP请求也会被取消。相同的GET请求在途时会被合并为一次调用。
+ * <p>
+ * 所有请求经过熔断与重试拦截器；熔断器打开期间，读取类接口改为使用本地封禁索引回答。
+ * 异步请求的重试在退避时间后重新加入调度器，不占用线程等待。
+ * 开启对冲后，异步GET请求在超过该接口近期p95耗时仍未返回时会再发送一次，先返回的结果生效；
+ * 同步请求直接在调用线程上执行，不对冲。
+ */
 public class APIService {
+    private static final MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+    static final String IDEMPOTENCY_KEY = "Idempotency-Key";
+
     private final ConfigManager configManager;
     private final OkHttpClient httpClient;
+    private final EventSource.Factory eventSources;
     private final Gson gson;
+    private final RequestCoalescer coalescer = new RequestCoalescer();
+    private final BanCache banCache;
+    private final Executor ioExecutor;
+    private final CircuitBreaker circuitBreaker;
+    private final RetryBudget retryBudget;
+    // 按接口名称分别统计耗时，完整列表下载和单条查询的耗时相差很大
+    private final Map<String, LatencyTracker> latency = new ConcurrentHashMap<>();
+    private final ResilienceInterceptor resilience;
+    private final EndpointPool endpointPool;
+    private final MetricsRegistry metrics;
+    // 按接口名称和结果缓存的耗时直方图，避免每次请求都拼接标签查找注册表
+    private final Map<String, Map<String, Histogram>> requestLatency = new ConcurrentHashMap<>();
+    private final AtomicLong hedgesSent = new AtomicLong();
+    private final AtomicLong hedgeWins = new AtomicLong();
+    private final AtomicLong localFallbacks = new AtomicLong();
 
-    public APIService(ConfigManager configManager) {
+    public APIService(ConfigManager configManager, IoExecutor ioExecutor, BanCache banCache, MetricsRegistry metrics) {
         this.configManager = configManager;
+        this.metrics = metrics;
+        this.banCache = banCache;
+        this.ioExecutor = ioExecutor;
         this.gson = new Gson();
-        this.httpClient = new OkHttpClient.Builder()
+        this.circuitBreaker = new CircuitBreaker(
+                configManager.getBreakerWindowSize(),
+                configManager.getBreakerMinimumCalls(),
+                configManager.getBreakerFailureRate(),
+                configManager.getBreakerOpenSeconds() * 1000L);
+        this.retryBudget = new RetryBudget(configManager.getRetryBudgetRatio(), configManager.getRetryBudgetMax());
+
+        OkHttpClient.Builder builder = new OkHttpClient.Builder()
+                .dispatcher(new Dispatcher(ioExecutor))
+                .addInterceptor(this::recordLatency);
+        if (configManager.isResilienceEnabled()) {
+            this.resilience = new ResilienceInterceptor(circuitBreaker, retryBudget, this::latencyOf,
+                    configManager.getMaxRetries(),
+                    configManager.getRetryBaseDelay(),
+                    configManager.getRetryMaxDelay());
+            builder.addInterceptor(resilience);
+        } else {
+            this.resilience = null;
+        }
+        // 在重试之内选择地址，重试时会重新选择，从而切换到其他地址
+        List<String> urls = configManager.getApiUrls();
+        if (urls.size() > 1) {
+            this.endpointPool = new EndpointPool(urls,
+                    configManager.getEndpointFailureThreshold(),
+                    configManager.getEndpointEjectSeconds() * 1000L,
+                    configManager.getEndpointMaxEjectSeconds() * 1000L);
+            builder.addInterceptor(endpointPool);
+        } else {
+            this.endpointPool = null;
+        }
+        this.httpClient = builder
                 .connectTimeout(10, TimeUnit.SECONDS)
                 .readTimeout(10, TimeUnit.SECONDS)
                 .writeTimeout(10, TimeUnit.SECONDS)
                 .build();
+        // 事件流共用连接池和调度器，只放宽读取超时
+        this.eventSources = configManager.isPushEnabled()
+                ? EventSources.createFactory(httpClient.newBuilder()
+                        .readTimeout(configManager.getPushReadTimeout(), TimeUnit.SECONDS)
+                        .build())
+                : null;
+    }
+
+    /**
+     * 解析响应，调用方负责关闭响应
+     */
+    @FunctionalInterface
+    private interface ResponseHandler<T> {
+        T handle(Response response) throws IOException;
     }
 
     /**
@@ -33,28 +131,156 @@ public class APIService {
      * @return 封禁列表数据
      * @throws IOException 如果API请求失败
      */
-    public List<Map<String, Object>> getBans() throws IOException {
-        String url = configManager.getApiUrl() + "/bans";
-        String apiKey = configManager.getApiKey();
+    public List<BanRecord> getBans() throws IOException {
+        try {
+            return execute(bansRequest(), 0, this::readBans);
+        } catch (CircuitOpenException e) {
+            return serveLocal(e, BanIndex::getRecords);
+        }
+    }
+
+    /**
+     * 在限定时间内获取封禁列表
+     * @param timeoutMillis 整个请求（含连接、读写）的最长耗时，单位毫秒
+     * @return 封禁列表数据
+     * @throws IOException 如果API请求失败或超时
+     */
+    public List<BanRecord> getBans(int timeoutMillis) throws IOException {
+        try {
+            return execute(bansRequest(), timeoutMillis, this::readBans);
+        } catch (CircuitOpenException e) {
+            return serveLocal(e, BanIndex::getRecords);
+        }
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
+    /**
+     * 异步获取封禁列表
+     * @return 封禁列表数据
+     */
+    public CompletableFuture<List<BanRecord>> getBansAsync() {
+        return serveLocalAsync(enqueue(bansRequest(), configManager.getApiCallTimeout(), this::readBans),
+                BanIndex::getRecords);
+    }
+
+    /**
+     * 在限定时间内异步获取封禁列表
+     * @param timeoutMillis 整个请求的最长耗时，单位毫秒
+     * @return 封禁列表数据
+     */
+    public CompletableFuture<List<BanRecord>> getBansAsync(int timeoutMillis) {
+        return serveLocalAsync(enqueue(bansRequest(), timeoutMillis, this::readBans), BanIndex::getRecords);
+    }
+
+    private Request bansRequest() {
+        return newRequest("getBans", configManager.getApiUrl() + "/bans").build();
+    }
+
+    /**
+     * 异步获取一页封禁列表
+     * <p>
+     * 开启 api.server-paging 时只向API请求这一页，否则从本地封禁索引中截取；本地索引尚未加载时拉取完整列表后截取。
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @return 分页结果
+     */
+    public CompletableFuture<Page<BanRecord>> getBansPageAsync(int page, int size) {
+        if (configManager.isServerPagingEnabled()) {
+            return serveLocalAsync(enqueue(bansPageRequest(page, size), configManager.getApiCallTimeout(),
+                    response -> readBansPage(response, page, size)),
+                    index -> Page.slice(index.getRecords(), page, size));
+        }
+        if (banCache.isLoaded()) {
+            return CompletableFuture.completedFuture(Page.slice(banCache.current().getRecords(), page, size));
+        }
+        return getBansAsync().thenApply(bans -> Page.slice(bans, page, size));
+    }
+
+    private Request bansPageRequest(int page, int size) {
+        HttpUrl url = HttpUrl.get(configManager.getApiUrl() + "/bans").newBuilder()
+                .addQueryParameter("page", String.valueOf(page))
+                .addQueryParameter("size", String.valueOf(size))
                 .build();
+        return newRequest("getBansPage", url.toString()).build();
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("获取封禁列表失败，状态码: " + response.code());
+    private Page<BanRecord> readBansPage(Response response, int page, int size) throws IOException {
+        List<BanRecord> bans = readBans(response);
+        if (bans.size() > size) {
+            // API忽略了分页参数，返回的是完整列表
+            return Page.slice(bans, page, size);
+        }
+        long total = -1;
+        String totalHeader = response.header("X-Total-Count");
+        if (totalHeader != null) {
+            try {
+                total = Long.parseLong(totalHeader.trim());
+            } catch (NumberFormatException ignored) {
+                // 总数未知时按本页是否已满判断是否有下一页
             }
+        }
+        return new Page<>(bans, page, size, total);
+    }
 
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new IOException("响应体为空");
-            }
+    private List<BanRecord> readBans(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("获取封禁列表失败，状态码: " + response.code());
+        }
+        return BanJsonDecoder.readBanList(requireBody(response).charStream());
+    }
+
+    /**
+     * 以条件请求或增量方式同步封禁列表
+     * @param etag 上次全量响应的ETag，为null时不发送If-None-Match
+     * @param lastModified 上次全量响应的Last-Modified，为null时不发送If-Modified-Since
+     * @param since 增量游标（上次同步到的最大updatedAt），为null时请求全量列表
+     * @return 同步结果，未变化时isNotModified()为true
+     * @throws IOException 如果API请求失败
+     */
+    public BanListResponse getBanChanges(String etag, String lastModified, String since) throws IOException {
+        return execute(banChangesRequest(etag, lastModified, since), 0,
+                response -> readBanChanges(response, etag, lastModified, since != null));
+    }
+
+    /**
+     * 异步同步封禁列表，参数含义同 {@link #getBanChanges(String, String, String)}
+     * @return 同步结果
+     */
+    public CompletableFuture<BanListResponse> getBanChangesAsync(String etag, String lastModified, String since) {
+        return enqueue(banChangesRequest(etag, lastModified, since), configManager.getApiCallTimeout(),
+                response -> readBanChanges(response, etag, lastModified, since != null));
+    }
+
+    private Request banChangesRequest(String etag, String lastModified, String since) {
+        HttpUrl.Builder urlBuilder = HttpUrl.get(configManager.getApiUrl() + "/bans").newBuilder();
+        boolean delta = since != null;
+        if (delta) {
+            urlBuilder.addQueryParameter("since", since);
+        }
+
+        Request.Builder requestBuilder = new Request.Builder()
+                .url(urlBuilder.build())
+                .header("x-api-key", configManager.getApiKey())
+                .tag(String.class, delta ? "getBanChanges" : "getBans");
+        // 条件请求只用于全量列表，增量响应本身已经很小
+        if (!delta && etag != null) {
+            requestBuilder.header("If-None-Match", etag);
+        }
+        if (!delta && lastModified != null) {
+            requestBuilder.header("If-Modified-Since", lastModified);
+        }
+        return requestBuilder.build();
+    }
 
-            Type listType = new TypeToken<List<Map<String, Object>>>(){}.getType();
-            return gson.fromJson(body.string(), listType);
+    private BanListResponse readBanChanges(Response response, String etag, String lastModified, boolean delta) throws IOException {
+        if (response.code() == 304) {
+            return new BanListResponse(null, true, delta, etag, lastModified);
+        }
+        if (!response.isSuccessful()) {
+            throw new IOException("同步封禁列表失败，状态码: " + response.code());
         }
+
+        List<BanRecord> records = BanJsonDecoder.readBanList(requireBody(response).charStream());
+        return new BanListResponse(records, false, delta, response.header("ETag"), response.header("Last-Modified"));
     }
 
     /**
@@ -64,143 +290,147 @@ public class APIService {
      * @throws IOException 如果API请求失败
      */
     public boolean checkBan(String playerName) throws IOException {
-        String url = configManager.getApiUrl() + "/bans/" + playerName;
-        String apiKey = configManager.getApiKey();
+        try {
+            return execute(checkBanRequest(playerName), 0, this::readCheckBan);
+        } catch (CircuitOpenException e) {
+            return serveLocal(e, index -> isActiveBan(index.findByName(playerName)));
+        }
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
-                .build();
+    /**
+     * 异步检查玩家是否被封禁
+     * @param playerName 玩家名称
+     * @return 如果玩家被封禁则为true
+     */
+    public CompletableFuture<Boolean> checkBanAsync(String playerName) {
+        return serveLocalAsync(enqueue(checkBanRequest(playerName), configManager.getApiCallTimeout(), this::readCheckBan),
+                index -> isActiveBan(index.findByName(playerName)));
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                if (response.code() == 404) {
-                    return false; // 玩家未被封禁
-                }
-                throw new IOException("检查封禁状态失败，状态码: " + response.code());
-            }
+    private Request checkBanRequest(String playerName) {
+        return newRequest("checkBan", configManager.getApiUrl() + "/bans/" + playerName).build();
+    }
 
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new IOException("响应体为空");
+    private boolean readCheckBan(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.code() == 404) {
+                return false; // 玩家未被封禁
             }
-
-            Map<String, Object> result = gson.fromJson(body.string(), Map.class);
-            return result.containsKey("banned") && (boolean) result.get("banned");
+            throw new IOException("检查封禁状态失败，状态码: " + response.code());
         }
+
+        Map<String, Object> result = gson.fromJson(requireBody(response).string(), Map.class);
+        return result.containsKey("banned") && (boolean) result.get("banned");
     }
-    
+
     /**
      * 获取玩家的封禁详情
      * @param playerName 玩家名称
      * @return 封禁详情，如果玩家未被封禁则返回null
      * @throws IOException 如果API请求失败
      */
-    public Map<String, Object> getBanDetails(String playerName) throws IOException {
+    public BanRecord getBanDetails(String playerName) throws IOException {
+        try {
+            return fetchBanDetails(playerName);
+        } catch (CircuitOpenException e) {
+            return serveLocal(e, index -> index.findByName(playerName));
+        }
+    }
+
+    private BanRecord fetchBanDetails(String playerName) throws IOException {
         // 首先尝试通过玩家名称查询
-        Map<String, Object> banInfo = getBanDetailsByName(playerName);
+        BanRecord banInfo = execute(banDetailsByNameRequest(playerName), 0, response -> readBanDetails(response, playerName));
         if (banInfo != null) {
             return banInfo;
         }
 
         // 如果通过名称查询不到，尝试获取玩家ID并再次查询
-        String playerId = getPlayerId(playerName);
+        String playerId = execute(playerIdRequest(playerName), 0, this::readPlayerId);
         if (playerId != null) {
-            return getBanDetailsById(playerId);
+            return execute(banDetailsByIdRequest(playerId), 0, response -> readBanDetails(response, playerId));
         }
 
         return null;
     }
 
-    private Map<String, Object> getBanDetailsByName(String playerName) throws IOException {
-        String url = configManager.getApiUrl() + "/bans/name/" + playerName;
-        return executeBanApiRequest(url, playerName);
-    }
+    /**
+     * 异步获取玩家的封禁详情，按 名称查询 → 获取玩家ID → 按ID查询 的顺序依次发起请求
+     * <p>
+     * 每一步都有独立的超时；取消返回的future会取消当前正在进行的那一步请求。
+     * @param playerName 玩家名称
+     * @return 封禁详情，如果玩家未被封禁则为null
+     */
+    public CompletableFuture<BanRecord> getBanDetailsAsync(String playerName) {
+        int timeout = configManager.getApiCallTimeout();
+        AtomicReference<CompletableFuture<?>> inFlight = new AtomicReference<>();
 
-    private Map<String, Object> getBanDetailsById(String playerId) throws IOException {
-        String url = configManager.getApiUrl() + "/bans/id/" + playerId;
-        return executeBanApiRequest(url, playerId);
-    }
+        CompletableFuture<BanRecord> byName = enqueue(banDetailsByNameRequest(playerName), timeout,
+                response -> readBanDetails(response, playerName));
+        inFlight.set(byName);
 
-    private String getPlayerId(String playerName) throws IOException {
-        String url = configManager.getApiUrl() + "/players/" + playerName + "/id";
-        String apiKey = configManager.getApiKey();
+        CompletableFuture<BanRecord> result = byName.thenCompose(banInfo -> {
+            if (banInfo != null) {
+                return CompletableFuture.completedFuture(banInfo);
+            }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
-                .build();
+            CompletableFuture<String> playerId = enqueue(playerIdRequest(playerName), timeout, this::readPlayerId);
+            inFlight.set(playerId);
+            return playerId.thenCompose(id -> {
+                if (id == null) {
+                    return CompletableFuture.completedFuture(null);
+                }
+                CompletableFuture<BanRecord> byId = enqueue(banDetailsByIdRequest(id), timeout,
+                        response -> readBanDetails(response, id));
+                inFlight.set(byId);
+                return byId;
+            });
+        });
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (response.isSuccessful() && response.body() != null) {
-                return response.body().string();
+        result.whenComplete((banInfo, error) -> {
+            if (result.isCancelled()) {
+                inFlight.get().cancel(true);
             }
-            return null;
-        }
+        });
+        return serveLocalAsync(result, index -> index.findByName(playerName));
     }
 
-    private Map<String, Object> executeBanApiRequest(String url, String identifier) throws IOException {
-        String apiKey = configManager.getApiKey();
-
-        System.out.println("请求封禁详情: " + url);
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
-                .build();
-
-        try (Response response = httpClient.newCall(request).execute()) {
-            System.out.println("API响应状态码: " + response.code());
+    private Request banDetailsByNameRequest(String playerName) {
+        return newRequest("getBanDetailsByName", configManager.getApiUrl() + "/bans/name/" + playerName).build();
+    }
 
-            if (!response.isSuccessful()) {
-                if (response.code() == 404) {
-                    System.out.println("标识符 " + identifier + " 未被封禁 (404)");
-                    return null;
-                }
-                throw new IOException("获取封禁详情失败，状态码: " + response.code());
-            }
+    private Request banDetailsByIdRequest(String playerId) {
+        return newRequest("getBanDetailsById", configManager.getApiUrl() + "/bans/id/" + playerId).build();
+    }
 
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new IOException("响应体为空");
-            }
+    private Request playerIdRequest(String playerName) {
+        return newRequest("getPlayerId", configManager.getApiUrl() + "/players/" + playerName + "/id").build();
+    }
 
-            String responseBody = body.string();
-            System.out.println("API响应体: " + responseBody);
+    private String readPlayerId(Response response) throws IOException {
+        if (response.isSuccessful() && response.body() != null) {
+            return response.body().string();
+        }
+        return null;
+    }
 
-            // 解析为封禁列表（类型安全）
-            Type banListType = new TypeToken<List<Map<String, Object>>>(){}.getType();
-            @SuppressWarnings("unchecked")
-            List<Map<String, Object>> banList = (List<Map<String, Object>>) gson.fromJson(responseBody, banListType);
-            
-            if (banList == null || banList.isEmpty()) {
-                System.out.println("API返回的封禁列表为空");
+    private BanRecord readBanDetails(Response response, String identifier) throws IOException {
+        if (!response.isSuccessful()) {
+            if (response.code() == 404) {
                 return null;
             }
+            throw new IOException("获取封禁详情失败，状态码: " + response.code());
+        }
 
-            // 遍历列表查找匹配的玩家
-            for (Map<String, Object> banEntry : banList) {
-                String nickname = (String) banEntry.get("nickname");
-                Integer id = ((Double) banEntry.get("id")).intValue();
-                
-                if (identifier.equalsIgnoreCase(nickname) || identifier.equals(id.toString())) {
-                    // 直接返回API原始数据，确保包含isReleased字段
-                    return banEntry;
-                }
+        // 遍历列表查找匹配的玩家，没有匹配的记录时视为未被封禁
+        for (BanRecord banEntry : BanJsonDecoder.readBanList(requireBody(response).charStream())) {
+            if (identifier.equalsIgnoreCase(banEntry.getNickname())
+                    || (banEntry.hasId() && identifier.equals(String.valueOf(banEntry.getId())))) {
+                return banEntry;
             }
-
-            System.out.println("未找到匹配 " + identifier + " 的封禁记录");
-            // 返回一个包含isReleased=false的默认封禁记录
-            Map<String, Object> defaultBan = new HashMap<>();
-            defaultBan.put("isReleased", false);
-            defaultBan.put("isPermanent", true);
-            defaultBan.put("reason", "未知原因");
-            return defaultBan;
-        } catch (Exception e) {
-            System.out.println("获取标识符 " + identifier + " 封禁详情时出错: " + e.getMessage());
-            throw e;
         }
+        return null;
     }
-    
+
 
     /**
      * 获取统计信息
@@ -208,28 +438,53 @@ public class APIService {
      * @throws IOException 如果API请求失败
      */
     public Map<String, Object> getStats() throws IOException {
-        String url = configManager.getApiUrl() + "/stats";
-        String apiKey = configManager.getApiKey();
+        try {
+            return execute(statsRequest(), 0, this::readStats);
+        } catch (CircuitOpenException e) {
+            return serveLocal(e, APIService::localStats);
+        }
+    }
 
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
-                .build();
+    /**
+     * 异步获取统计信息
+     * @return 统计数据
+     */
+    public CompletableFuture<Map<String, Object>> getStatsAsync() {
+        return serveLocalAsync(enqueue(statsRequest(), configManager.getApiCallTimeout(), this::readStats),
+                APIService::localStats);
+    }
 
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("获取统计信息失败，状态码: " + response.code());
-            }
+    private Request statsRequest() {
+        return newRequest("getStats", configManager.getApiUrl() + "/stats").build();
+    }
 
-            ResponseBody body = response.body();
-            if (body == null) {
-                throw new IOException("响应体为空");
-            }
+    private Map<String, Object> readStats(Response response) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new IOException("获取统计信息失败，状态码: " + response.code());
+        }
+        return gson.fromJson(requireBody(response).string(), Map.class);
+    }
 
-            return gson.fromJson(body.string(), Map.class);
+    /**
+     * 订阅封禁变更事件流（Server-Sent Events）
+     * @param lastEventId 上次收到的事件ID，API据此补发断开期间的事件；为null时只接收之后的事件
+     * @param listener 事件监听器，回调在OkHttp的线程上执行
+     * @return 事件流连接，调用cancel()断开
+     */
+    public EventSource subscribeBanEvents(String lastEventId, EventSourceListener listener) {
+        if (eventSources == null) {
+            throw new IllegalStateException("未启用封禁事件推送");
+        }
+        // 断线重连由订阅方负责，拦截器只尝试一次
+        Request.Builder builder = newRequest("banEvents", configManager.getApiUrl() + configManager.getPushPath())
+                .header("Accept", "text/event-stream")
+                .tag(ResilienceInterceptor.AsyncAttempt.class, new ResilienceInterceptor.AsyncAttempt(0));
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
         }
+        return eventSources.newEventSource(builder.build(), listener);
     }
-    
+
     /**
      * 添加封禁记录
      * @param nickname 玩家名称
@@ -240,42 +495,124 @@ public class APIService {
      * @return 封禁记录数据
      * @throws IOException 如果API请求失败
      */
-    public Map<String, Object> addBan(String nickname, String reason, String admin, boolean isPermanent, Long duration) throws IOException {
-        String url = configManager.getApiUrl() + "/ban";
-        String apiKey = configManager.getApiKey();
-        
+    public BanRecord addBan(String nickname, String reason, String admin, boolean isPermanent, Long duration) throws IOException {
+        return addBan(nickname, reason, admin, isPermanent, duration, null);
+    }
+
+    /**
+     * 带幂等键添加封禁记录，同一个键重复提交时API只会添加一次
+     * @param idempotencyKey 幂等键，通过Idempotency-Key请求头发送，为null时不发送
+     * @return 封禁记录数据
+     * @throws IOException 如果API请求失败，API返回错误状态码时为 {@link ApiStatusException}
+     */
+    public BanRecord addBan(String nickname, String reason, String admin, boolean isPermanent, Long duration,
+                            String idempotencyKey) throws IOException {
+        return execute(addBanRequest(nickname, reason, admin, isPermanent, duration, idempotencyKey), 0,
+                response -> readBan(response, "添加封禁记录失败"));
+    }
+
+    /**
+     * 异步添加封禁记录，参数含义同 {@link #addBan(String, String, String, boolean, Long)}
+     * @return 封禁记录数据
+     */
+    public CompletableFuture<BanRecord> addBanAsync(String nickname, String reason, String admin, boolean isPermanent, Long duration) {
+        return enqueue(addBanRequest(nickname, reason, admin, isPermanent, duration, null), configManager.getApiCallTimeout(),
+                response -> readBan(response, "添加封禁记录失败"));
+    }
+
+    private Request addBanRequest(String nickname, String reason, String admin, boolean isPermanent, Long duration,
+                                  String idempotencyKey) {
         // 构建请求体
-        MediaType JSON = MediaType.parse("application/json; charset=utf-8");
+        Map<String, Object> requestMap = banRequestMap(nickname, reason, admin, isPermanent, duration);
+        RequestBody body = RequestBody.create(gson.toJson(requestMap), JSON);
+
+        return withIdempotencyKey(newRequest("addBan", configManager.getApiUrl() + "/ban"), idempotencyKey)
+                .post(body)
+                .build();
+    }
+
+    private static Map<String, Object> banRequestMap(String nickname, String reason, String admin, boolean isPermanent, Long duration) {
         Map<String, Object> requestMap = new HashMap<>();
         requestMap.put("nickname", nickname);
         requestMap.put("reason", reason);
         requestMap.put("admin", admin);
         requestMap.put("isPermanent", isPermanent);
         requestMap.put("duration", duration);
-        String requestBody = gson.toJson(requestMap);
-        
-        RequestBody body = RequestBody.create(requestBody, JSON);
-        
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
-                .post(body)
+        return requestMap;
+    }
+
+    /**
+     * 通过批量接口（POST /bans/batch）一次添加多条封禁
+     * @param bans 待添加的封禁
+     * @return 添加后的封禁记录，顺序与参数一致；API没有批量接口时以 {@link BatchNotSupportedException} 失败
+     */
+    public CompletableFuture<List<BanRecord>> addBansAsync(List<NewBan> bans) {
+        return enqueue(addBansRequest(bans), configManager.getApiCallTimeout(), response -> readBatch(response, "批量添加封禁失败"));
+    }
+
+    /**
+     * 同步调用批量添加接口，参数含义同 {@link #addBansAsync(List)}
+     * @throws BatchNotSupportedException 如果API没有批量接口
+     * @throws IOException 如果API请求失败
+     */
+    public List<BanRecord> addBans(List<NewBan> bans) throws IOException {
+        return execute(addBansRequest(bans), 0, response -> readBatch(response, "批量添加封禁失败"));
+    }
+
+    private Request addBansRequest(List<NewBan> bans) {
+        List<Map<String, Object>> requestList = new ArrayList<>(bans.size());
+        for (NewBan ban : bans) {
+            requestList.add(banRequestMap(ban.getNickname(), ban.getReason(), ban.getAdmin(), ban.isPermanent(), ban.getDuration()));
+        }
+        return newRequest("addBans", configManager.getApiUrl() + "/bans/batch")
+                .post(RequestBody.create(gson.toJson(requestList), JSON))
                 .build();
-                
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("添加封禁记录失败，状态码: " + response.code());
-            }
-            
-            ResponseBody responseBody = response.body();
-            if (responseBody == null) {
-                throw new IOException("响应体为空");
-            }
-            
-            return gson.fromJson(responseBody.string(), Map.class);
+    }
+
+    /**
+     * 通过批量接口（PATCH /bans/batch）一次更新多条封禁的状态
+     * @param ids 封禁记录ID
+     * @param isReleased 是否解除封禁
+     * @return 更新后的封禁记录，顺序与参数一致；API没有批量接口时以 {@link BatchNotSupportedException} 失败
+     */
+    public CompletableFuture<List<BanRecord>> updateBanStatusBatchAsync(List<Integer> ids, boolean isReleased) {
+        return enqueue(updateBanStatusBatchRequest(ids, isReleased), configManager.getApiCallTimeout(),
+                response -> readBatch(response, "批量更新封禁状态失败"));
+    }
+
+    /**
+     * 同步调用批量更新接口，参数含义同 {@link #updateBanStatusBatchAsync(List, boolean)}
+     * @throws BatchNotSupportedException 如果API没有批量接口
+     * @throws IOException 如果API请求失败
+     */
+    public List<BanRecord> updateBanStatusBatch(List<Integer> ids, boolean isReleased) throws IOException {
+        return execute(updateBanStatusBatchRequest(ids, isReleased), 0, response -> readBatch(response, "批量更新封禁状态失败"));
+    }
+
+    private Request updateBanStatusBatchRequest(List<Integer> ids, boolean isReleased) {
+        List<Map<String, Object>> requestList = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            Map<String, Object> requestMap = new HashMap<>();
+            requestMap.put("id", id);
+            requestMap.put("isReleased", isReleased);
+            requestList.add(requestMap);
+        }
+        return newRequest("updateBanStatusBatch", configManager.getApiUrl() + "/bans/batch")
+                .patch(RequestBody.create(gson.toJson(requestList), JSON))
+                .build();
+    }
+
+    private List<BanRecord> readBatch(Response response, String failureMessage) throws IOException {
+        int code = response.code();
+        if (code == 404 || code == 405 || code == 501) {
+            throw new BatchNotSupportedException(code);
+        }
+        if (!response.isSuccessful()) {
+            throw new ApiStatusException(failureMessage, code);
         }
+        return BanJsonDecoder.readBanList(requireBody(response).charStream());
     }
-    
+
     /**
      * 更新封禁状态
      * @param id 封禁记录ID
@@ -283,36 +620,426 @@ public class APIService {
      * @return 更新后的封禁记录数据
      * @throws IOException 如果API请求失败
      */
-    public Map<String, Object> updateBanStatus(int id, boolean isReleased) throws IOException {
-        String url = configManager.getApiUrl() + "/ban/" + id;
-        String apiKey = configManager.getApiKey();
-        
+    public BanRecord updateBanStatus(int id, boolean isReleased) throws IOException {
+        return updateBanStatus(id, isReleased, null);
+    }
+
+    /**
+     * 带幂等键更新封禁状态
+     * @param idempotencyKey 幂等键，通过Idempotency-Key请求头发送，为null时不发送
+     * @return 更新后的封禁记录数据
+     * @throws IOException 如果API请求失败，API返回错误状态码时为 {@link ApiStatusException}
+     */
+    public BanRecord updateBanStatus(int id, boolean isReleased, String idempotencyKey) throws IOException {
+        return execute(updateBanStatusRequest(id, isReleased, idempotencyKey), 0,
+                response -> readBan(response, "更新封禁状态失败"));
+    }
+
+    /**
+     * 异步更新封禁状态
+     * @param id 封禁记录ID
+     * @param isReleased 是否解除封禁
+     * @return 更新后的封禁记录数据
+     */
+    public CompletableFuture<BanRecord> updateBanStatusAsync(int id, boolean isReleased) {
+        return enqueue(updateBanStatusRequest(id, isReleased, null), configManager.getApiCallTimeout(),
+                response -> readBan(response, "更新封禁状态失败"));
+    }
+
+    private Request updateBanStatusRequest(int id, boolean isReleased, String idempotencyKey) {
         // 构建请求体
-        MediaType JSON = MediaType.parse("application/json; charset=utf-8");
         Map<String, Object> requestMap = new HashMap<>();
         requestMap.put("isReleased", isReleased);
-        String requestBody = gson.toJson(requestMap);
-        
-        RequestBody body = RequestBody.create(requestBody, JSON);
-        
-        Request request = new Request.Builder()
-                .url(url)
-                .header("x-api-key", apiKey)
+        RequestBody body = RequestBody.create(gson.toJson(requestMap), JSON);
+
+        return withIdempotencyKey(newRequest("updateBanStatus", configManager.getApiUrl() + "/ban/" + id), idempotencyKey)
                 .patch(body)
                 .build();
-                
-        try (Response response = httpClient.newCall(request).execute()) {
-            if (!response.isSuccessful()) {
-                throw new IOException("更新封禁状态失败，状态码: " + response.code());
+    }
+
+    /**
+     * 带幂等键的写请求可以安全重试，见 {@link ResilienceInterceptor}
+     */
+    private static Request.Builder withIdempotencyKey(Request.Builder builder, String idempotencyKey) {
+        return idempotencyKey != null ? builder.header(IDEMPOTENCY_KEY, idempotencyKey) : builder;
+    }
+
+    private BanRecord readBan(Response response, String failureMessage) throws IOException {
+        if (!response.isSuccessful()) {
+            throw new ApiStatusException(failureMessage, response.code());
+        }
+        return BanJsonDecoder.readBan(requireBody(response).charStream());
+    }
+
+    /**
+     * @param operation 接口名称，作为请求标签用于统计耗时
+     * @param url 请求地址
+     */
+    private Request.Builder newRequest(String operation, String url) {
+        return new Request.Builder()
+                .url(url)
+                .header("x-api-key", configManager.getApiKey())
+                .tag(String.class, operation);
+    }
+
+    /**
+     * 记录每个接口的请求耗时（含重试），按接口名称和结果分类
+     */
+    private Response recordLatency(Interceptor.Chain chain) throws IOException {
+        Request request = chain.request();
+        String operation = request.tag(String.class);
+        long start = System.nanoTime();
+        String outcome = "error";
+        try {
+            Response response = chain.proceed(request);
+            outcome = (response.code() / 100) + "xx";
+            return response;
+        } catch (CircuitOpenException e) {
+            outcome = "circuit_open";
+            throw e;
+        } finally {
+            requestLatency(operation != null ? operation : "other", outcome).recordSince(start);
+        }
+    }
+
+    private Histogram requestLatency(String operation, String outcome) {
+        Map<String, Histogram> byOutcome = requestLatency.get(operation);
+        if (byOutcome == null) {
+            byOutcome = requestLatency.computeIfAbsent(operation, key -> new ConcurrentHashMap<>());
+        }
+        Histogram histogram = byOutcome.get(outcome);
+        if (histogram == null) {
+            histogram = byOutcome.computeIfAbsent(outcome, key -> metrics.histogram("banapi_http_request_seconds",
+                    "BanAPIService请求耗时", "operation", operation, "outcome", key));
+        }
+        return histogram;
+    }
+
+    private static ResponseBody requireBody(Response response) throws IOException {
+        ResponseBody body = response.body();
+        if (body == null) {
+            throw new IOException("响应体为空");
+        }
+        return body;
+    }
+
+    /**
+     * 在调用线程上同步执行请求，不经过调度器，因此不对冲
+     * <p>
+     * 调用方可能就在I/O线程池中（同步任务、批量任务），等待调度器上的请求会占满线程池。
+     * @param timeoutMillis 整个请求的最长耗时，0表示只使用客户端的连接/读写超时
+     */
+    private <T> T execute(Request request, int timeoutMillis, ResponseHandler<T> handler) throws IOException {
+        String key = coalesceKey(request);
+        if (key == null) {
+            return executeCall(request, timeoutMillis, handler);
+        }
+        return coalescer.execute(key, timeoutMillis, () -> executeCall(request, timeoutMillis, handler));
+    }
+
+    private <T> T executeCall(Request request, int timeoutMillis, ResponseHandler<T> handler) throws IOException {
+        Call call = newCall(request, timeoutMillis);
+        try (Response response = call.execute()) {
+            return handler.handle(response);
+        }
+    }
+
+    /**
+     * 通过OkHttp调度器异步执行请求，响应在调度器线程上解析
+     * @param timeoutMillis 整个请求的最长耗时，0表示只使用客户端的连接/读写超时
+     */
+    private <T> CompletableFuture<T> enqueue(Request request, int timeoutMillis, ResponseHandler<T> handler) {
+        String key = coalesceKey(request);
+        if (key == null) {
+            return enqueueCall(request, timeoutMillis, handler);
+        }
+        if (configManager.isHedgingEnabled()) {
+            return coalescer.submit(key, () -> enqueueHedged(request, timeoutMillis, handler));
+        }
+        return coalescer.submit(key, () -> enqueueCall(request, timeoutMillis, handler));
+    }
+
+    /**
+     * 发送请求，超过该接口近期p95耗时仍未返回时再发送一次相同请求，先成功的结果生效，另一个被取消
+     * <p>
+     * 样本不足或熔断器未关闭时不对冲；对冲请求消耗重试预算。
+     */
+    private <T> CompletableFuture<T> enqueueHedged(Request request, int timeoutMillis, ResponseHandler<T> handler) {
+        String operation = request.tag(String.class);
+        long delay = latencyOf(operation != null ? operation : "other").percentile(0.95, 20);
+        if (delay < 0 || circuitBreaker.getState() != CircuitBreaker.State.CLOSED) {
+            return enqueueCall(request, timeoutMillis, handler);
+        }
+        delay = Math.max(delay, configManager.getHedgeMinDelay());
+
+        CompletableFuture<T> result = new CompletableFuture<>();
+        AtomicInteger pending = new AtomicInteger(1);
+        AtomicReference<CompletableFuture<T>> hedge = new AtomicReference<>();
+        CompletableFuture<T> primary = enqueueCall(request, timeoutMillis, handler);
+        BiConsumer<T, Throwable> onAttemptDone = (value, error) -> {
+            if (error == null) {
+                result.complete(value);
+            } else if (pending.decrementAndGet() == 0) {
+                result.completeExceptionally(error);
             }
-            
-            ResponseBody responseBody = response.body();
-            if (responseBody == null) {
-                throw new IOException("响应体为空");
+        };
+        primary.whenComplete(onAttemptDone);
+
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, ioExecutor).execute(() -> {
+            if (result.isDone() || !retryBudget.tryWithdraw()) {
+                return;
+            }
+            pending.incrementAndGet();
+            if (result.isDone()) {
+                return;
+            }
+            hedgesSent.incrementAndGet();
+            CompletableFuture<T> second = enqueueCall(request, timeoutMillis, handler);
+            hedge.set(second);
+            second.whenComplete((value, error) -> {
+                if (error == null && !result.isDone()) {
+                    hedgeWins.incrementAndGet();
+                }
+                onAttemptDone.accept(value, error);
+            });
+        });
+
+        // 结果确定（或被调用方取消）后取消仍在进行的请求
+        result.whenComplete((value, error) -> {
+            primary.cancel(true);
+            CompletableFuture<T> second = hedge.get();
+            if (second != null) {
+                second.cancel(true);
             }
-            
-            return gson.fromJson(responseBody.string(), Map.class);
+        });
+        return result;
+    }
+
+    /**
+     * 熔断器打开时使用本地封禁索引回答，本地索引尚未加载时抛出原异常
+     */
+    private <T> T serveLocal(CircuitOpenException e, Function<BanIndex, T> local) throws CircuitOpenException {
+        if (!banCache.isLoaded()) {
+            throw e;
+        }
+        localFallbacks.incrementAndGet();
+        return local.apply(banCache.current());
+    }
+
+    private <T> CompletableFuture<T> serveLocalAsync(CompletableFuture<T> future, Function<BanIndex, T> local) {
+        CompletableFuture<T> result = future.handle((value, error) -> {
+            if (error == null) {
+                return value;
+            }
+            Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+            if (cause instanceof CircuitOpenException && banCache.isLoaded()) {
+                localFallbacks.incrementAndGet();
+                return local.apply(banCache.current());
+            }
+            throw error instanceof CompletionException ? (CompletionException) error : new CompletionException(cause);
+        });
+        result.whenComplete((value, error) -> {
+            if (result.isCancelled()) {
+                future.cancel(true);
+            }
+        });
+        return result;
+    }
+
+    private static boolean isActiveBan(BanRecord record) {
+        return record != null && !record.isReleased() && !record.isExpiredAt(System.currentTimeMillis());
+    }
+
+    /**
+     * 根据本地索引计算与 /stats 接口相同字段的统计信息
+     */
+    private static Map<String, Object> localStats(BanIndex index) {
+        long now = System.currentTimeMillis();
+        long active = 0;
+        for (BanRecord record : index.getRecords()) {
+            if (!record.isReleased() && !record.isExpiredAt(now)) {
+                active++;
+            }
+        }
+        Map<String, Object> stats = new HashMap<>();
+        stats.put("total", (long) index.size());
+        stats.put("active", active);
+        stats.put("released", index.size() - active);
+        return stats;
+    }
+
+    private <T> CompletableFuture<T> enqueueCall(Request request, int timeoutMillis, ResponseHandler<T> handler) {
+        CompletableFuture<T> future = new CompletableFuture<>();
+        AtomicReference<Call> current = new AtomicReference<>();
+        future.whenComplete((result, error) -> {
+            Call call = current.get();
+            if (future.isCancelled() && call != null) {
+                call.cancel();
+            }
+        });
+        long deadline = timeoutMillis > 0 ? System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeoutMillis) : 0;
+        enqueueAttempt(request, 0, deadline, handler, future, current);
+        return future;
+    }
+
+    /**
+     * 发送一次异步尝试，失败且可以重试时在退避时间后再次加入调度器
+     * @param deadline 整个请求的截止时间（System.nanoTime），0表示不限
+     */
+    private <T> void enqueueAttempt(Request request, int attempt, long deadline, ResponseHandler<T> handler,
+                                    CompletableFuture<T> future, AtomicReference<Call> current) {
+        int timeoutMillis = 0;
+        if (deadline != 0) {
+            timeoutMillis = (int) Math.max(1, TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()));
+        }
+        Request attemptRequest = resilience == null ? request : request.newBuilder()
+                .tag(ResilienceInterceptor.AsyncAttempt.class, new ResilienceInterceptor.AsyncAttempt(attempt))
+                .build();
+        Call call = newCall(attemptRequest, timeoutMillis);
+        current.set(call);
+        if (future.isDone()) {
+            call.cancel();
+            return;
+        }
+
+        call.enqueue(new Callback() {
+            @Override
+            public void onFailure(Call call, IOException e) {
+                if (e instanceof CircuitOpenException
+                        || !retryLater(request, call, attempt, deadline, handler, future, current, e)) {
+                    future.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void onResponse(Call call, Response response) {
+                if (ResilienceInterceptor.isServerFailure(response.code())
+                        && retryLater(request, call, attempt, deadline, handler, future, current, null)) {
+                    response.close();
+                    return;
+                }
+                try (Response r = response) {
+                    future.complete(handler.handle(r));
+                } catch (Throwable t) {
+                    future.completeExceptionally(t);
+                }
+            }
+        });
+    }
+
+    /**
+     * 按重试策略安排下一次异步尝试
+     * @param error 本次尝试的网络错误，服务端错误时为null
+     * @return 是否已安排重试；返回false时由调用方以本次结果结束请求
+     */
+    private <T> boolean retryLater(Request request, Call call, int attempt, long deadline, ResponseHandler<T> handler,
+                                   CompletableFuture<T> future, AtomicReference<Call> current, IOException error) {
+        if (resilience == null || call.isCanceled() || future.isDone() || !ResilienceInterceptor.isRetryable(request)) {
+            return false;
         }
+        long delay = resilience.retryDelay(attempt);
+        if (delay < 0 || (deadline != 0 && System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delay) >= deadline)) {
+            return false;
+        }
+        Executor executor = task -> {
+            try {
+                ioExecutor.execute(task);
+            } catch (RuntimeException e) {
+                // 线程池已关闭，无法再重试
+                future.completeExceptionally(error != null ? error : new IOException("请求失败且无法重试", e));
+            }
+        };
+        CompletableFuture.delayedExecutor(delay, TimeUnit.MILLISECONDS, executor)
+                .execute(() -> enqueueAttempt(request, attempt + 1, deadline, handler, future, current));
+        return true;
+    }
+
+    /**
+     * 计算请求合并的键，只有GET请求会被合并；键包含URL和条件请求头，
+     * 保证共享结果的请求得到的响应完全相同
+     * @return 请求键，不应合并时返回null
+     */
+    private String coalesceKey(Request request) {
+        if (!configManager.isRequestCoalescingEnabled() || !"GET".equals(request.method())) {
+            return null;
+        }
+        return request.method() + ' ' + request.url()
+                + '|' + request.header("If-None-Match")
+                + '|' + request.header("If-Modified-Since");
+    }
+
+    private Call newCall(Request request, int timeoutMillis) {
+        Call call = httpClient.newCall(request);
+        if (timeoutMillis > 0) {
+            call.timeout().timeout(timeoutMillis, TimeUnit.MILLISECONDS);
+        }
+        return call;
+    }
+
+    /** @return 实际发出的可合并请求数 */
+    public long getCoalescerExecuted() {
+        return coalescer.getExecuted();
+    }
+
+    /** @return 因相同请求在途而被合并的请求数 */
+    public long getCoalescerDeduplicated() {
+        return coalescer.getCoalesced();
+    }
+
+    /** @return 当前在途的可合并请求数 */
+    public int getCoalescerInFlight() {
+        return coalescer.getInFlight();
+    }
+
+    /**
+     * 获取多地址负载均衡器
+     * @return 负载均衡器，只配置了一个地址时返回null
+     */
+    public EndpointPool getEndpointPool() {
+        return endpointPool;
+    }
+
+    /**
+     * 获取熔断器
+     * @return 熔断器
+     */
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    /**
+     * 获取重试预算
+     * @return 重试预算
+     */
+    public RetryBudget getRetryBudget() {
+        return retryBudget;
+    }
+
+    /** @return 已发送的对冲请求数 */
+    public long getHedgesSent() {
+        return hedgesSent.get();
+    }
+
+    /** @return 对冲请求先于原请求返回的次数 */
+    public long getHedgeWins() {
+        return hedgeWins.get();
+    }
+
+    /** @return 熔断期间使用本地索引回答的次数 */
+    public long getLocalFallbacks() {
+        return localFallbacks.get();
+    }
+
+    private LatencyTracker latencyOf(String operation) {
+        LatencyTracker tracker = latency.get(operation);
+        return tracker != null ? tracker : latency.computeIfAbsent(operation, key -> new LatencyTracker(256));
+    }
+
+    /** @return 各接口近期请求耗时的p95（毫秒），按接口名称排序 */
+    public Map<String, Long> getLatencyP95() {
+        Map<String, Long> result = new TreeMap<>();
+        latency.forEach((operation, tracker) -> result.put(operation, tracker.percentile(0.95, 1)));
+        return result;
     }
 
     public ConfigManager getConfigManager() {
@@ -0,0 +1,29 @@
+package org.a.banapi.api;
+
+import java.io.IOException;
+
+/**
+ * BanAPIService返回了非成功状态码
+ */
+public class ApiStatusException extends IOException {
+    private final int code;
+
+    public ApiStatusException(String message, int code) {
+        super(message + "，状态码: " + code);
+        this.code = code;
+    }
+
+    /**
+     * @return HTTP状态码
+     */
+    public int getCode() {
+        return code;
+    }
+
+    /**
+     * @return 是否为请求本身被拒绝（4xx，不含408和429），重试同一请求不会成功
+     */
+    public boolean isRejected() {
+        return code >= 400 && code < 500 && code != 408 && code != 429;
+    }
+}
@@ -0,0 +1,262 @@
+package org.a.banapi.api;
+
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.PublicBanData;
+import org.a.banapi.model.PublicBanRecord;
+import org.a.banapi.model.StringPool;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 基于JsonReader的流式解码器，直接从响应流逐字段读取为记录对象，跳过不需要的字段
+ * <p>
+ * 同一次解码中重复出现的原因、管理员等字符串通过StringPool共享实例。
+ */
+public final class BanJsonDecoder {
+
+    private BanJsonDecoder() {
+    }
+
+    /**
+     * 读取封禁记录数组
+     * @param reader 响应字符流
+     * @return 封禁记录列表，响应为null时返回空列表
+     * @throws IOException 如果读取失败或JSON格式不正确
+     */
+    public static List<BanRecord> readBanList(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        List<BanRecord> records = new ArrayList<>();
+        if (in.peek() == JsonToken.NULL) {
+            in.nextNull();
+            return records;
+        }
+
+        StringPool pool = new StringPool();
+        in.beginArray();
+        while (in.hasNext()) {
+            records.add(readBan(in, pool));
+        }
+        in.endArray();
+        return records;
+    }
+
+    /**
+     * 读取单条封禁记录
+     * @param reader 响应字符流
+     * @return 封禁记录
+     * @throws IOException 如果读取失败或JSON格式不正确
+     */
+    public static BanRecord readBan(Reader reader) throws IOException {
+        return readBan(new JsonReader(reader), new StringPool());
+    }
+
+    private static BanRecord readBan(JsonReader in, StringPool pool) throws IOException {
+        Integer id = null;
+        String nickname = null;
+        String reason = null;
+        String admin = null;
+        Boolean permanent = null;
+        Boolean released = null;
+        String startTime = null;
+        String endTime = null;
+        String updatedAt = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "id":
+                    id = nextInt(in);
+                    break;
+                case "nickname":
+                    nickname = nextString(in);
+                    break;
+                case "reason":
+                    reason = pool.intern(nextString(in));
+                    break;
+                case "admin":
+                    admin = pool.intern(nextString(in));
+                    break;
+                case "isPermanent":
+                    permanent = nextBoolean(in);
+                    break;
+                case "isReleased":
+                    released = nextBoolean(in);
+                    break;
+                case "startTime":
+                    startTime = nextString(in);
+                    break;
+                case "endTime":
+                    endTime = nextString(in);
+                    break;
+                case "updatedAt":
+                    updatedAt = nextString(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return new BanRecord(id, nickname, reason, admin, permanent, released, startTime, endTime, updatedAt);
+    }
+
+    /**
+     * 读取公共封禁API的完整数据
+     * @param reader 响应字符流
+     * @return 公共封禁数据
+     * @throws IOException 如果读取失败或JSON格式不正确
+     */
+    public static PublicBanData readPublicBanData(Reader reader) throws IOException {
+        JsonReader in = new JsonReader(reader);
+        StringPool pool = new StringPool();
+        List<PublicBanRecord> players = null;
+        List<PublicBanRecord> ips = null;
+        long playerCount = 0;
+        long ipCount = 0;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "active_players":
+                    players = readPublicBanList(in, pool);
+                    break;
+                case "active_ips":
+                    ips = readPublicBanList(in, pool);
+                    break;
+                case "player_count":
+                    playerCount = nextLong(in);
+                    break;
+                case "ip_count":
+                    ipCount = nextLong(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return new PublicBanData(players, ips, playerCount, ipCount);
+    }
+
+    private static List<PublicBanRecord> readPublicBanList(JsonReader in, StringPool pool) throws IOException {
+        List<PublicBanRecord> records = new ArrayList<>();
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return records;
+        }
+
+        in.beginArray();
+        while (in.hasNext()) {
+            records.add(readPublicBan(in, pool));
+        }
+        in.endArray();
+        return records;
+    }
+
+    private static PublicBanRecord readPublicBan(JsonReader in, StringPool pool) throws IOException {
+        String username = null;
+        String ip = null;
+        String cause = null;
+        String timestamp = null;
+        List<String> players = null;
+
+        in.beginObject();
+        while (in.hasNext()) {
+            switch (in.nextName()) {
+                case "username":
+                    username = nextString(in);
+                    break;
+                case "ip":
+                    ip = nextString(in);
+                    break;
+                case "cause":
+                    cause = pool.intern(nextString(in));
+                    break;
+                case "timestamp":
+                    timestamp = nextString(in);
+                    break;
+                case "players":
+                    players = readStringList(in);
+                    break;
+                default:
+                    in.skipValue();
+                    break;
+            }
+        }
+        in.endObject();
+
+        return new PublicBanRecord(username, ip, cause, timestamp, players);
+    }
+
+    private static List<String> readStringList(JsonReader in) throws IOException {
+        if (in.peek() != JsonToken.BEGIN_ARRAY) {
+            in.skipValue();
+            return null;
+        }
+
+        List<String> values = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            String value = nextString(in);
+            if (value != null) {
+                values.add(value);
+            }
+        }
+        in.endArray();
+        return values;
+    }
+
+    private static String nextString(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.STRING || token == JsonToken.NUMBER) {
+            return in.nextString();
+        }
+        if (token == JsonToken.BOOLEAN) {
+            return String.valueOf(in.nextBoolean());
+        }
+        in.skipValue();
+        return null;
+    }
+
+    private static Boolean nextBoolean(JsonReader in) throws IOException {
+        if (in.peek() == JsonToken.BOOLEAN) {
+            return in.nextBoolean();
+        }
+        in.skipValue();
+        return null;
+    }
+
+    private static Integer nextInt(JsonReader in) throws IOException {
+        Double value = nextNumber(in);
+        return value != null ? value.intValue() : null;
+    }
+
+    private static long nextLong(JsonReader in) throws IOException {
+        Double value = nextNumber(in);
+        return value != null ? value.longValue() : 0;
+    }
+
+    private static Double nextNumber(JsonReader in) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NUMBER) {
+            return in.nextDouble();
+        }
+        if (token == JsonToken.STRING) {
+            // 先完整读出字符串再解析，避免解析失败时读取位置停在当前值上
+            try {
+                return Double.parseDouble(in.nextString());
+            } catch (NumberFormatException e) {
+                return null;
+            }
+        }
+        in.skipValue();
+        return null;
+    }
+}
@@ -0,0 +1,54 @@
+package org.a.banapi.api;
+
+import org.a.banapi.model.BanRecord;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 封禁列表同步请求的结果，携带条件请求所需的校验信息
+ */
+public class BanListResponse {
+    private final List<BanRecord> records;
+    private final boolean notModified;
+    private final boolean delta;
+    private final String etag;
+    private final String lastModified;
+
+    BanListResponse(List<BanRecord> records, boolean notModified, boolean delta, String etag, String lastModified) {
+        this.records = records != null ? records : Collections.emptyList();
+        this.notModified = notModified;
+        this.delta = delta;
+        this.etag = etag;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * @return 返回的封禁记录；增量模式下只包含变更的记录
+     */
+    public List<BanRecord> getRecords() {
+        return records;
+    }
+
+    /**
+     * @return 服务端是否返回304，即封禁列表未发生变化
+     */
+    public boolean isNotModified() {
+        return notModified;
+    }
+
+    /**
+     * @return 是否为增量结果，需要合并到本地索引而不是替换
+     */
+    public boolean isDelta() {
+        return delta;
+    }
+
+    public String getEtag() {
+        return etag;
+    }
+
+    public String getLastModified() {
+        return lastModified;
+    }
+}
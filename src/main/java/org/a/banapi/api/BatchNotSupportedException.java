@@ -0,0 +1,10 @@
+package org.a.banapi.api;
+
+/**
+ * BanAPIService没有提供批量接口，调用方应改为逐条提交
+ */
+public class BatchNotSupportedException extends ApiStatusException {
+    public BatchNotSupportedException(int code) {
+        super("API不支持批量接口", code);
+    }
+}
@@ -0,0 +1,167 @@
+package org.a.banapi.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 基于失败率的熔断器
+ * <p>
+ * 关闭状态下记录最近 windowSize 次调用的结果，调用数达到 minimumCalls 且失败率超过阈值时打开；
+ * 打开状态下直接拒绝请求，openMillis 后进入半开状态，只放行一个探测请求，成功则关闭，失败则重新打开。
+ */
+public final class CircuitBreaker {
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final int windowSize;
+    private final int minimumCalls;
+    private final double failureRateThreshold;
+    private final long openMillis;
+
+    // 环形缓冲区，true表示失败
+    private final boolean[] outcomes;
+    private int position;
+    private int recorded;
+    private int failures;
+
+    private State state = State.CLOSED;
+    private long openedAt;
+    private boolean probeInFlight;
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong transitions = new AtomicLong();
+    private volatile long lastTransitionAt;
+
+    /**
+     * @param windowSize 统计失败率的调用次数窗口
+     * @param minimumCalls 计算失败率所需的最少调用次数
+     * @param failureRateThreshold 打开熔断器的失败率阈值，取值 (0, 1]
+     * @param openMillis 打开状态持续时间（毫秒）
+     */
+    public CircuitBreaker(int windowSize, int minimumCalls, double failureRateThreshold, long openMillis) {
+        this.windowSize = Math.max(1, windowSize);
+        this.minimumCalls = Math.max(1, Math.min(minimumCalls, this.windowSize));
+        this.failureRateThreshold = failureRateThreshold;
+        this.openMillis = openMillis;
+        this.outcomes = new boolean[this.windowSize];
+    }
+
+    /**
+     * 申请发起一次调用
+     * @return 是否允许调用；返回true后必须调用 {@link #onSuccess()}、{@link #onFailure()} 或 {@link #onIgnored()} 之一
+     */
+    public synchronized boolean tryAcquire() {
+        if (state == State.OPEN) {
+            if (System.currentTimeMillis() - openedAt < openMillis) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            transition(State.HALF_OPEN);
+        }
+        if (state == State.HALF_OPEN) {
+            if (probeInFlight) {
+                rejected.incrementAndGet();
+                return false;
+            }
+            probeInFlight = true;
+        }
+        return true;
+    }
+
+    /**
+     * 记录调用成功
+     */
+    public synchronized void onSuccess() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            resetWindow();
+            transition(State.CLOSED);
+            return;
+        }
+        record(false);
+    }
+
+    /**
+     * 记录调用失败
+     */
+    public synchronized void onFailure() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+            open();
+            return;
+        }
+        record(true);
+        if (state == State.CLOSED && recorded >= minimumCalls
+                && (double) failures / recorded >= failureRateThreshold) {
+            open();
+        }
+    }
+
+    /**
+     * 调用被取消等不反映服务状态的结果，不计入统计
+     */
+    public synchronized void onIgnored() {
+        if (state == State.HALF_OPEN) {
+            probeInFlight = false;
+        }
+    }
+
+    private void record(boolean failure) {
+        if (recorded == windowSize) {
+            if (outcomes[position]) {
+                failures--;
+            }
+        } else {
+            recorded++;
+        }
+        outcomes[position] = failure;
+        if (failure) {
+            failures++;
+        }
+        position = (position + 1) % windowSize;
+    }
+
+    private void open() {
+        openedAt = System.currentTimeMillis();
+        resetWindow();
+        transition(State.OPEN);
+    }
+
+    private void resetWindow() {
+        position = 0;
+        recorded = 0;
+        failures = 0;
+    }
+
+    private void transition(State next) {
+        if (state != next) {
+            state = next;
+            transitions.incrementAndGet();
+            lastTransitionAt = System.currentTimeMillis();
+        }
+    }
+
+    /** @return 当前状态 */
+    public synchronized State getState() {
+        return state;
+    }
+
+    /** @return 当前窗口内的失败率 */
+    public synchronized double getFailureRate() {
+        return recorded == 0 ? 0 : (double) failures / recorded;
+    }
+
+    /** @return 被拒绝的调用次数 */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /** @return 状态切换次数 */
+    public long getTransitions() {
+        return transitions.get();
+    }
+
+    /** @return 最近一次状态切换的时间戳（毫秒），从未切换时为0 */
+    public long getLastTransitionAt() {
+        return lastTransitionAt;
+    }
+}
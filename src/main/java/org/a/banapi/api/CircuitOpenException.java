@@ -0,0 +1,12 @@
+package org.a.banapi.api;
+
+import java.io.IOException;
+
+/**
+ * 熔断器处于打开状态，请求未发送
+ */
+public class CircuitOpenException extends IOException {
+    public CircuitOpenException() {
+        super("BanAPI服务暂时不可用（熔断器已打开）");
+    }
+}
@@ -0,0 +1,253 @@
+package org.a.banapi.api;
+
+import okhttp3.HttpUrl;
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 多个BanAPIService地址之间的负载均衡与被动健康检查
+ * <p>
+ * 请求按第一个地址构建，由本拦截器改写为选中的地址。选择方式为“两次随机选择”：随机取两个可用地址，
+ * 使用在途请求较少的一个。某个地址连续失败达到阈值后被摘除一段时间，到期后只放行一个探测请求，
+ * 成功则恢复，失败则以加倍的时长再次摘除。所有地址都被摘除时，选择最早到期且没有探测在途的一个；
+ * 没有这样的地址时请求直接失败。
+ */
+public final class EndpointPool implements Interceptor {
+    private final List<Endpoint> endpoints;
+    private final HttpUrl baseUrl;
+    private final String basePath;
+    private final int failureThreshold;
+    private final long ejectMillis;
+    private final long maxEjectMillis;
+
+    /**
+     * @param urls 地址列表，第一个地址同时是构建请求时使用的基础地址
+     * @param failureThreshold 连续失败多少次后摘除
+     * @param ejectMillis 首次摘除时长（毫秒）
+     * @param maxEjectMillis 最长摘除时长（毫秒）
+     * @throws IllegalArgumentException 地址无法解析时
+     */
+    public EndpointPool(List<String> urls, int failureThreshold, long ejectMillis, long maxEjectMillis) {
+        List<Endpoint> list = new ArrayList<>(urls.size());
+        for (String url : urls) {
+            list.add(new Endpoint(url));
+        }
+        this.endpoints = Collections.unmodifiableList(list);
+        this.baseUrl = list.get(0).httpUrl;
+        this.basePath = list.get(0).path;
+        this.failureThreshold = Math.max(1, failureThreshold);
+        this.ejectMillis = ejectMillis;
+        this.maxEjectMillis = Math.max(ejectMillis, maxEjectMillis);
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        HttpUrl url = request.url();
+        if (!isBaseUrl(url)) {
+            return chain.proceed(request);
+        }
+
+        Endpoint endpoint = choose();
+        if (endpoint == null) {
+            throw new IOException("所有BanAPIService地址都已摘除，正在等待探测结果");
+        }
+        Request routed = request.newBuilder()
+                .url(endpoint.resolve(url.encodedPath().substring(basePath.length()), url.encodedQuery()))
+                .build();
+
+        endpoint.outstanding.incrementAndGet();
+        endpoint.requests.incrementAndGet();
+        try {
+            Response response = chain.proceed(routed);
+            if (response.code() >= 500) {
+                endpoint.onFailure();
+            } else {
+                endpoint.onSuccess();
+            }
+            return response;
+        } catch (IOException e) {
+            if (chain.call().isCanceled()) {
+                endpoint.onIgnored();
+            } else {
+                endpoint.onFailure();
+            }
+            throw e;
+        } finally {
+            endpoint.outstanding.decrementAndGet();
+        }
+    }
+
+    /**
+     * 按协议、主机、端口和路径前缀判断请求是否发往基础地址，两边都是规范化后的HttpUrl
+     */
+    private boolean isBaseUrl(HttpUrl url) {
+        if (!url.scheme().equals(baseUrl.scheme()) || !url.host().equals(baseUrl.host()) || url.port() != baseUrl.port()) {
+            return false;
+        }
+        String path = url.encodedPath();
+        return path.startsWith(basePath) && (path.length() == basePath.length() || path.charAt(basePath.length()) == '/');
+    }
+
+    /**
+     * @return 选中的地址；所有地址都已摘除且都有探测请求在途时返回null
+     */
+    private Endpoint choose() {
+        long now = System.currentTimeMillis();
+        List<Endpoint> available = new ArrayList<>(endpoints.size());
+        for (Endpoint endpoint : endpoints) {
+            if (endpoint.isAvailable(now)) {
+                available.add(endpoint);
+            }
+        }
+
+        while (!available.isEmpty()) {
+            Endpoint chosen;
+            if (available.size() == 1) {
+                chosen = available.get(0);
+            } else {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                int first = random.nextInt(available.size());
+                int second = random.nextInt(available.size() - 1);
+                if (second >= first) {
+                    second++;
+                }
+                Endpoint a = available.get(first);
+                Endpoint b = available.get(second);
+                chosen = a.outstanding.get() <= b.outstanding.get() ? a : b;
+            }
+            // 摘除到期的地址需要通过探测才能恢复，同一时间只放行一个探测请求
+            if (chosen.ejectedUntil == 0 || chosen.tryStartProbe()) {
+                return chosen;
+            }
+            available.remove(chosen);
+        }
+
+        // 全部被摘除时，选择最早到期的地址，而不是直接失败；正在探测的地址不再放行其他请求
+        Endpoint earliest = null;
+        for (Endpoint endpoint : endpoints) {
+            if (!endpoint.isProbing() && (earliest == null || endpoint.ejectedUntil < earliest.ejectedUntil)) {
+                earliest = endpoint;
+            }
+        }
+        return earliest;
+    }
+
+    /**
+     * @return 所有地址的状态
+     */
+    public List<Endpoint> getEndpoints() {
+        return endpoints;
+    }
+
+    /**
+     * 单个地址的状态
+     */
+    public final class Endpoint {
+        private final String url;
+        private final HttpUrl httpUrl;
+        // 不含末尾斜杠的路径前缀，根路径为空字符串
+        private final String path;
+        private final AtomicInteger outstanding = new AtomicInteger();
+        private final AtomicLong requests = new AtomicLong();
+        private final AtomicLong ejections = new AtomicLong();
+        private int consecutiveFailures;
+        private long currentEjectMillis;
+        private volatile long ejectedUntil;
+        private boolean probing;
+
+        private Endpoint(String url) {
+            this.url = url;
+            HttpUrl parsed = HttpUrl.parse(url);
+            if (parsed == null) {
+                throw new IllegalArgumentException("无效的BanAPIService地址: " + url);
+            }
+            this.httpUrl = parsed;
+            String encodedPath = parsed.encodedPath();
+            this.path = encodedPath.endsWith("/") ? encodedPath.substring(0, encodedPath.length() - 1) : encodedPath;
+        }
+
+        /**
+         * @param relativePath 基础地址之后的路径，为空或以斜杠开头
+         * @param encodedQuery 查询参数，可以为null
+         */
+        private HttpUrl resolve(String relativePath, String encodedQuery) {
+            String fullPath = path + relativePath;
+            return httpUrl.newBuilder()
+                    .encodedPath(fullPath.isEmpty() ? "/" : fullPath)
+                    .encodedQuery(encodedQuery)
+                    .build();
+        }
+
+        private synchronized boolean isAvailable(long now) {
+            return ejectedUntil == 0 || (now >= ejectedUntil && !probing);
+        }
+
+        private synchronized boolean isProbing() {
+            return probing;
+        }
+
+        private synchronized boolean tryStartProbe() {
+            if (probing || System.currentTimeMillis() < ejectedUntil) {
+                return false;
+            }
+            probing = true;
+            return true;
+        }
+
+        private synchronized void onSuccess() {
+            consecutiveFailures = 0;
+            currentEjectMillis = 0;
+            ejectedUntil = 0;
+            probing = false;
+        }
+
+        private synchronized void onFailure() {
+            consecutiveFailures++;
+            if (probing || consecutiveFailures >= failureThreshold) {
+                currentEjectMillis = currentEjectMillis == 0 ? ejectMillis : Math.min(maxEjectMillis, currentEjectMillis * 2);
+                ejectedUntil = System.currentTimeMillis() + currentEjectMillis;
+                ejections.incrementAndGet();
+                probing = false;
+            }
+        }
+
+        private synchronized void onIgnored() {
+            probing = false;
+        }
+
+        /** @return 地址 */
+        public String getUrl() {
+            return url;
+        }
+
+        /** @return 在途请求数 */
+        public int getOutstanding() {
+            return outstanding.get();
+        }
+
+        /** @return 已发送的请求数 */
+        public long getRequests() {
+            return requests.get();
+        }
+
+        /** @return 被摘除的次数 */
+        public long getEjections() {
+            return ejections.get();
+        }
+
+        /** @return 当前是否处于摘除状态（含等待探测） */
+        public boolean isEjected() {
+            return ejectedUntil != 0;
+        }
+    }
+}
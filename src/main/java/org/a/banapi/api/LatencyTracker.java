@@ -0,0 +1,42 @@
+package org.a.banapi.api;
+
+import java.util.Arrays;
+
+/**
+ * 记录最近若干次请求的耗时，用于计算对冲请求的触发延迟
+ */
+final class LatencyTracker {
+    private final long[] samples;
+    private int position;
+    private int count;
+
+    LatencyTracker(int capacity) {
+        this.samples = new long[Math.max(1, capacity)];
+    }
+
+    synchronized void record(long millis) {
+        samples[position] = millis;
+        position = (position + 1) % samples.length;
+        if (count < samples.length) {
+            count++;
+        }
+    }
+
+    /**
+     * @param percentile 百分位，取值 (0, 1]
+     * @param minimumSamples 最少样本数
+     * @return 对应百分位的耗时（毫秒），样本不足时返回-1
+     */
+    long percentile(double percentile, int minimumSamples) {
+        long[] copy;
+        synchronized (this) {
+            if (count < minimumSamples) {
+                return -1;
+            }
+            copy = Arrays.copyOf(samples, count);
+        }
+        Arrays.sort(copy);
+        int index = (int) Math.ceil(percentile * copy.length) - 1;
+        return copy[Math.max(0, Math.min(copy.length - 1, index))];
+    }
+}
@@ -1,24 +1,29 @@
 package org.a.banapi.api;
 
-import com.google.gson.Gson;
-import com.google.gson.JsonObject;
 import org.a.banapi.Banapi;
+import org.a.banapi.cache.NameBloomFilter;
+import org.a.banapi.metrics.Histogram;
+import org.a.banapi.model.PublicBanData;
+import org.a.banapi.model.PublicBanRecord;
+import org.a.banapi.util.TimeFormats;
 import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 
 import java.io.BufferedReader;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.Reader;
 import java.net.HttpURLConnection;
+import java.net.InetAddress;
 import java.net.URL;
 import java.nio.charset.StandardCharsets;
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.logging.FileHandler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
-import java.util.stream.Collectors;
 
 /**
  * 处理公共封禁API的服务类
@@ -28,16 +33,31 @@ public class PublicAPIService {
     private final Banapi plugin;
     private final Logger logger;
     private final Logger warningLogger;
-    private Map<String, Object> cachedData;
-    private long lastFetchTime = 0;
-    private static final long CACHE_DURATION = 5 * 60 * 1000; // 5分钟缓存
     private final org.a.banapi.config.ConfigManager configManager;
 
+    // 当前快照；刷新期间读者继续使用旧快照
+    private volatile PublicBanSnapshot snapshot;
+    // 最近一次加载失败的时间，退避期内不再发起请求；成功后清零
+    private volatile long lastFailureAt;
+    private final AtomicBoolean refreshing = new AtomicBoolean();
+    private final Histogram fetchOk;
+    private final Histogram fetchError;
+    private final AtomicLong cacheHits = new AtomicLong();
+    private final AtomicLong staleServes = new AtomicLong();
+    private final AtomicLong refreshCount = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+    // 布隆过滤器判定：直接排除 / 放行后精确索引确认命中 / 放行后精确索引未命中（误判）
+    private final AtomicLong bloomRejects = new AtomicLong();
+    private final AtomicLong bloomMatches = new AtomicLong();
+    private final AtomicLong bloomFalsePositives = new AtomicLong();
+
     public PublicAPIService(Banapi plugin) {
         this.plugin = plugin;
         this.configManager = plugin.getConfigManager();
         this.logger = plugin.getLogger();
         this.warningLogger = Logger.getLogger("BanAPI-Warnings");
+        this.fetchOk = plugin.getMetrics().histogram("banapi_public_fetch_seconds", "公共封禁数据下载耗时", "result", "ok");
+        this.fetchError = plugin.getMetrics().histogram("banapi_public_fetch_seconds", "公共封禁数据下载耗时", "result", "error");
 
         // 设置警告日志
         if (configManager.isLogWarningsEnabled()) {
@@ -57,15 +77,104 @@ public class PublicAPIService {
      * @return 封禁数据
      * @throws IOException 如果API请求失败
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> getBanData() throws IOException {
-        long currentTime = System.currentTimeMillis();
+    public PublicBanData getBanData() throws IOException {
+        return getSnapshot().getData();
+    }
+
+    /**
+     * 在后台开始首次加载，插件启用时调用
+     */
+    public void preload() {
+        triggerRefresh();
+    }
+
+    /**
+     * 获取当前的公共封禁快照
+     * <p>
+     * 始终立即返回，不等待网络请求：快照接近过期时在后台触发一次刷新，同一时间最多只有一个刷新在进行。
+     * @return 公共封禁快照
+     * @throws IOException 如果首次加载尚未完成或已失败
+     */
+    public PublicBanSnapshot getSnapshot() throws IOException {
+        PublicBanSnapshot current = currentSnapshot();
+        if (current == null) {
+            throw new IOException(lastFailureAt != 0 ? "公共封禁数据加载失败，稍后将自动重试" : "公共封禁数据正在加载，请稍后再试");
+        }
+        return current;
+    }
+
+    /**
+     * @return 当前快照，首次加载完成前为null（此时在后台触发加载）
+     */
+    private PublicBanSnapshot currentSnapshot() {
+        PublicBanSnapshot current = snapshot;
+        if (current == null) {
+            triggerRefresh();
+            return null;
+        }
+
+        long ttl = configManager.getPublicApiCacheTtl() * 1000L;
+        long age = System.currentTimeMillis() - current.getFetchedAt();
+        if (age >= ttl * configManager.getPublicApiRefreshAhead()) {
+            triggerRefresh();
+        }
+
+        if (age < ttl) {
+            cacheHits.incrementAndGet();
+        } else {
+            staleServes.incrementAndGet();
+        }
+        return current;
+    }
+
+    /**
+     * 在后台刷新快照，已有刷新在进行或仍在失败后的退避期内时直接返回
+     */
+    private void triggerRefresh() {
+        long failedAt = lastFailureAt;
+        if (failedAt != 0 && System.currentTimeMillis() - failedAt < configManager.getPublicApiFailureBackoff() * 1000L) {
+            return;
+        }
+        if (!refreshing.compareAndSet(false, true)) {
+            return;
+        }
 
-        // 如果缓存有效，直接返回缓存数据
-        if (cachedData != null && (currentTime - lastFetchTime) < CACHE_DURATION) {
-            return cachedData;
+        try {
+            plugin.getIoExecutor().execute(() -> {
+                try {
+                    PublicBanSnapshot fetched = fetchSnapshot();
+                    // 在后台线程预先构建搜索索引，搜索命令不需要等待
+                    fetched.searchIndex();
+                    snapshot = fetched;
+                    lastFailureAt = 0;
+                } catch (Exception e) {
+                    refreshFailures.incrementAndGet();
+                    lastFailureAt = System.currentTimeMillis();
+                    logger.warning((snapshot != null ? "刷新公共封禁数据失败，继续使用旧数据: " : "加载公共封禁数据失败: ")
+                            + e.getMessage());
+                } finally {
+                    refreshing.set(false);
+                }
+            });
+        } catch (RuntimeException e) {
+            // 插件停用或线程池已满时无法再调度任务
+            refreshing.set(false);
         }
+    }
 
+    private PublicBanSnapshot fetchSnapshot() throws IOException {
+        long start = System.nanoTime();
+        Histogram outcome = fetchError;
+        try {
+            PublicBanSnapshot fetched = downloadSnapshot();
+            outcome = fetchOk;
+            return fetched;
+        } finally {
+            outcome.recordSince(start);
+        }
+    }
+
+    private PublicBanSnapshot downloadSnapshot() throws IOException {
         URL url = new URL(API_URL);
         HttpURLConnection connection = (HttpURLConnection) url.openConnection();
         connection.setRequestMethod("GET");
@@ -77,35 +186,45 @@ public class PublicAPIService {
             throw new IOException("API请求失败，响应码: " + responseCode);
         }
 
-        try (BufferedReader reader = new BufferedReader(
+        try (Reader reader = new BufferedReader(
                 new InputStreamReader(connection.getInputStream(), StandardCharsets.UTF_8))) {
-            String response = reader.lines().collect(Collectors.joining());
-            Gson gson = new Gson();
-            cachedData = gson.fromJson(response, Map.class);
-            lastFetchTime = currentTime;
-            return cachedData;
+            PublicBanData data = BanJsonDecoder.readPublicBanData(reader);
+            refreshCount.incrementAndGet();
+            PublicBanSnapshot fetched = PublicBanSnapshot.build(data, configManager.getPublicApiBloomFpp(),
+                    System.currentTimeMillis());
+            if (fetched.getInvalidIps() > 0) {
+                logger.fine("公共封禁列表中有 " + fetched.getInvalidIps() + " 个无法解析的IP");
+            }
+            return fetched;
         }
     }
 
     /**
      * 检查玩家是否在公共封禁列表中
+     * <p>
+     * 先查询布隆过滤器，绝大多数未被封禁的玩家在这一步即被排除；过滤器判定可能存在时再查精确索引。
      * @param playerName 玩家名称
      * @return 如果玩家在封禁列表中，返回封禁信息；否则返回null
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> checkPlayerBan(String playerName) {
+    public PublicBanRecord checkPlayerBan(String playerName) {
         try {
-            Map<String, Object> banData = getBanData();
-            List<Map<String, Object>> activePlayers = (List<Map<String, Object>>) banData.get("active_players");
-
-            if (activePlayers == null) {
+            String key = playerName.toLowerCase(Locale.ROOT);
+            PublicBanSnapshot current = currentSnapshot();
+            if (current == null) {
+                return null;
+            }
+            if (!current.getPlayerFilter().mightContain(key)) {
+                bloomRejects.incrementAndGet();
                 return null;
             }
 
-            return activePlayers.stream()
-                    .filter(player -> playerName.equalsIgnoreCase((String) player.get("username")))
-                    .findFirst()
-                    .orElse(null);
+            PublicBanRecord record = current.findPlayer(key);
+            if (record != null) {
+                bloomMatches.incrementAndGet();
+            } else {
+                bloomFalsePositives.incrementAndGet();
+            }
+            return record;
         } catch (Exception e) {
             logger.warning("检查玩家 " + playerName + " 的公共封禁状态时出错: " + e.getMessage());
             return null;
@@ -117,42 +236,46 @@ public class PublicAPIService {
      * @param ip IP地址
      * @return 如果IP在封禁列表中，返回封禁信息；否则返回null
      */
-    @SuppressWarnings("unchecked")
-    public Map<String, Object> checkIpBan(String ip) {
+    public PublicBanRecord checkIpBan(String ip) {
         try {
-            Map<String, Object> banData = getBanData();
-            List<Map<String, Object>> activeIps = (List<Map<String, Object>>) banData.get("active_ips");
-
-            if (activeIps == null) {
-                return null;
-            }
-
-            return activeIps.stream()
-                    .filter(ipData -> ip.equals(ipData.get("ip")))
-                    .findFirst()
-                    .orElse(null);
+            PublicBanSnapshot current = currentSnapshot();
+            return current != null ? current.getIpIndex().lookup(ip) : null;
         } catch (Exception e) {
             logger.warning("检查IP " + ip + " 的公共封禁状态时出错: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * 检查地址是否在公共封禁列表中（包括所在的CIDR网段）
+     * @param address 玩家地址
+     * @return 如果地址在封禁列表中，返回封禁信息；否则返回null
+     */
+    public PublicBanRecord checkIpBan(InetAddress address) {
+        try {
+            PublicBanSnapshot current = currentSnapshot();
+            return current != null ? current.getIpIndex().lookup(address) : null;
+        } catch (Exception e) {
+            logger.warning("检查IP " + address.getHostAddress() + " 的公共封禁状态时出错: " + e.getMessage());
+            return null;
+        }
+    }
+
     /**
      * 记录警告日志
      * @param playerName 玩家名称
      * @param ip 玩家IP
      * @param banInfo 封禁信息
      */
-    public void logWarning(String playerName, String ip, Map<String, Object> banInfo) {
+    public void logWarning(String playerName, String ip, PublicBanRecord banInfo) {
         if (!configManager.isLogWarningsEnabled() || !configManager.isPublicApiEnabled()) {
             return;
         }
         
-        SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-        String timestamp = dateFormat.format(new Date());
+        String timestamp = TimeFormats.format(System.currentTimeMillis());
 
-        String cause = banInfo.containsKey("cause") ? (String) banInfo.get("cause") : "未知原因";
-        String banTimestamp = banInfo.containsKey("timestamp") ? (String) banInfo.get("timestamp") : "未知时间";
+        String cause = banInfo.getCause() != null ? banInfo.getCause() : "未知原因";
+        String banTimestamp = banInfo.getTimestamp() != null ? banInfo.getTimestamp() : "未知时间";
 
         String logMessage = String.format("[%s] 预警: 玩家 %s (IP: %s) 尝试登录，但在公共封禁列表中。原因: %s, 封禁时间: %s",
                 timestamp, playerName, ip, cause, banTimestamp);
@@ -165,20 +288,17 @@ public class PublicAPIService {
      * @param playerName 玩家名称
      * @param banInfo 封禁信息
      */
-    public void notifyOps(String playerName, Map<String, Object> banInfo) {
+    public void notifyOps(String playerName, PublicBanRecord banInfo) {
         if (!configManager.isPublicApiEnabled()) {
             return;
         }
         
-        String cause = banInfo.containsKey("cause") ? (String) banInfo.get("cause") : "未知原因";
-        String ip = banInfo.containsKey("ip") ? (String) banInfo.get("ip") : "未知IP";
-        String banTimestamp = banInfo.containsKey("timestamp") ? (String) banInfo.get("timestamp") : "未知时间";
+        String cause = banInfo.getCause() != null ? banInfo.getCause() : "未知原因";
+        String ip = banInfo.getIp() != null ? banInfo.getIp() : "未知IP";
+        String banTimestamp = banInfo.getTimestamp() != null ? banInfo.getTimestampDisplay() : "未知时间";
 
-        String warningMessage = configManager.getPublicApiWarningFormat()
-            .replace("{nickname}", playerName)
-            .replace("{ip}", ip)
-            .replace("{reason}", cause)
-            .replace("{timestamp}", formatTime(banTimestamp));
+        String warningMessage = configManager.getPublicApiWarningTemplate()
+            .render(playerName, ip, cause, banTimestamp);
 
         Bukkit.getScheduler().runTask(plugin, () -> {
             for (Player player : Bukkit.getOnlinePlayers()) {
@@ -189,35 +309,17 @@ public class PublicAPIService {
         });
     }
 
-    /**
-     * 格式化时间为更易读的格式
-     */
-    private String formatTime(String timeStr) {
-        if (timeStr == null || timeStr.equals("未知时间") || timeStr.equals("未知")) {
-            return timeStr;
-        }
-
-        try {
-            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
-            SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date date = isoFormat.parse(timeStr);
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            return timeStr;
-        }
-    }
-
     /**
      * 获取公共API的统计信息
      * @return 统计信息
      */
     public Map<String, Object> getStats() {
         try {
-            Map<String, Object> banData = getBanData();
+            PublicBanData banData = getBanData();
             Map<String, Object> stats = new HashMap<>();
 
-            stats.put("player_count", banData.getOrDefault("player_count", 0));
-            stats.put("ip_count", banData.getOrDefault("ip_count", 0));
+            stats.put("player_count", banData.getPlayerCount());
+            stats.put("ip_count", banData.getIpCount());
 
             return stats;
         } catch (Exception e) {
@@ -225,4 +327,58 @@ public class PublicAPIService {
             return Collections.emptyMap();
         }
     }
+
+    /** @return 布隆过滤器直接排除的次数 */
+    public long getBloomRejects() {
+        return bloomRejects.get();
+    }
+
+    /** @return 布隆过滤器判定可能存在且精确索引确认命中的次数 */
+    public long getBloomMatches() {
+        return bloomMatches.get();
+    }
+
+    /** @return 布隆过滤器误判的次数 */
+    public long getBloomFalsePositives() {
+        return bloomFalsePositives.get();
+    }
+
+    /**
+     * 实测误判率：误判次数占所有不在列表中的查询的比例
+     * @return 误判率，尚无查询时返回0
+     */
+    public double getBloomFalsePositiveRate() {
+        long falsePositives = bloomFalsePositives.get();
+        long negatives = falsePositives + bloomRejects.get();
+        return negatives == 0 ? 0 : (double) falsePositives / negatives;
+    }
+
+    /**
+     * 获取当前快照的玩家名布隆过滤器
+     * @return 布隆过滤器，尚未加载数据时返回null
+     */
+    public NameBloomFilter getPlayerFilter() {
+        PublicBanSnapshot current = snapshot;
+        return current != null ? current.getPlayerFilter() : null;
+    }
+
+    /** @return 在有效期内命中缓存的次数 */
+    public long getCacheHits() {
+        return cacheHits.get();
+    }
+
+    /** @return 缓存过期但刷新尚未完成、返回旧数据的次数 */
+    public long getStaleServes() {
+        return staleServes.get();
+    }
+
+    /** @return 成功刷新的次数 */
+    public long getRefreshCount() {
+        return refreshCount.get();
+    }
+
+    /** @return 刷新失败的次数 */
+    public long getRefreshFailures() {
+        return refreshFailures.get();
+    }
 }
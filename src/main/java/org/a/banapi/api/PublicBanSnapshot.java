@@ -0,0 +1,126 @@
+package org.a.banapi.api;
+
+import org.a.banapi.cache.IpRadixTrie;
+import org.a.banapi.cache.NameBloomFilter;
+import org.a.banapi.model.PublicBanData;
+import org.a.banapi.model.PublicBanRecord;
+import org.a.banapi.search.BanSearchIndex;
+import org.a.banapi.search.SearchIndex;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 公共封禁数据的不可变快照，包含原始数据和刷新时构建的索引
+ */
+public final class PublicBanSnapshot {
+    private final PublicBanData data;
+    private final IpRadixTrie<PublicBanRecord> ipIndex;
+    private final NameBloomFilter playerFilter;
+    private final Map<String, PublicBanRecord> playersByName;
+    private final int invalidIps;
+    private final long fetchedAt;
+    private volatile SearchIndex<PublicBanRecord> searchIndex;
+
+    private PublicBanSnapshot(PublicBanData data, IpRadixTrie<PublicBanRecord> ipIndex, NameBloomFilter playerFilter,
+                              Map<String, PublicBanRecord> playersByName, int invalidIps, long fetchedAt) {
+        this.data = data;
+        this.ipIndex = ipIndex;
+        this.playerFilter = playerFilter;
+        this.playersByName = playersByName;
+        this.invalidIps = invalidIps;
+        this.fetchedAt = fetchedAt;
+    }
+
+    /**
+     * 根据公共封禁数据构建快照及其索引
+     * @param data 公共封禁数据
+     * @param bloomFpp 玩家名布隆过滤器的目标误判率
+     * @param fetchedAt 数据获取时间戳（毫秒）
+     * @return 快照
+     */
+    public static PublicBanSnapshot build(PublicBanData data, double bloomFpp, long fetchedAt) {
+        // 将active_ips编译为IP前缀树，ip字段可以是单个地址或CIDR网段
+        IpRadixTrie<PublicBanRecord> ipIndex = new IpRadixTrie<>();
+        int invalidIps = 0;
+        for (PublicBanRecord ipData : data.getActiveIps()) {
+            String ip = ipData.getIp();
+            if (ip != null && !ipIndex.insert(ip, ipData)) {
+                invalidIps++;
+            }
+        }
+
+        // 按小写玩家名建立精确索引，同名记录保留第一条
+        List<PublicBanRecord> players = data.getActivePlayers();
+        Map<String, PublicBanRecord> playersByName = new HashMap<>(Math.max(16, (int) (players.size() / 0.75f) + 1));
+        for (PublicBanRecord player : players) {
+            String key = player.getUsernameKey();
+            if (key != null) {
+                playersByName.putIfAbsent(key, player);
+            }
+        }
+
+        NameBloomFilter playerFilter = new NameBloomFilter(playersByName.size(), bloomFpp);
+        for (String key : playersByName.keySet()) {
+            playerFilter.add(key);
+        }
+        return new PublicBanSnapshot(data, ipIndex, playerFilter, playersByName, invalidIps, fetchedAt);
+    }
+
+    public PublicBanData getData() {
+        return data;
+    }
+
+    public IpRadixTrie<PublicBanRecord> getIpIndex() {
+        return ipIndex;
+    }
+
+    /**
+     * @return 玩家名布隆过滤器，键为小写玩家名
+     */
+    public NameBloomFilter getPlayerFilter() {
+        return playerFilter;
+    }
+
+    /**
+     * 按玩家名精确查找
+     * @param key 小写玩家名
+     * @return 封禁信息，不存在时返回null
+     */
+    public PublicBanRecord findPlayer(String key) {
+        return playersByName.get(key);
+    }
+
+    /**
+     * @return active_ips中无法解析的IP数量
+     */
+    public int getInvalidIps() {
+        return invalidIps;
+    }
+
+    /**
+     * @return 数据获取时间戳（毫秒）
+     */
+    public long getFetchedAt() {
+        return fetchedAt;
+    }
+
+    /**
+     * 获取按玩家、IP、原因和时间搜索的索引，首次调用时构建
+     * @return 搜索索引
+     */
+    public SearchIndex<PublicBanRecord> searchIndex() {
+        SearchIndex<PublicBanRecord> index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = BanSearchIndex.forPublicBans(data);
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+}
@@ -0,0 +1,216 @@
+package org.a.banapi.api;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * 合并相同的在途请求（single-flight）
+ * <p>
+ * 同一个键同时只有一个真实请求，期间到达的其他调用方等待并共享它的结果，结果对象应视为只读。
+ * 异步调用方各自持有独立的future：单个调用方取消只影响自己，所有调用方（包括正在等待的同步调用方）
+ * 都离开后才取消真实请求。
+ */
+final class RequestCoalescer {
+    private final ConcurrentHashMap<String, Flight> inFlight = new ConcurrentHashMap<>();
+    private final AtomicLong executed = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+
+    /**
+     * 在途请求
+     */
+    private final class Flight {
+        // 调用方全部离开、请求已被取消后的等待数，之后不再接受新的调用方
+        private static final int CLOSED = -1;
+
+        final CompletableFuture<Object> shared = new CompletableFuture<>();
+        final AtomicInteger waiters = new AtomicInteger();
+        // 只有异步发起的请求可以在所有调用方取消后被取消，同步发起方始终需要自己的结果
+        volatile boolean cancellable;
+
+        Flight(String key) {
+            shared.whenComplete((result, error) -> inFlight.remove(key, this));
+        }
+
+        /**
+         * 加入等待
+         * @return 请求已因无人等待而取消时返回false，调用方需要重新发起
+         */
+        boolean enter() {
+            while (true) {
+                int current = waiters.get();
+                if (current == CLOSED) {
+                    return false;
+                }
+                if (waiters.compareAndSet(current, current + 1)) {
+                    return true;
+                }
+            }
+        }
+
+        /**
+         * 离开等待，最后一个离开的调用方取消尚未完成的异步请求
+         */
+        void leave() {
+            if (waiters.decrementAndGet() == 0 && cancellable && waiters.compareAndSet(0, CLOSED)) {
+                shared.cancel(true);
+            }
+        }
+
+        /**
+         * 以独立的future加入等待，调用方需要先成功 {@link #enter()}
+         */
+        @SuppressWarnings("unchecked")
+        <T> CompletableFuture<T> join() {
+            CompletableFuture<T> own = new CompletableFuture<>();
+            shared.whenComplete((result, error) -> {
+                if (error != null) {
+                    own.completeExceptionally(error);
+                } else {
+                    own.complete((T) result);
+                }
+            });
+            own.whenComplete((result, error) -> {
+                if (own.isCancelled()) {
+                    leave();
+                }
+            });
+            return own;
+        }
+    }
+
+    /**
+     * 异步执行请求，相同键的请求在途时直接加入
+     * @param key 请求键
+     * @param call 发起真实请求
+     * @return 该调用方独立的结果future
+     */
+    <T> CompletableFuture<T> submit(String key, Supplier<CompletableFuture<T>> call) {
+        Flight created = new Flight(key);
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, created)) != null) {
+            if (existing.enter()) {
+                coalesced.incrementAndGet();
+                return existing.join();
+            }
+            inFlight.remove(key, existing);
+        }
+
+        executed.incrementAndGet();
+        created.cancellable = true;
+        created.enter();
+        CompletableFuture<T> actual;
+        try {
+            actual = call.get();
+        } catch (RuntimeException e) {
+            created.shared.completeExceptionally(e);
+            throw e;
+        }
+        actual.whenComplete((result, error) -> {
+            if (error != null) {
+                created.shared.completeExceptionally(error);
+            } else {
+                created.shared.complete(result);
+            }
+        });
+        created.shared.whenComplete((result, error) -> {
+            if (created.shared.isCancelled()) {
+                actual.cancel(true);
+            }
+        });
+        return created.join();
+    }
+
+    /**
+     * 同步执行请求，相同键的请求在途时等待其结果
+     * @param key 请求键
+     * @param timeoutMillis 等待其他调用方的请求时的最长耗时，0表示不限
+     * @param call 发起真实请求
+     * @return 请求结果
+     * @throws IOException 如果请求失败或等待超时
+     */
+    @SuppressWarnings("unchecked")
+    <T> T execute(String key, int timeoutMillis, IOCall<T> call) throws IOException {
+        Flight created = new Flight(key);
+        Flight existing;
+        while ((existing = inFlight.putIfAbsent(key, created)) != null) {
+            if (existing.enter()) {
+                coalesced.incrementAndGet();
+                try {
+                    return (T) await(existing.shared, timeoutMillis);
+                } finally {
+                    existing.leave();
+                }
+            }
+            inFlight.remove(key, existing);
+        }
+
+        executed.incrementAndGet();
+        try {
+            T result = call.call();
+            created.shared.complete(result);
+            return result;
+        } catch (Throwable e) {
+            // 包括Error在内都要结束共享的请求，否则等待中的调用方和键会一直留在inFlight中
+            created.shared.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    /**
+     * 等待future完成，把超时、取消、中断和执行异常统一转换为IOException
+     * @param timeoutMillis 最长等待时间，0表示不限
+     */
+    static <T> T await(CompletableFuture<T> future, int timeoutMillis) throws IOException {
+        try {
+            return timeoutMillis > 0 ? future.get(timeoutMillis, TimeUnit.MILLISECONDS) : future.get();
+        } catch (TimeoutException e) {
+            throw new InterruptedIOException("等待请求结果超时");
+        } catch (CancellationException e) {
+            throw new InterruptedIOException("请求已取消");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("等待请求结果时被中断");
+        } catch (ExecutionException e) {
+            Throwable cause = e.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IOException(cause);
+        }
+    }
+
+    /**
+     * 可能抛出IOException的请求
+     */
+    @FunctionalInterface
+    interface IOCall<T> {
+        T call() throws IOException;
+    }
+
+    /** @return 实际发出的请求数 */
+    long getExecuted() {
+        return executed.get();
+    }
+
+    /** @return 被合并、未单独发出的请求数 */
+    long getCoalesced() {
+        return coalesced.get();
+    }
+
+    /** @return 当前在途的请求数 */
+    int getInFlight() {
+        return inFlight.size();
+    }
+}
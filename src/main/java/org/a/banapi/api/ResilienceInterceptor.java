@@ -0,0 +1,140 @@
+package org.a.banapi.api;
+
+import okhttp3.Interceptor;
+import okhttp3.Request;
+import okhttp3.Response;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.function.Function;
+
+/**
+ * 熔断、重试与耗时统计拦截器
+ * <p>
+ * 每次尝试前先向熔断器申请，网络错误、5xx和429计为失败。只有GET请求和带幂等键的写请求会被重试，
+ * 重试间隔为带完全抖动的指数退避，并受全局重试预算限制。整个过程受调用的总超时约束。
+ * <p>
+ * 同步调用在调用线程上等待退避时间后重试；带 {@link AsyncAttempt} 标记的异步调用只尝试一次，
+ * 由调用方按 {@link #retryDelay(int)} 重新安排，不占用调度器线程等待。
+ */
+final class ResilienceInterceptor implements Interceptor {
+    private final CircuitBreaker breaker;
+    private final RetryBudget retryBudget;
+    private final Function<String, LatencyTracker> latency;
+    private final int maxRetries;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    /**
+     * 异步请求的尝试序号，从0开始
+     */
+    static final class AsyncAttempt {
+        final int attempt;
+
+        AsyncAttempt(int attempt) {
+            this.attempt = attempt;
+        }
+    }
+
+    /**
+     * @param latency 按接口名称获取耗时统计，对冲延迟按接口分别计算
+     */
+    ResilienceInterceptor(CircuitBreaker breaker, RetryBudget retryBudget, Function<String, LatencyTracker> latency,
+                          int maxRetries, long baseDelayMillis, long maxDelayMillis) {
+        this.breaker = breaker;
+        this.retryBudget = retryBudget;
+        this.latency = latency;
+        this.maxRetries = maxRetries;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    @Override
+    public Response intercept(Chain chain) throws IOException {
+        Request request = chain.request();
+        AsyncAttempt async = request.tag(AsyncAttempt.class);
+        // 异步重试是新的调用，只在第一次尝试时存入预算
+        if (async == null || async.attempt == 0) {
+            retryBudget.deposit();
+        }
+        boolean retryable = async == null && isRetryable(request);
+
+        for (int attempt = 0; ; attempt++) {
+            if (!breaker.tryAcquire()) {
+                throw new CircuitOpenException();
+            }
+
+            long start = System.nanoTime();
+            Response response;
+            try {
+                response = chain.proceed(request);
+            } catch (IOException e) {
+                if (chain.call().isCanceled()) {
+                    breaker.onIgnored();
+                    throw e;
+                }
+                breaker.onFailure();
+                if (!retryable || !shouldRetry(chain, attempt)) {
+                    throw e;
+                }
+                continue;
+            }
+
+            if (isServerFailure(response.code())) {
+                breaker.onFailure();
+                if (retryable && shouldRetry(chain, attempt)) {
+                    response.close();
+                    continue;
+                }
+                return response;
+            }
+
+            breaker.onSuccess();
+            String operation = request.tag(String.class);
+            latency.apply(operation != null ? operation : "other").record((System.nanoTime() - start) / 1_000_000);
+            return response;
+        }
+    }
+
+    /**
+     * 计算下一次重试前的退避时间，可以重试时从重试预算中扣除一次
+     * @param attempt 刚失败的尝试序号，从0开始
+     * @return 退避时间（毫秒），次数用尽或超出重试预算时返回-1
+     */
+    long retryDelay(int attempt) {
+        if (attempt >= maxRetries || !retryBudget.tryWithdraw()) {
+            return -1;
+        }
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(attempt, 20));
+        return cap > 0 ? ThreadLocalRandom.current().nextLong(cap + 1) : 0;
+    }
+
+    /**
+     * 判断同步调用是否还能重试，可以时在当前线程等待退避时间
+     */
+    private boolean shouldRetry(Chain chain, int attempt) throws IOException {
+        long delay = retryDelay(attempt);
+        if (delay < 0) {
+            return false;
+        }
+        try {
+            Thread.sleep(delay);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("重试等待时被中断");
+        }
+        return !chain.call().isCanceled();
+    }
+
+    /**
+     * @return GET请求和带幂等键的写请求可以重试
+     */
+    static boolean isRetryable(Request request) {
+        return "GET".equals(request.method()) || request.header(APIService.IDEMPOTENCY_KEY) != null;
+    }
+
+    static boolean isServerFailure(int code) {
+        return code >= 500 || code == 429;
+    }
+}
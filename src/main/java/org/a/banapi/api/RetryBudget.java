@@ -0,0 +1,70 @@
+package org.a.banapi.api;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 全局重试预算
+ * <p>
+ * 每次原始请求存入 ratio 个令牌，每次重试（包括对冲请求）消耗一个令牌，令牌数有上限。
+ * 服务整体故障时重试量最多只有原始请求量的 ratio 倍，不会成倍放大压力。
+ */
+public final class RetryBudget {
+    // 以千分之一令牌为单位，避免浮点运算
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long maxBalance;
+    private final AtomicLong balance;
+    private final AtomicLong granted = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+
+    /**
+     * @param ratio 每次原始请求允许的重试次数比例
+     * @param maxTokens 令牌上限，同时也是初始令牌数
+     */
+    public RetryBudget(double ratio, int maxTokens) {
+        this.depositPerRequest = Math.max(0, Math.round(ratio * SCALE));
+        this.maxBalance = Math.max(1, maxTokens) * SCALE;
+        this.balance = new AtomicLong(maxBalance);
+    }
+
+    /**
+     * 记录一次原始请求
+     */
+    public void deposit() {
+        balance.accumulateAndGet(depositPerRequest, (current, delta) -> Math.min(maxBalance, current + delta));
+    }
+
+    /**
+     * 尝试为一次重试消耗令牌
+     * @return 是否允许重试
+     */
+    public boolean tryWithdraw() {
+        while (true) {
+            long current = balance.get();
+            if (current < SCALE) {
+                denied.incrementAndGet();
+                return false;
+            }
+            if (balance.compareAndSet(current, current - SCALE)) {
+                granted.incrementAndGet();
+                return true;
+            }
+        }
+    }
+
+    /** @return 当前可用的重试次数 */
+    public long getAvailable() {
+        return balance.get() / SCALE;
+    }
+
+    /** @return 已允许的重试次数 */
+    public long getGranted() {
+        return granted.get();
+    }
+
+    /** @return 因预算耗尽而放弃的重试次数 */
+    public long getDenied() {
+        return denied.get();
+    }
+}
@@ -0,0 +1,538 @@
+package org.a.banapi.bulk;
+
+import org.a.banapi.Banapi;
+import org.a.banapi.api.APIService;
+import org.a.banapi.api.BatchNotSupportedException;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.NewBan;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.format.NamedTextColor;
+import org.bukkit.command.CommandSender;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * 批量导入封禁或批量解除封禁
+ * <p>
+ * 在I/O线程上逐条读取输入，通过信号量限制同时进行的写请求数；配置了批量大小时优先使用批量接口，
+ * 第一批返回“不支持”后改为逐条提交。进度定期发送给命令执行者，每条记录的结果写入插件目录下的
+ * bulk-results 文件，成功的记录合并到本地封禁索引。
+ */
+public final class BulkJob implements Runnable {
+    /** 导入文件没有表头时的列顺序 */
+    static final String[] IMPORT_COLUMNS = {"nickname", "reason", "admin", "permanent", "duration"};
+    /** 解封文件没有表头时的列顺序，可以只填ID或只填玩家名 */
+    static final String[] RELEASE_COLUMNS = {"id", "nickname"};
+
+    private static final long PROGRESS_INTERVAL_MILLIS = 2000;
+    private static final DateTimeFormatter FILE_TIME = DateTimeFormatter.ofPattern("yyyyMMdd-HHmmss");
+
+    /**
+     * 批量操作类型
+     */
+    public enum Mode {
+        IMPORT("import", "导入"),
+        RELEASE("release", "解封");
+
+        private final String fileName;
+        private final String displayName;
+
+        Mode(String fileName, String displayName) {
+            this.fileName = fileName;
+            this.displayName = displayName;
+        }
+    }
+
+    private final Banapi plugin;
+    private final APIService apiService;
+    private final CommandSender sender;
+    private final Mode mode;
+    private final Path input;
+    private final List<BanRecord> targets;
+    private final String defaultAdmin;
+    private final int concurrency;
+    private final int batchSize;
+    private final Semaphore permits;
+
+    private final AtomicInteger processed = new AtomicInteger();
+    private final AtomicInteger succeeded = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final Queue<BanRecord> applied = new ConcurrentLinkedQueue<>();
+    private int total;
+    private volatile long lastProgressAt;
+    private BufferedWriter results;
+    private Path resultFile;
+
+    private BulkJob(Banapi plugin, CommandSender sender, Mode mode, Path input, List<BanRecord> targets) {
+        this.plugin = plugin;
+        this.apiService = plugin.getApiService();
+        this.sender = sender;
+        this.mode = mode;
+        this.input = input;
+        this.targets = targets;
+        this.defaultAdmin = sender.getName();
+        this.concurrency = Math.max(1, plugin.getConfigManager().getBulkConcurrency());
+        this.batchSize = Math.max(0, plugin.getConfigManager().getBulkBatchSize());
+        this.permits = new Semaphore(concurrency);
+    }
+
+    /**
+     * 从文件批量导入或解封
+     * @param file 插件目录中的CSV或JSONL文件
+     */
+    public static BulkJob fromFile(Banapi plugin, CommandSender sender, Mode mode, Path file) {
+        return new BulkJob(plugin, sender, mode, file, null);
+    }
+
+    /**
+     * 批量解除给定的封禁记录（例如搜索结果）
+     */
+    public static BulkJob releaseRecords(Banapi plugin, CommandSender sender, List<BanRecord> records) {
+        return new BulkJob(plugin, sender, Mode.RELEASE, null, records);
+    }
+
+    @Override
+    public void run() {
+        long start = System.currentTimeMillis();
+        try {
+            total = input != null ? BulkReader.countRows(input, columns()) : targets.size();
+            resultFile = createResultFile();
+            results = Files.newBufferedWriter(resultFile, StandardCharsets.UTF_8);
+            results.write("line,key,result,detail");
+            results.newLine();
+            sender.sendMessage(Component.text("开始批量" + mode.displayName + "，共 " + total + " 条，并发 " + concurrency
+                    + (batchSize > 0 ? "，每批 " + batchSize + " 条" : "")).color(NamedTextColor.YELLOW));
+
+            if (input != null) {
+                try (BulkReader reader = new BulkReader(input, columns())) {
+                    process(reader::next);
+                }
+            } else {
+                Iterator<BanRecord> iterator = targets.iterator();
+                int[] position = {0};
+                process(() -> {
+                    if (!iterator.hasNext()) {
+                        return null;
+                    }
+                    BanRecord ban = iterator.next();
+                    Map<String, String> fields = new HashMap<>();
+                    fields.put("id", String.valueOf(ban.getId()));
+                    fields.put("nickname", ban.getNickname());
+                    return new BulkReader.Row(++position[0], fields, null);
+                });
+            }
+
+            // 等待所有在途请求完成
+            permits.acquireUninterruptibly(concurrency);
+            permits.release(concurrency);
+        } catch (IOException e) {
+            sender.sendMessage(Component.text("批量" + mode.displayName + "失败: " + e.getMessage()).color(NamedTextColor.RED));
+            plugin.getLogger().log(Level.WARNING, "批量" + mode.displayName + "时出错", e);
+        } finally {
+            closeResults();
+        }
+
+        applyToLocalIndex();
+        sender.sendMessage(Component.text(String.format("批量%s完成：成功 %d 条，失败 %d 条，耗时 %.1f 秒",
+                mode.displayName, succeeded.get(), failed.get(), (System.currentTimeMillis() - start) / 1000.0))
+                .color(failed.get() == 0 ? NamedTextColor.GREEN : NamedTextColor.GOLD));
+        if (resultFile != null) {
+            sender.sendMessage(Component.text("结果已写入 " + plugin.getDataFolder().toPath().relativize(resultFile))
+                    .color(NamedTextColor.GRAY));
+        }
+    }
+
+    private String[] columns() {
+        return mode == Mode.IMPORT ? IMPORT_COLUMNS : RELEASE_COLUMNS;
+    }
+
+    @FunctionalInterface
+    private interface RowSource {
+        BulkReader.Row next() throws IOException;
+    }
+
+    private void process(RowSource source) throws IOException {
+        boolean useBatch = batchSize > 0;
+        boolean batchConfirmed = false;
+        List<Item> batch = new ArrayList<>();
+
+        BulkReader.Row row;
+        while ((row = source.next()) != null) {
+            Item item = toItem(row);
+            if (item.error != null) {
+                fail(item, item.error);
+                continue;
+            }
+            if (!useBatch) {
+                submitSingle(item);
+                continue;
+            }
+
+            batch.add(item);
+            if (batch.size() >= batchSize) {
+                if (!batchConfirmed) {
+                    // 第一批同步提交，确认API是否支持批量接口
+                    useBatch = submitFirstBatch(batch);
+                    batchConfirmed = true;
+                } else {
+                    submitBatch(batch);
+                }
+                batch = new ArrayList<>();
+            }
+        }
+
+        if (!batch.isEmpty()) {
+            if (batchConfirmed) {
+                submitBatch(batch);
+            } else {
+                submitFirstBatch(batch);
+            }
+        }
+    }
+
+    private Item toItem(BulkReader.Row row) {
+        if (row.error != null) {
+            return new Item(row.line, "", null, 0, row.error);
+        }
+        Map<String, String> fields = row.fields;
+        String nickname = fields.get("nickname");
+
+        if (mode == Mode.IMPORT) {
+            if (nickname == null) {
+                return new Item(row.line, "", null, 0, "缺少玩家名");
+            }
+            String reason = fields.get("reason");
+            if (reason == null) {
+                return new Item(row.line, nickname, null, 0, "缺少封禁原因");
+            }
+            String admin = fields.getOrDefault("admin", defaultAdmin);
+            boolean permanent = parseBoolean(fields.get("permanent"), true);
+            Long duration = null;
+            if (!permanent && fields.get("duration") != null) {
+                duration = parseDuration(fields.get("duration"));
+                if (duration == null) {
+                    return new Item(row.line, nickname, null, 0, "无效的时长: " + fields.get("duration"));
+                }
+            }
+            return new Item(row.line, nickname, new NewBan(nickname, reason, admin, permanent, duration), 0, null);
+        }
+
+        String idValue = fields.get("id");
+        if (idValue != null) {
+            try {
+                return new Item(row.line, idValue, null, Integer.parseInt(idValue), null);
+            } catch (NumberFormatException e) {
+                return new Item(row.line, idValue, null, 0, "无效的ID");
+            }
+        }
+        if (nickname != null) {
+            // 只给出玩家名时，从本地索引中查找生效中的封禁
+            BanRecord ban = plugin.getBanCache().current().findByName(nickname);
+            if (ban == null || !ban.hasId() || ban.isReleased()) {
+                return new Item(row.line, nickname, null, 0, "本地索引中没有该玩家生效中的封禁");
+            }
+            return new Item(row.line, nickname, null, ban.getId(), null);
+        }
+        return new Item(row.line, "", null, 0, "缺少ID或玩家名");
+    }
+
+    private void submitSingle(Item item) {
+        permits.acquireUninterruptibly();
+        CompletableFuture<BanRecord> future;
+        try {
+            future = mode == Mode.IMPORT
+                    ? apiService.addBanAsync(item.ban.getNickname(), item.ban.getReason(), item.ban.getAdmin(),
+                            item.ban.isPermanent(), item.ban.getDuration())
+                    : apiService.updateBanStatusAsync(item.id, true);
+        } catch (RuntimeException e) {
+            permits.release();
+            fail(item, e.getMessage());
+            return;
+        }
+        future.whenComplete((record, error) -> {
+            try {
+                if (error != null) {
+                    fail(item, unwrap(error).getMessage());
+                } else {
+                    succeed(item, record);
+                }
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    /**
+     * 在当前线程上同步提交第一批，不经过调度器，避免在I/O线程上等待另一个I/O线程
+     * @return API是否支持批量接口；不支持时本批已改为逐条提交
+     */
+    private boolean submitFirstBatch(List<Item> batch) {
+        List<BanRecord> records;
+        try {
+            records = mode == Mode.IMPORT
+                    ? apiService.addBans(newBans(batch))
+                    : apiService.updateBanStatusBatch(ids(batch), true);
+        } catch (BatchNotSupportedException e) {
+            plugin.getLogger().info("BanAPIService不支持批量接口，改为逐条提交");
+            for (Item item : batch) {
+                submitSingle(item);
+            }
+            return false;
+        } catch (IOException | RuntimeException e) {
+            for (Item item : batch) {
+                fail(item, e.getMessage());
+            }
+            return true;
+        }
+        completeBatch(batch, records);
+        return true;
+    }
+
+    private void submitBatch(List<Item> batch) {
+        permits.acquireUninterruptibly();
+        batchCall(batch).whenComplete((records, error) -> {
+            try {
+                if (error != null) {
+                    String message = unwrap(error).getMessage();
+                    for (Item item : batch) {
+                        fail(item, message);
+                    }
+                } else {
+                    completeBatch(batch, records);
+                }
+            } finally {
+                permits.release();
+            }
+        });
+    }
+
+    private CompletableFuture<List<BanRecord>> batchCall(List<Item> batch) {
+        return mode == Mode.IMPORT
+                ? apiService.addBansAsync(newBans(batch))
+                : apiService.updateBanStatusBatchAsync(ids(batch), true);
+    }
+
+    private static List<NewBan> newBans(List<Item> batch) {
+        List<NewBan> bans = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            bans.add(item.ban);
+        }
+        return bans;
+    }
+
+    private static List<Integer> ids(List<Item> batch) {
+        List<Integer> ids = new ArrayList<>(batch.size());
+        for (Item item : batch) {
+            ids.add(item.id);
+        }
+        return ids;
+    }
+
+    private void completeBatch(List<Item> batch, List<BanRecord> records) {
+        for (int i = 0; i < batch.size(); i++) {
+            if (i < records.size()) {
+                succeed(batch.get(i), records.get(i));
+            } else {
+                fail(batch.get(i), "批量接口没有返回该记录");
+            }
+        }
+    }
+
+    private void succeed(Item item, BanRecord record) {
+        succeeded.incrementAndGet();
+        if (record != null && record.hasId()) {
+            applied.add(record);
+        }
+        writeResult(item, "ok", record != null && record.hasId() ? "id=" + record.getId() : "");
+        onProcessed();
+    }
+
+    private void fail(Item item, String message) {
+        failed.incrementAndGet();
+        writeResult(item, "failed", message != null ? message : "未知错误");
+        if (failed.get() <= 5) {
+            sender.sendMessage(Component.text("第 " + item.line + " 行 (" + item.key + ") 失败: " + message)
+                    .color(NamedTextColor.RED));
+        }
+        onProcessed();
+    }
+
+    private void onProcessed() {
+        int done = processed.incrementAndGet();
+        long now = System.currentTimeMillis();
+        if (now - lastProgressAt >= PROGRESS_INTERVAL_MILLIS && done < total) {
+            lastProgressAt = now;
+            sender.sendMessage(Component.text(String.format("批量%s进度: %d/%d，成功 %d，失败 %d",
+                    mode.displayName, done, total, succeeded.get(), failed.get())).color(NamedTextColor.GRAY));
+        }
+    }
+
+    /**
+     * 把API返回的记录合并到本地索引，登录检查无需等待下一次同步；导入的封禁同时踢出在线的玩家
+     */
+    private void applyToLocalIndex() {
+        if (applied.isEmpty()) {
+            return;
+        }
+        List<BanRecord> records = new ArrayList<>(applied);
+        if (plugin.getBanCache().isLoaded()) {
+            plugin.getBanCache().merge(records);
+        }
+        if (plugin.getLoginListener() != null) {
+            plugin.getLoginListener().getDecisionCache().clear();
+            if (mode == Mode.IMPORT) {
+                for (BanRecord record : records) {
+                    plugin.getLoginListener().kickIfBanned(record);
+                }
+            }
+        }
+        // 批量变更逐条转发代价较高，让其他子服各自同步一次
+        if (plugin.getBungeeMessenger() != null) {
+            plugin.getBungeeMessenger().broadcastInvalidate(null, true);
+        }
+    }
+
+    private Path createResultFile() throws IOException {
+        Path folder = new File(plugin.getDataFolder(), "bulk-results").toPath();
+        Files.createDirectories(folder);
+        return folder.resolve(mode.fileName + "-" + LocalDateTime.now().format(FILE_TIME) + ".csv");
+    }
+
+    private synchronized void writeResult(Item item, String result, String detail) {
+        if (results == null) {
+            return;
+        }
+        try {
+            results.write(item.line + "," + csv(item.key) + "," + result + "," + csv(detail));
+            results.newLine();
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入批量操作结果失败: " + e.getMessage());
+        }
+    }
+
+    private synchronized void closeResults() {
+        if (results == null) {
+            return;
+        }
+        try {
+            results.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入批量操作结果失败: " + e.getMessage());
+        }
+        results = null;
+    }
+
+    private static String csv(String value) {
+        if (value == null) {
+            return "";
+        }
+        if (value.indexOf(',') < 0 && value.indexOf('"') < 0 && value.indexOf('\n') < 0) {
+            return value;
+        }
+        return '"' + value.replace("\"", "\"\"") + '"';
+    }
+
+    private static boolean parseBoolean(String value, boolean defaultValue) {
+        if (value == null) {
+            return defaultValue;
+        }
+        switch (value.trim().toLowerCase(Locale.ROOT)) {
+            case "true":
+            case "yes":
+            case "1":
+            case "是":
+                return true;
+            case "false":
+            case "no":
+            case "0":
+            case "否":
+                return false;
+            default:
+                return defaultValue;
+        }
+    }
+
+    /**
+     * 解析时长：纯数字为毫秒，也支持 30m、12h、7d、2w
+     * @return 毫秒数，无法解析时返回null
+     */
+    static Long parseDuration(String value) {
+        String text = value.trim().toLowerCase(Locale.ROOT);
+        if (text.isEmpty()) {
+            return null;
+        }
+        long unit = 1;
+        char last = text.charAt(text.length() - 1);
+        if (Character.isLetter(last)) {
+            switch (last) {
+                case 's':
+                    unit = 1000L;
+                    break;
+                case 'm':
+                    unit = 60_000L;
+                    break;
+                case 'h':
+                    unit = 3_600_000L;
+                    break;
+                case 'd':
+                    unit = 86_400_000L;
+                    break;
+                case 'w':
+                    unit = 604_800_000L;
+                    break;
+                default:
+                    return null;
+            }
+            text = text.substring(0, text.length() - 1);
+        }
+        try {
+            long amount = Long.parseLong(text);
+            return amount > 0 ? amount * unit : null;
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * 一条待处理的记录
+     */
+    private static final class Item {
+        final int line;
+        final String key;
+        final NewBan ban;
+        final int id;
+        final String error;
+
+        Item(int line, String key, NewBan ban, int id, String error) {
+            this.line = line;
+            this.key = key;
+            this.ban = ban;
+            this.id = id;
+            this.error = error;
+        }
+    }
+}
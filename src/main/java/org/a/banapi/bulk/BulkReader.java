@@ -0,0 +1,183 @@
+package org.a.banapi.bulk;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * 逐行读取批量操作的输入文件，不会一次性载入整个文件
+ * <p>
+ * 扩展名为 .jsonl / .ndjson 时每行是一个JSON对象，否则按CSV处理。CSV的第一行如果包含已知列名则作为表头，
+ * 否则按默认列顺序读取。空行和以#开头的行会被跳过。
+ */
+final class BulkReader implements Closeable {
+    private final BufferedReader reader;
+    private final boolean jsonl;
+    private final String[] defaultColumns;
+    private String[] columns;
+    private int lineNumber;
+
+    /**
+     * @param file 输入文件
+     * @param defaultColumns 没有表头时CSV各列的名称
+     */
+    BulkReader(Path file, String[] defaultColumns) throws IOException {
+        this.reader = Files.newBufferedReader(file, StandardCharsets.UTF_8);
+        this.jsonl = isJsonLines(file);
+        this.defaultColumns = defaultColumns;
+    }
+
+    private static boolean isJsonLines(Path file) {
+        String name = file.getFileName().toString().toLowerCase(Locale.ROOT);
+        return name.endsWith(".jsonl") || name.endsWith(".ndjson");
+    }
+
+    /**
+     * 读取下一条记录
+     * @return 下一条记录，文件结束时返回null；格式错误的行返回带错误信息的记录
+     * @throws IOException 如果读取文件失败
+     */
+    Row next() throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            lineNumber++;
+            // 去掉UTF-8 BOM
+            if (lineNumber == 1 && !line.isEmpty() && line.charAt(0) == '\uFEFF') {
+                line = line.substring(1);
+            }
+            String trimmed = line.trim();
+            if (trimmed.isEmpty() || trimmed.startsWith("#")) {
+                continue;
+            }
+            if (jsonl) {
+                return parseJson(trimmed);
+            }
+
+            List<String> cells = parseCsv(line);
+            if (columns == null) {
+                if (isHeader(cells)) {
+                    columns = new String[cells.size()];
+                    for (int i = 0; i < cells.size(); i++) {
+                        columns[i] = cells.get(i).trim().toLowerCase(Locale.ROOT);
+                    }
+                    continue;
+                }
+                columns = defaultColumns;
+            }
+            Map<String, String> fields = new HashMap<>();
+            for (int i = 0; i < cells.size() && i < columns.length; i++) {
+                String value = cells.get(i).trim();
+                if (!value.isEmpty()) {
+                    fields.put(columns[i], value);
+                }
+            }
+            return new Row(lineNumber, fields, null);
+        }
+        return null;
+    }
+
+    private Row parseJson(String line) {
+        try {
+            JsonObject object = JsonParser.parseString(line).getAsJsonObject();
+            Map<String, String> fields = new HashMap<>();
+            for (Map.Entry<String, JsonElement> entry : object.entrySet()) {
+                JsonElement value = entry.getValue();
+                if (!value.isJsonNull()) {
+                    fields.put(entry.getKey().toLowerCase(Locale.ROOT),
+                            value.isJsonPrimitive() ? value.getAsString() : value.toString());
+                }
+            }
+            return new Row(lineNumber, fields, null);
+        } catch (JsonParseException | IllegalStateException e) {
+            return new Row(lineNumber, null, "JSON格式错误");
+        }
+    }
+
+    private boolean isHeader(List<String> cells) {
+        List<String> known = Arrays.asList(defaultColumns);
+        for (String cell : cells) {
+            if (known.contains(cell.trim().toLowerCase(Locale.ROOT))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 解析一行CSV，支持双引号括起的值和 "" 转义
+     */
+    static List<String> parseCsv(String line) {
+        List<String> cells = new ArrayList<>();
+        StringBuilder cell = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    cell.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    cell.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                cells.add(cell.toString());
+                cell.setLength(0);
+            } else {
+                cell.append(c);
+            }
+        }
+        cells.add(cell.toString());
+        return cells;
+    }
+
+    /**
+     * 统计文件中的记录行数（不含空行、注释和可能的表头），用于显示进度
+     */
+    static int countRows(Path file, String[] defaultColumns) throws IOException {
+        int count = 0;
+        try (BulkReader reader = new BulkReader(file, defaultColumns)) {
+            while (reader.next() != null) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+
+    /**
+     * 输入文件中的一条记录
+     */
+    static final class Row {
+        final int line;
+        final Map<String, String> fields;
+        final String error;
+
+        Row(int line, Map<String, String> fields, String error) {
+            this.line = line;
+            this.fields = fields;
+            this.error = error;
+        }
+    }
+}
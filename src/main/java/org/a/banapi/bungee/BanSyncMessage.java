@@ -0,0 +1,135 @@
+package org.a.banapi.bungee;
+
+import com.google.common.io.ByteArrayDataInput;
+import com.google.common.io.ByteArrayDataOutput;
+import com.google.common.io.ByteStreams;
+import org.a.banapi.model.BanRecord;
+
+/**
+ * 通过BungeeCord在各子服之间同步的封禁事件
+ * <p>
+ * 二进制格式：byte 版本、byte 类型，之后按类型：
+ * <ul>
+ *   <li>封禁/解封：int id、byte 标志位、6个可空字符串（nickname、reason、admin、startTime、endTime、updatedAt）</li>
+ *   <li>失效：可空字符串 玩家名（null表示全部）、boolean 是否需要重新同步</li>
+ * </ul>
+ * 可空字符串以一个boolean标记是否存在，之后为writeUTF编码。
+ */
+final class BanSyncMessage {
+    private static final int VERSION = 1;
+
+    private static final int FLAG_HAS_ID = 1;
+    private static final int FLAG_HAS_STATUS = 1 << 1;
+    private static final int FLAG_PERMANENT = 1 << 2;
+    private static final int FLAG_RELEASED = 1 << 3;
+
+    /**
+     * 事件类型
+     */
+    enum Type {
+        BAN,
+        UNBAN,
+        INVALIDATE
+    }
+
+    final Type type;
+    final BanRecord ban;
+    final String playerName;
+    final boolean resync;
+
+    private BanSyncMessage(Type type, BanRecord ban, String playerName, boolean resync) {
+        this.type = type;
+        this.ban = ban;
+        this.playerName = playerName;
+        this.resync = resync;
+    }
+
+    /**
+     * 封禁记录新增或变化，按记录的isReleased区分封禁和解封
+     */
+    static BanSyncMessage of(BanRecord ban) {
+        return new BanSyncMessage(ban.isReleased() ? Type.UNBAN : Type.BAN, ban, null, false);
+    }
+
+    /**
+     * 使登录结果缓存失效
+     * @param playerName 玩家名，为null时清空全部
+     * @param resync 接收方是否需要立即同步一次封禁列表（例如批量操作之后）
+     */
+    static BanSyncMessage invalidate(String playerName, boolean resync) {
+        return new BanSyncMessage(Type.INVALIDATE, null, playerName, resync);
+    }
+
+    byte[] encode() {
+        ByteArrayDataOutput out = ByteStreams.newDataOutput();
+        out.writeByte(VERSION);
+        out.writeByte(type.ordinal());
+        if (type == Type.INVALIDATE) {
+            writeNullable(out, playerName);
+            out.writeBoolean(resync);
+            return out.toByteArray();
+        }
+
+        int flags = 0;
+        if (ban.hasId()) {
+            flags |= FLAG_HAS_ID;
+        }
+        if (ban.hasStatus()) {
+            flags |= FLAG_HAS_STATUS;
+        }
+        if (ban.isPermanent()) {
+            flags |= FLAG_PERMANENT;
+        }
+        if (ban.isReleased()) {
+            flags |= FLAG_RELEASED;
+        }
+        out.writeInt(ban.getId());
+        out.writeByte(flags);
+        writeNullable(out, ban.getNickname());
+        writeNullable(out, ban.getReason());
+        writeNullable(out, ban.getAdmin());
+        writeNullable(out, ban.getStartTime());
+        writeNullable(out, ban.getEndTime());
+        writeNullable(out, ban.getUpdatedAt());
+        return out.toByteArray();
+    }
+
+    /**
+     * @return 解析出的事件；版本或类型未知时返回null
+     * @throws IllegalStateException 如果数据不完整
+     */
+    static BanSyncMessage decode(byte[] data) {
+        ByteArrayDataInput in = ByteStreams.newDataInput(data);
+        if (in.readByte() != VERSION) {
+            return null;
+        }
+        int type = in.readByte();
+        if (type == Type.INVALIDATE.ordinal()) {
+            return invalidate(readNullable(in), in.readBoolean());
+        }
+        if (type != Type.BAN.ordinal() && type != Type.UNBAN.ordinal()) {
+            return null;
+        }
+
+        int id = in.readInt();
+        int flags = in.readByte();
+        boolean hasStatus = (flags & FLAG_HAS_STATUS) != 0;
+        BanRecord ban = new BanRecord((flags & FLAG_HAS_ID) != 0 ? id : null,
+                readNullable(in), readNullable(in), readNullable(in),
+                hasStatus ? (flags & FLAG_PERMANENT) != 0 : null,
+                hasStatus ? (flags & FLAG_RELEASED) != 0 : null,
+                readNullable(in), readNullable(in), readNullable(in));
+        return new BanSyncMessage(Type.values()[type], ban, null, false);
+    }
+
+    private static void writeNullable(ByteArrayDataOutput out, String value) {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static String readNullable(ByteArrayDataInput in) {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+}
@@ -1,23 +1,43 @@
 package org.a.banapi.bungee;
 
+import com.google.common.io.ByteArrayDataInput;
 import com.google.common.io.ByteArrayDataOutput;
 import com.google.common.io.ByteStreams;
 import org.a.banapi.Banapi;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.tasks.BanUpdateTask;
 import org.bukkit.entity.Player;
+import org.bukkit.plugin.messaging.PluginMessageListener;
+
+import java.util.Collections;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * 处理与BungeeCord的通信
+ * <p>
+ * 除了踢出玩家，还通过 Forward 把本服的封禁变更发送到所有子服（BanAPI子通道），
+ * 接收方直接更新本地索引，不需要等待下一次同步，也不会增加BanAPIService的请求量。
  */
-public class BungeeMessenger {
+public class BungeeMessenger implements PluginMessageListener {
     private final Banapi plugin;
     private final String channel;
+    private final String subchannel;
+    private final boolean propagate;
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong received = new AtomicLong();
 
     public BungeeMessenger(Banapi plugin, String channel) {
         this.plugin = plugin;
         this.channel = channel;
+        this.subchannel = plugin.getConfigManager().getBungeeSubchannel();
+        this.propagate = plugin.getConfigManager().isBungeePropagateEnabled();
 
         // 注册BungeeCord通道
-        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, "BungeeCord");
+        plugin.getServer().getMessenger().registerOutgoingPluginChannel(plugin, channel);
+        if (propagate) {
+            plugin.getServer().getMessenger().registerIncomingPluginChannel(plugin, channel, this);
+        }
     }
 
     /**
@@ -28,19 +48,136 @@ public class BungeeMessenger {
     public void kickPlayer(String playerName, String reason) {
         // 由于我们可能在玩家尝试登录时就需要踢出，此时可能没有Player对象
         // 所以我们需要找一个在线玩家来发送消息
-        if (plugin.getServer().getOnlinePlayers().isEmpty()) {
+        Player sender = anyPlayer();
+        if (sender == null) {
             plugin.getLogger().warning("无法通过BungeeCord踢出玩家 " + playerName + "：没有在线玩家可用于发送消息");
             return;
         }
 
-        Player sender = plugin.getServer().getOnlinePlayers().iterator().next();
-
         ByteArrayDataOutput out = ByteStreams.newDataOutput();
         out.writeUTF("KickPlayer");
         out.writeUTF(playerName);
         out.writeUTF(reason);
 
-        sender.sendPluginMessage(plugin, "BungeeCord", out.toByteArray());
+        sender.sendPluginMessage(plugin, channel, out.toByteArray());
         plugin.getLogger().info("已通过BungeeCord踢出玩家 " + playerName);
     }
+
+    /**
+     * 把封禁记录的变化（封禁或解封）同步到其他子服
+     * @param ban API确认后的封禁记录，没有正式ID的记录不会发送
+     */
+    public void broadcastBan(BanRecord ban) {
+        if (ban != null && ban.hasId() && ban.getId() > 0) {
+            forward(BanSyncMessage.of(ban));
+        }
+    }
+
+    /**
+     * 让其他子服的登录结果缓存失效
+     * @param playerName 玩家名，为null时清空全部
+     * @param resync 其他子服是否需要立即同步一次封禁列表
+     */
+    public void broadcastInvalidate(String playerName, boolean resync) {
+        forward(BanSyncMessage.invalidate(playerName, resync));
+    }
+
+    /**
+     * 通过 Forward ALL 发送到其他所有子服（BungeeCord不会发回本服）
+     */
+    private void forward(BanSyncMessage message) {
+        if (!propagate) {
+            return;
+        }
+        byte[] payload = message.encode();
+        // 插件消息需要借助在线玩家的连接发送，统一在主线程中执行
+        plugin.getServer().getScheduler().runTask(plugin, () -> {
+            Player sender = anyPlayer();
+            if (sender == null) {
+                plugin.getLogger().fine("没有在线玩家，无法向其他子服同步封禁变更");
+                return;
+            }
+
+            ByteArrayDataOutput out = ByteStreams.newDataOutput();
+            out.writeUTF("Forward");
+            out.writeUTF("ALL");
+            out.writeUTF(subchannel);
+            out.writeShort(payload.length);
+            out.write(payload);
+            sender.sendPluginMessage(plugin, channel, out.toByteArray());
+            sent.incrementAndGet();
+        });
+    }
+
+    @Override
+    public void onPluginMessageReceived(String channel, Player player, byte[] message) {
+        if (!this.channel.equals(channel)) {
+            return;
+        }
+        BanSyncMessage event;
+        try {
+            ByteArrayDataInput in = ByteStreams.newDataInput(message);
+            if (!subchannel.equals(in.readUTF())) {
+                return;
+            }
+            byte[] payload = new byte[in.readShort() & 0xFFFF];
+            in.readFully(payload);
+            event = BanSyncMessage.decode(payload);
+        } catch (IllegalStateException e) {
+            plugin.getLogger().warning("收到格式错误的封禁同步消息");
+            return;
+        }
+        if (event == null) {
+            plugin.getLogger().fine("忽略无法识别的封禁同步消息（可能来自其他版本的插件）");
+            return;
+        }
+
+        received.incrementAndGet();
+        // 合并索引需要重建查找表，不在主线程执行
+        try {
+            plugin.getIoExecutor().execute(() -> apply(event));
+        } catch (RejectedExecutionException e) {
+            plugin.getLogger().warning("I/O线程池已满，丢弃一条封禁同步消息，变更将在下次同步时获取");
+        }
+    }
+
+    private void apply(BanSyncMessage event) {
+        if (event.type == BanSyncMessage.Type.INVALIDATE) {
+            if (plugin.getLoginListener() != null) {
+                plugin.getLoginListener().getDecisionCache().clear();
+            }
+            BanUpdateTask updateTask = plugin.getBanUpdateTask();
+            if (event.resync && updateTask != null) {
+                updateTask.syncNow(false);
+            }
+            return;
+        }
+
+        BanRecord ban = event.ban;
+        if (!ban.hasId() || ban.getId() <= 0 || !plugin.getBanCache().isLoaded()) {
+            return;
+        }
+        // 索引版本变化后，登录结果缓存中的旧结果自动失效
+        plugin.getBanCache().merge(Collections.singletonList(ban));
+        if (event.type == BanSyncMessage.Type.BAN && plugin.getLoginListener() != null) {
+            plugin.getLoginListener().kickIfBanned(ban);
+        }
+    }
+
+    private Player anyPlayer() {
+        if (plugin.getServer().getOnlinePlayers().isEmpty()) {
+            return null;
+        }
+        return plugin.getServer().getOnlinePlayers().iterator().next();
+    }
+
+    /** @return 发送到其他子服的封禁同步消息数 */
+    public long getSent() {
+        return sent.get();
+    }
+
+    /** @return 从其他子服收到的封禁同步消息数 */
+    public long getReceived() {
+        return received.get();
+    }
 }
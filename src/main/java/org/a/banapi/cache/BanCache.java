@@ -0,0 +1,167 @@
+package org.a.banapi.cache;
+
+import org.a.banapi.model.BanRecord;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * 持有当前生效的封禁索引，同步完成后原子替换
+ */
+public class BanCache {
+    private final AtomicReference<BanIndex> current = new AtomicReference<>(BanIndex.EMPTY);
+    private final AtomicLong version = new AtomicLong();
+    // 写前日志中尚未提交到API的本地变更
+    private volatile List<BanRecord> overlay = Collections.emptyList();
+    private volatile ChangeListener listener;
+
+    /**
+     * 索引变化的监听器，在修改索引的线程上、持有本对象锁时回调，实现应尽快返回
+     */
+    public interface ChangeListener {
+        /**
+         * 索引被全量替换
+         */
+        void onReplaced();
+
+        /**
+         * 指定ID的记录被新增、修改或删除
+         * @param ids 变化的封禁ID
+         */
+        void onChanged(Collection<Integer> ids);
+    }
+
+    /**
+     * 设置索引变化的监听器
+     * @param listener 监听器，为null时取消
+     */
+    public void setChangeListener(ChangeListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 获取当前封禁索引快照
+     * @return 当前索引，未同步前为空索引
+     */
+    public BanIndex current() {
+        return current.get();
+    }
+
+    /**
+     * 使用新的封禁列表重建索引并原子替换
+     * @param bans 封禁列表数据
+     * @return 新的封禁索引
+     */
+    public synchronized BanIndex replace(List<BanRecord> bans) {
+        BanIndex index = BanIndex.build(bans).merge(overlay);
+        if (install(index) && listener != null) {
+            listener.onReplaced();
+        }
+        return index;
+    }
+
+    /**
+     * 将增量变更合并到当前索引并原子替换
+     * @param changes 变更的封禁记录
+     * @return 合并后的封禁索引
+     */
+    public synchronized BanIndex merge(List<BanRecord> changes) {
+        List<BanRecord> all = withOverlay(changes);
+        BanIndex index = current.get().merge(all);
+        if (install(index)) {
+            notifyChanged(all, Collections.emptyList());
+        }
+        return index;
+    }
+
+    /**
+     * 更新尚未提交到API的本地变更，并与已确认的结果一起应用到当前索引
+     * <p>
+     * 本地变更在之后的每次同步中都会覆盖API返回的同ID记录，直到写前日志确认或放弃它们。
+     * 尚未加载过索引时只记录本地变更，在首次同步时应用，避免空索引被误认为已加载。
+     * @param overlay 当前全部未确认的本地变更
+     * @param changes 已确认或需要恢复的记录
+     * @param removedIds 需要删除的记录ID
+     * @return 新的封禁索引
+     */
+    public synchronized BanIndex applyLocal(List<BanRecord> overlay, List<BanRecord> changes, Collection<Integer> removedIds) {
+        this.overlay = overlay;
+        if (!isLoaded()) {
+            return current.get();
+        }
+        List<BanRecord> all = withOverlay(changes);
+        BanIndex index = current.get().merge(all, removedIds);
+        if (install(index)) {
+            notifyChanged(all, removedIds);
+        }
+        return index;
+    }
+
+    private List<BanRecord> withOverlay(List<BanRecord> changes) {
+        if (overlay.isEmpty()) {
+            return changes;
+        }
+        List<BanRecord> all = new ArrayList<>(changes.size() + overlay.size());
+        all.addAll(changes);
+        all.addAll(overlay);
+        return all;
+    }
+
+    /**
+     * 将已到期的临时封禁标记为已解除并原子替换
+     * @param ids 到期的封禁ID
+     * @param nowMillis 当前时间
+     * @return 新的封禁索引
+     */
+    public synchronized BanIndex expire(Collection<Integer> ids, long nowMillis) {
+        BanIndex index = current.get().expire(ids, nowMillis);
+        if (install(index) && listener != null) {
+            listener.onChanged(ids);
+        }
+        return index;
+    }
+
+    private void notifyChanged(List<BanRecord> changes, Collection<Integer> removedIds) {
+        ChangeListener target = listener;
+        if (target == null) {
+            return;
+        }
+        List<Integer> ids = new ArrayList<>(changes.size() + removedIds.size());
+        for (BanRecord ban : changes) {
+            if (ban.hasId()) {
+                ids.add(ban.getId());
+            }
+        }
+        ids.addAll(removedIds);
+        target.onChanged(ids);
+    }
+
+    /**
+     * @return 索引是否发生了变化
+     */
+    private boolean install(BanIndex index) {
+        if (current.getAndSet(index) != index) {
+            version.incrementAndGet();
+            return true;
+        }
+        return false;
+    }
+
+    /**
+     * @return 索引版本号，每次索引内容变化时递增，可用于使依赖索引的缓存失效
+     */
+    public long getVersion() {
+        return version.get();
+    }
+
+    /**
+     * @return 是否已至少完成过一次同步
+     */
+    public boolean isLoaded() {
+        return current.get() != BanIndex.EMPTY;
+    }
+}
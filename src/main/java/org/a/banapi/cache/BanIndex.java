@@ -0,0 +1,394 @@
+package org.a.banapi.cache;
+
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.search.BanSearchIndex;
+import org.a.banapi.search.SearchIndex;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 不可变的本地封禁索引，按小写玩家名和封禁ID建立哈希索引
+ * <p>
+ * 全量构建的索引作为基础，增量合并只复制并修改一份很小的变更表（写时复制），查询时先查变更表再查基础索引。
+ * 变更累积到约 2√n 条后才压实为新的基础索引，均摊到每次合并的代价约为 O(√n)，不再每次重建整个索引。
+ */
+public final class BanIndex {
+    public static final BanIndex EMPTY = new BanIndex(
+            new Base(Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(), Collections.emptySet()), 0L);
+
+    private static final int MIN_COMPACT_THRESHOLD = 64;
+
+    private final Base base;
+    // 相对基础索引被替换或新增的记录、被删除的ID，以及受影响玩家名的当前记录（值为null表示已没有记录）
+    private final Map<Integer, BanRecord> changedById;
+    private final Set<Integer> removedIds;
+    private final Map<String, BanRecord> changedByName;
+    private final int size;
+    private final long builtAt;
+    // 合并后的完整列表在首次读取时生成
+    private volatile List<BanRecord> records;
+    // 搜索索引在首次搜索或同步完成后预热时构建
+    private volatile SearchIndex<BanRecord> searchIndex;
+
+    private BanIndex(Base base, long builtAt) {
+        this(base, Collections.emptyMap(), Collections.emptySet(), Collections.emptyMap(), base.records.size(), builtAt);
+        this.records = base.records;
+    }
+
+    private BanIndex(Base base,
+                     Map<Integer, BanRecord> changedById,
+                     Set<Integer> removedIds,
+                     Map<String, BanRecord> changedByName,
+                     int size,
+                     long builtAt) {
+        this.base = base;
+        this.changedById = changedById;
+        this.removedIds = removedIds;
+        this.changedByName = changedByName;
+        this.size = size;
+        this.builtAt = builtAt;
+    }
+
+    /**
+     * 全量构建的基础索引，由其后所有增量合并出的索引共享
+     */
+    private static final class Base {
+        final List<BanRecord> records;
+        final Map<String, BanRecord> byName;
+        final Map<Integer, BanRecord> byId;
+        // 有多条记录的玩家名，以及这些玩家名的全部记录（首次需要时构建）
+        final Set<String> sharedNames;
+        private volatile Map<String, List<BanRecord>> sharedRecords;
+
+        Base(List<BanRecord> records, Map<String, BanRecord> byName, Map<Integer, BanRecord> byId, Set<String> sharedNames) {
+            this.records = records;
+            this.byName = byName;
+            this.byId = byId;
+            this.sharedNames = sharedNames;
+        }
+
+        /**
+         * @return 基础索引中该玩家名的全部记录，按列表顺序
+         */
+        List<BanRecord> withName(String key) {
+            if (!sharedNames.contains(key)) {
+                BanRecord ban = byName.get(key);
+                return ban != null ? Collections.singletonList(ban) : Collections.emptyList();
+            }
+            Map<String, List<BanRecord>> shared = sharedRecords;
+            if (shared == null) {
+                synchronized (this) {
+                    shared = sharedRecords;
+                    if (shared == null) {
+                        shared = new HashMap<>(sharedNames.size() * 2);
+                        for (BanRecord ban : records) {
+                            if (ban.getNicknameKey() != null && sharedNames.contains(ban.getNicknameKey())) {
+                                shared.computeIfAbsent(ban.getNicknameKey(), k -> new ArrayList<>(2)).add(ban);
+                            }
+                        }
+                        sharedRecords = shared;
+                    }
+                }
+            }
+            return shared.get(key);
+        }
+    }
+
+    /**
+     * 根据API返回的封禁列表构建索引
+     * @param bans 封禁列表数据
+     * @return 新的封禁索引
+     */
+    public static BanIndex build(List<BanRecord> bans) {
+        if (bans == null || bans.isEmpty()) {
+            return new BanIndex(new Base(Collections.emptyList(), Collections.emptyMap(), Collections.emptyMap(),
+                    Collections.emptySet()), System.currentTimeMillis());
+        }
+
+        Map<String, BanRecord> byName = new HashMap<>(bans.size() * 2);
+        Map<Integer, BanRecord> byId = new HashMap<>(bans.size() * 2);
+        Set<String> sharedNames = new HashSet<>();
+
+        for (BanRecord ban : bans) {
+            if (ban.hasId()) {
+                byId.put(ban.getId(), ban);
+            }
+
+            String key = ban.getNicknameKey();
+            if (key != null) {
+                // 同一玩家存在多条记录时，优先保留生效中的封禁
+                BanRecord existing = byName.putIfAbsent(key, ban);
+                if (existing != null) {
+                    sharedNames.add(key);
+                    byName.put(key, preferActive(existing, ban));
+                }
+            }
+        }
+
+        return new BanIndex(new Base(Collections.unmodifiableList(bans), byName, byId, sharedNames),
+                System.currentTimeMillis());
+    }
+
+    private static BanRecord preferActive(BanRecord existing, BanRecord candidate) {
+        if (existing == null) {
+            return candidate;
+        }
+        return existing.isReleased() && !candidate.isReleased() ? candidate : existing;
+    }
+
+    /**
+     * 将增量变更合并到当前索引，生成新的索引
+     * <p>
+     * 相同ID的记录以变更为准，其余记录保持不变。
+     * @param changes 变更的封禁记录
+     * @return 合并后的新索引；没有变更时返回当前索引
+     */
+    public BanIndex merge(List<BanRecord> changes) {
+        return merge(changes, Collections.emptyList());
+    }
+
+    /**
+     * 合并变更并删除指定ID的记录，生成新的索引
+     * <p>
+     * 只复制变更表，受影响的玩家名重新选出生效中的记录；变更表过大或变更中有没有ID的记录时整体重建。
+     * @param changes 变更的封禁记录
+     * @param removedIds 需要删除的封禁ID（例如已被正式ID取代的临时记录）
+     * @return 新索引；没有变更时返回当前索引
+     */
+    public BanIndex merge(List<BanRecord> changes, Collection<Integer> removedIds) {
+        if ((changes == null || changes.isEmpty()) && removedIds.isEmpty()) {
+            return this;
+        }
+        if (changes == null) {
+            changes = Collections.emptyList();
+        }
+
+        int pending = changedById.size() + this.removedIds.size() + changes.size() + removedIds.size();
+        int threshold = Math.max(MIN_COMPACT_THRESHOLD, 2 * (int) Math.sqrt(base.records.size()));
+        if (pending > threshold || !allHaveId(changes)) {
+            return rebuild(changes, removedIds);
+        }
+
+        Map<Integer, BanRecord> byId = new LinkedHashMap<>(changedById);
+        Set<Integer> removed = new HashSet<>(this.removedIds);
+        Set<String> names = new HashSet<>();
+        int newSize = size;
+        for (int id : removedIds) {
+            BanRecord old = find(byId, removed, id);
+            if (old == null) {
+                continue;
+            }
+            newSize--;
+            addName(names, old);
+            byId.remove(id);
+            if (base.byId.containsKey(id)) {
+                removed.add(id);
+            }
+        }
+        for (BanRecord ban : changes) {
+            BanRecord old = find(byId, removed, ban.getId());
+            if (old == null) {
+                newSize++;
+            } else {
+                addName(names, old);
+            }
+            byId.put(ban.getId(), ban);
+            removed.remove(ban.getId());
+            addName(names, ban);
+        }
+
+        Map<String, BanRecord> byName = new HashMap<>(changedByName);
+        for (String key : names) {
+            byName.put(key, activeRecord(key, byId, removed));
+        }
+        return new BanIndex(base, byId, removed, byName, newSize, System.currentTimeMillis());
+    }
+
+    /**
+     * 在基础索引和变更表中为玩家名选出记录，规则与全量构建相同：按列表顺序，优先生效中的封禁
+     */
+    private BanRecord activeRecord(String key, Map<Integer, BanRecord> byId, Set<Integer> removed) {
+        BanRecord result = null;
+        for (BanRecord ban : base.withName(key)) {
+            BanRecord current = ban;
+            if (ban.hasId()) {
+                if (removed.contains(ban.getId())) {
+                    continue;
+                }
+                current = byId.getOrDefault(ban.getId(), ban);
+            }
+            if (key.equals(current.getNicknameKey())) {
+                result = preferActive(result, current);
+            }
+        }
+        // 基础索引中没有、或在基础索引中属于其他玩家名的变更记录
+        for (BanRecord ban : byId.values()) {
+            if (!key.equals(ban.getNicknameKey())) {
+                continue;
+            }
+            BanRecord original = base.byId.get(ban.getId());
+            if (original == null || !key.equals(original.getNicknameKey())) {
+                result = preferActive(result, ban);
+            }
+        }
+        return result;
+    }
+
+    private BanRecord find(Map<Integer, BanRecord> byId, Set<Integer> removed, int id) {
+        BanRecord changed = byId.get(id);
+        if (changed != null) {
+            return changed;
+        }
+        return removed.contains(id) ? null : base.byId.get(id);
+    }
+
+    private static void addName(Set<String> names, BanRecord ban) {
+        if (ban.getNicknameKey() != null) {
+            names.add(ban.getNicknameKey());
+        }
+    }
+
+    private static boolean allHaveId(List<BanRecord> changes) {
+        for (BanRecord ban : changes) {
+            if (!ban.hasId()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 把变更表压实，连同本次变更重新全量构建
+     */
+    private BanIndex rebuild(List<BanRecord> changes, Collection<Integer> removedIds) {
+        List<BanRecord> current = getRecords();
+        Map<Integer, BanRecord> merged = new LinkedHashMap<>((current.size() + changes.size()) * 2);
+        List<BanRecord> withoutId = new ArrayList<>();
+        collectById(current, merged, withoutId);
+        merged.keySet().removeAll(removedIds);
+        collectById(changes, merged, withoutId);
+
+        List<BanRecord> all = new ArrayList<>(withoutId.size() + merged.size());
+        all.addAll(withoutId);
+        all.addAll(merged.values());
+        return build(all);
+    }
+
+    /**
+     * 将已到期的临时封禁标记为已解除，生成新的索引
+     * @param ids 到期的封禁ID
+     * @param nowMillis 当前时间，用于再次确认记录确实已到期
+     * @return 新索引；没有需要处理的记录时返回当前索引
+     */
+    public BanIndex expire(Collection<Integer> ids, long nowMillis) {
+        List<BanRecord> changes = new ArrayList<>(ids.size());
+        for (int id : ids) {
+            BanRecord ban = findById(id);
+            if (ban != null && ban.hasStatus() && !ban.isReleased() && ban.isExpiredAt(nowMillis)) {
+                changes.add(ban.asReleased());
+            }
+        }
+        return merge(changes);
+    }
+
+    private static void collectById(List<BanRecord> source,
+                                    Map<Integer, BanRecord> byId,
+                                    List<BanRecord> withoutId) {
+        for (BanRecord ban : source) {
+            if (ban.hasId()) {
+                byId.put(ban.getId(), ban);
+            } else {
+                withoutId.add(ban);
+            }
+        }
+    }
+
+    /**
+     * 按玩家名查找封禁记录（忽略大小写）
+     * @param playerName 玩家名称
+     * @return 封禁记录，不存在则返回null
+     */
+    public BanRecord findByName(String playerName) {
+        String key = playerName.toLowerCase(Locale.ROOT);
+        if (!changedByName.isEmpty() && changedByName.containsKey(key)) {
+            return changedByName.get(key);
+        }
+        return base.byName.get(key);
+    }
+
+    /**
+     * 按封禁ID查找封禁记录
+     * @param id 封禁ID
+     * @return 封禁记录，不存在则返回null
+     */
+    public BanRecord findById(int id) {
+        return find(changedById, removedIds, id);
+    }
+
+    /**
+     * 获取按管理员、原因、状态和时间搜索的索引，首次调用时构建
+     * @return 搜索索引
+     */
+    public SearchIndex<BanRecord> searchIndex() {
+        SearchIndex<BanRecord> index = searchIndex;
+        if (index == null) {
+            synchronized (this) {
+                index = searchIndex;
+                if (index == null) {
+                    index = BanSearchIndex.forBans(getRecords());
+                    searchIndex = index;
+                }
+            }
+        }
+        return index;
+    }
+
+    /**
+     * @return 全部记录，顺序与基础索引相同，之后新增的记录排在末尾；有增量变更时首次调用会生成合并后的列表
+     */
+    public List<BanRecord> getRecords() {
+        List<BanRecord> result = records;
+        if (result == null) {
+            result = mergedRecords();
+            records = result;
+        }
+        return result;
+    }
+
+    private List<BanRecord> mergedRecords() {
+        List<BanRecord> all = new ArrayList<>(size);
+        for (BanRecord ban : base.records) {
+            if (!ban.hasId()) {
+                all.add(ban);
+            } else if (!removedIds.contains(ban.getId())) {
+                all.add(changedById.getOrDefault(ban.getId(), ban));
+            }
+        }
+        for (BanRecord ban : changedById.values()) {
+            if (!base.byId.containsKey(ban.getId())) {
+                all.add(ban);
+            }
+        }
+        return Collections.unmodifiableList(all);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    /**
+     * @return 索引构建时间戳，0表示尚未完成过同步
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+}
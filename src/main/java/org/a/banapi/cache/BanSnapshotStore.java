@@ -0,0 +1,216 @@
+package org.a.banapi.cache;
+
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.StringPool;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+
+/**
+ * 将封禁列表以紧凑的二进制格式保存到插件数据目录，用于快速启动和API不可用时继续执行封禁
+ * <p>
+ * 文件格式（大端序）：
+ * <pre>
+ * int   magic       'BANS'
+ * int   version
+ * int   recordCount
+ * long  savedAt
+ * long  crc32       payload的CRC32校验值
+ * int   payloadLength
+ * byte[] payload    recordCount条记录
+ * </pre>
+ * 每条记录为：int id、byte flags、6个字符串（nickname、reason、admin、startTime、endTime、updatedAt），
+ * 字符串以int长度前缀加UTF-8字节表示，长度-1表示null。
+ */
+public class BanSnapshotStore {
+    private static final int MAGIC = 0x42414E53;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 4 + 8 + 8 + 4;
+
+    private static final int FLAG_HAS_ID = 1;
+    private static final int FLAG_HAS_PERMANENT = 1 << 1;
+    private static final int FLAG_PERMANENT = 1 << 2;
+    private static final int FLAG_HAS_RELEASED = 1 << 3;
+    private static final int FLAG_RELEASED = 1 << 4;
+
+    private final Path file;
+    private final Path tempFile;
+
+    public BanSnapshotStore(File dataFolder) {
+        this.file = new File(dataFolder, "bans.snapshot").toPath();
+        this.tempFile = new File(dataFolder, "bans.snapshot.tmp").toPath();
+    }
+
+    /**
+     * 原子地写入快照：先写临时文件并刷盘，再重命名覆盖正式文件
+     * @param records 封禁记录
+     * @throws IOException 如果写入失败
+     */
+    public void save(List<BanRecord> records) throws IOException {
+        ByteArrayOutputStream payloadBytes = new ByteArrayOutputStream(records.size() * 96);
+        int count = 0;
+        try (DataOutputStream out = new DataOutputStream(payloadBytes)) {
+            for (BanRecord ban : records) {
+                // 临时ID（负数）的记录尚未提交到API，由写前日志负责恢复
+                if (ban.hasId() && ban.getId() < 0) {
+                    continue;
+                }
+                writeRecord(out, ban);
+                count++;
+            }
+        }
+        byte[] payload = payloadBytes.toByteArray();
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        header.putInt(MAGIC)
+                .putInt(VERSION)
+                .putInt(count)
+                .putLong(System.currentTimeMillis())
+                .putLong(crc.getValue())
+                .putInt(payload.length)
+                .flip();
+
+        try (FileChannel channel = FileChannel.open(tempFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer body = ByteBuffer.wrap(payload);
+            while (header.hasRemaining()) {
+                channel.write(header);
+            }
+            while (body.hasRemaining()) {
+                channel.write(body);
+            }
+            channel.force(true);
+        }
+
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    /**
+     * 通过内存映射读取快照
+     * @return 快照中的封禁记录；文件不存在时返回null
+     * @throws IOException 如果文件损坏、版本不兼容或读取失败
+     */
+    public List<BanRecord> load() throws IOException {
+        if (!Files.exists(file)) {
+            return null;
+        }
+
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new IOException("封禁快照文件过短: " + size + " 字节");
+            }
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+            if (buffer.getInt() != MAGIC) {
+                throw new IOException("封禁快照文件格式不正确");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new IOException("不支持的封禁快照版本: " + version);
+            }
+            int count = buffer.getInt();
+            buffer.getLong(); // savedAt
+            long expectedCrc = buffer.getLong();
+            int payloadLength = buffer.getInt();
+            if (payloadLength != size - HEADER_SIZE) {
+                throw new IOException("封禁快照长度不一致");
+            }
+
+            ByteBuffer payload = buffer.slice();
+            CRC32 crc = new CRC32();
+            crc.update(payload.duplicate());
+            if (crc.getValue() != expectedCrc) {
+                throw new IOException("封禁快照校验失败");
+            }
+
+            StringPool pool = new StringPool();
+            List<BanRecord> records = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                records.add(readRecord(payload, pool));
+            }
+            return records;
+        }
+    }
+
+    private void writeRecord(DataOutputStream out, BanRecord ban) throws IOException {
+        int flags = 0;
+        if (ban.hasId()) {
+            flags |= FLAG_HAS_ID;
+        }
+        if (ban.hasStatus()) {
+            flags |= FLAG_HAS_PERMANENT | FLAG_HAS_RELEASED;
+            if (ban.isPermanent()) {
+                flags |= FLAG_PERMANENT;
+            }
+            if (ban.isReleased()) {
+                flags |= FLAG_RELEASED;
+            }
+        }
+
+        out.writeInt(ban.getId());
+        out.writeByte(flags);
+        writeString(out, ban.getNickname());
+        writeString(out, ban.getReason());
+        writeString(out, ban.getAdmin());
+        writeString(out, ban.getStartTime());
+        writeString(out, ban.getEndTime());
+        writeString(out, ban.getUpdatedAt());
+    }
+
+    private void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private BanRecord readRecord(ByteBuffer buffer, StringPool pool) {
+        int id = buffer.getInt();
+        int flags = buffer.get();
+        Boolean permanent = (flags & FLAG_HAS_PERMANENT) != 0 ? (flags & FLAG_PERMANENT) != 0 : null;
+        Boolean released = (flags & FLAG_HAS_RELEASED) != 0 ? (flags & FLAG_RELEASED) != 0 : null;
+        String nickname = readString(buffer);
+        String reason = pool.intern(readString(buffer));
+        String admin = pool.intern(readString(buffer));
+        String startTime = readString(buffer);
+        String endTime = readString(buffer);
+        String updatedAt = readString(buffer);
+        return new BanRecord((flags & FLAG_HAS_ID) != 0 ? id : null, nickname, reason, admin,
+                permanent, released, startTime, endTime, updatedAt);
+    }
+
+    private String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package org.a.banapi.cache;
+
+import java.util.Arrays;
+import java.util.function.IntConsumer;
+
+/**
+ * 分层时间轮，用于跟踪大量临时封禁的到期时间
+ * <p>
+ * 共4层，每层256个槽位。第0层每个槽位跨度为1个tick，第n层为256^n个tick。插入时按距离到期的
+ * tick数选择层级，复杂度O(1)；时间推进到高层槽位的边界时，将该槽位中的条目下放到低层。
+ * 非线程安全，应由单个定时任务驱动。
+ */
+public final class ExpiryWheel {
+    private static final int WHEEL_BITS = 8;
+    private static final int WHEEL_SIZE = 1 << WHEEL_BITS;
+    private static final int WHEEL_MASK = WHEEL_SIZE - 1;
+    private static final int LEVELS = 4;
+    private static final long MAX_DELTA = 1L << (WHEEL_BITS * LEVELS);
+
+    private final long tickMillis;
+    private final Slot[][] wheels = new Slot[LEVELS][WHEEL_SIZE];
+    private long currentTick;
+    private int size;
+
+    /**
+     * @param tickMillis 每个tick的毫秒数，即到期判定的精度
+     * @param nowMillis 当前时间
+     */
+    public ExpiryWheel(long tickMillis, long nowMillis) {
+        this.tickMillis = tickMillis;
+        this.currentTick = nowMillis / tickMillis;
+    }
+
+    /**
+     * 清空所有条目，并将时间轮对齐到当前时间
+     * @param nowMillis 当前时间
+     */
+    public void reset(long nowMillis) {
+        for (Slot[] wheel : wheels) {
+            for (Slot slot : wheel) {
+                if (slot != null) {
+                    slot.clear();
+                }
+            }
+        }
+        currentTick = nowMillis / tickMillis;
+        size = 0;
+    }
+
+    /**
+     * 登记一个到期时间
+     * @param id 条目ID（封禁ID）
+     * @param expiresAtMillis 到期时间
+     * @return 是否登记成功；到期时间超出时间轮范围时返回false
+     */
+    public boolean schedule(int id, long expiresAtMillis) {
+        // 向上取整，保证不会早于到期时间触发
+        long deadlineTick = Math.floorDiv(expiresAtMillis + tickMillis - 1, tickMillis);
+        if (deadlineTick <= currentTick) {
+            deadlineTick = currentTick + 1;
+        }
+        if (deadlineTick - currentTick >= MAX_DELTA) {
+            return false;
+        }
+
+        place(id, deadlineTick);
+        size++;
+        return true;
+    }
+
+    /**
+     * 推进时间轮到当前时间，依次回调所有已到期的条目
+     * @param nowMillis 当前时间
+     * @param expired 到期回调，参数为条目ID
+     */
+    public void advance(long nowMillis, IntConsumer expired) {
+        long targetTick = nowMillis / tickMillis;
+        while (currentTick < targetTick) {
+            currentTick++;
+            cascade();
+
+            Slot slot = wheels[0][(int) (currentTick & WHEEL_MASK)];
+            if (slot != null && slot.count > 0) {
+                for (int i = 0; i < slot.count; i++) {
+                    expired.accept(slot.ids[i]);
+                }
+                size -= slot.count;
+                slot.clear();
+            }
+        }
+    }
+
+    /**
+     * @return 尚未到期的条目数量
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * 到达高层槽位边界时，从最高的边界层开始逐层把条目下放，保证下放到低层当前槽位的条目也能被处理
+     */
+    private void cascade() {
+        int topLevel = 0;
+        for (int level = 1; level < LEVELS; level++) {
+            long lowerMask = (1L << (WHEEL_BITS * level)) - 1;
+            if ((currentTick & lowerMask) != 0) {
+                break;
+            }
+            topLevel = level;
+        }
+
+        for (int level = topLevel; level >= 1; level--) {
+            int index = (int) ((currentTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+            Slot slot = wheels[level][index];
+            if (slot == null || slot.count == 0) {
+                continue;
+            }
+
+            // 先取出再清空，重新放置时可能写回同一层的其他槽位
+            int count = slot.count;
+            int[] ids = Arrays.copyOf(slot.ids, count);
+            long[] deadlines = Arrays.copyOf(slot.deadlines, count);
+            slot.clear();
+            for (int i = 0; i < count; i++) {
+                place(ids[i], Math.max(deadlines[i], currentTick));
+            }
+        }
+    }
+
+    private void place(int id, long deadlineTick) {
+        long delta = deadlineTick - currentTick;
+        int level = 0;
+        while (level < LEVELS - 1 && delta >= (1L << (WHEEL_BITS * (level + 1)))) {
+            level++;
+        }
+
+        int index = (int) ((deadlineTick >>> (WHEEL_BITS * level)) & WHEEL_MASK);
+        Slot slot = wheels[level][index];
+        if (slot == null) {
+            slot = new Slot();
+            wheels[level][index] = slot;
+        }
+        slot.add(id, deadlineTick);
+    }
+
+    private static final class Slot {
+        private int[] ids = new int[4];
+        private long[] deadlines = new long[4];
+        private int count;
+
+        void add(int id, long deadlineTick) {
+            if (count == ids.length) {
+                ids = Arrays.copyOf(ids, count * 2);
+                deadlines = Arrays.copyOf(deadlines, count * 2);
+            }
+            ids[count] = id;
+            deadlines[count] = deadlineTick;
+            count++;
+        }
+
+        void clear() {
+            count = 0;
+        }
+    }
+}
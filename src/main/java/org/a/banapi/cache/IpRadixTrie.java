@@ -0,0 +1,257 @@
+package org.a.banapi.cache;
+
+import java.net.Inet6Address;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.Arrays;
+
+/**
+ * IP地址前缀树（二叉基数树），支持IPv4/IPv6单个地址与CIDR网段的最长前缀匹配
+ * <p>
+ * 节点使用并行数组存储，查询只按位遍历数组，不创建中间对象。IPv4映射的IPv6地址（::ffff:a.b.c.d）
+ * 会被规范化为IPv4地址，因此两种写法会命中同一条记录。
+ * 构建完成后只读，可安全地被多个线程并发查询。
+ *
+ * @param <V> 关联的值类型
+ */
+public final class IpRadixTrie<V> {
+    private static final int NO_NODE = -1;
+
+    private int[] zero;
+    private int[] one;
+    private Object[] values;
+    private int nodeCount;
+    private final int rootV4;
+    private final int rootV6;
+    private int size;
+
+    public IpRadixTrie() {
+        zero = new int[64];
+        one = new int[64];
+        values = new Object[64];
+        rootV4 = newNode();
+        rootV6 = newNode();
+    }
+
+    /**
+     * 插入一个地址或CIDR网段，如 1.2.3.4、10.0.0.0/8、2001:db8::/32
+     * @param cidr 地址或网段
+     * @param value 关联的值
+     * @return 是否成功解析并插入
+     */
+    public boolean insert(String cidr, V value) {
+        if (cidr == null) {
+            return false;
+        }
+
+        String address = cidr.trim();
+        int prefixLength = -1;
+        int slash = address.indexOf('/');
+        if (slash >= 0) {
+            try {
+                prefixLength = Integer.parseInt(address.substring(slash + 1).trim());
+            } catch (NumberFormatException e) {
+                return false;
+            }
+            address = address.substring(0, slash);
+        }
+
+        byte[] bytes = parseAddress(address);
+        if (bytes == null) {
+            return false;
+        }
+
+        // 以IPv6映射形式写出的IPv4网段，前缀长度需要减去96位
+        if (bytes.length == 4 && address.indexOf(':') >= 0 && prefixLength >= 96) {
+            prefixLength -= 96;
+        }
+
+        int maxBits = bytes.length * 8;
+        if (prefixLength < 0) {
+            prefixLength = maxBits;
+        }
+        if (prefixLength > maxBits) {
+            return false;
+        }
+
+        int node = bytes.length == 4 ? rootV4 : rootV6;
+        for (int bit = 0; bit < prefixLength; bit++) {
+            int b = bitAt(bytes, bit);
+            int next = b == 0 ? zero[node] : one[node];
+            if (next == NO_NODE) {
+                // newNode可能扩容数组，因此在创建之后再写入
+                next = newNode();
+                if (b == 0) {
+                    zero[node] = next;
+                } else {
+                    one[node] = next;
+                }
+            }
+            node = next;
+        }
+
+        if (values[node] == null) {
+            size++;
+        }
+        values[node] = value;
+        return true;
+    }
+
+    /**
+     * 查询地址命中的最长前缀记录
+     * <p>
+     * {@link InetAddress#getAddress()} 每次调用都会复制一份地址字节（4或16字节）；已经持有地址字节的调用方
+     * 可以直接使用 {@link #lookup(byte[])}。
+     * @param address 地址
+     * @return 关联的值，未命中返回null
+     */
+    public V lookup(InetAddress address) {
+        return address == null ? null : lookup(address.getAddress());
+    }
+
+    /**
+     * 查询字符串形式的地址（如 InetAddress.getHostAddress() 的输出）
+     * @param address 地址字符串
+     * @return 关联的值，未命中或地址无法解析时返回null
+     */
+    public V lookup(String address) {
+        return address == null ? null : lookup(parseAddress(address.trim()));
+    }
+
+    /**
+     * 按地址字节查询，不复制数组，查询期间调用方不应修改它
+     * @param bytes 4字节IPv4或16字节IPv6地址（IPv4映射地址按IPv4查询）
+     * @return 关联的值，未命中或长度不合法时返回null
+     */
+    @SuppressWarnings("unchecked")
+    public V lookup(byte[] bytes) {
+        if (bytes == null || (bytes.length != 4 && bytes.length != 16)) {
+            return null;
+        }
+
+        int length = bytes.length;
+        int offset = 0;
+        int root = rootV6;
+        if (length == 4) {
+            root = rootV4;
+        } else if (isMappedV4(bytes)) {
+            root = rootV4;
+            offset = 12;
+            length = 4;
+        }
+
+        Object match = values[root];
+        int node = root;
+        int bits = length * 8;
+        for (int bit = 0; bit < bits; bit++) {
+            int b = (bytes[offset + (bit >>> 3)] >>> (7 - (bit & 7))) & 1;
+            node = b == 0 ? zero[node] : one[node];
+            if (node == NO_NODE) {
+                break;
+            }
+            if (values[node] != null) {
+                match = values[node];
+            }
+        }
+        return (V) match;
+    }
+
+    /**
+     * @return 已插入的地址/网段数量
+     */
+    public int size() {
+        return size;
+    }
+
+    private int newNode() {
+        if (nodeCount == zero.length) {
+            int capacity = nodeCount * 2;
+            zero = Arrays.copyOf(zero, capacity);
+            one = Arrays.copyOf(one, capacity);
+            values = Arrays.copyOf(values, capacity);
+        }
+        zero[nodeCount] = NO_NODE;
+        one[nodeCount] = NO_NODE;
+        return nodeCount++;
+    }
+
+    private static int bitAt(byte[] bytes, int bit) {
+        return (bytes[bit >>> 3] >>> (7 - (bit & 7))) & 1;
+    }
+
+    private static boolean isMappedV4(byte[] bytes) {
+        if (bytes.length != 16) {
+            return false;
+        }
+        for (int i = 0; i < 10; i++) {
+            if (bytes[i] != 0) {
+                return false;
+            }
+        }
+        return bytes[10] == (byte) 0xff && bytes[11] == (byte) 0xff;
+    }
+
+    /**
+     * 解析IP字面量，不会触发DNS查询
+     * @param address 地址字符串
+     * @return IPv4返回4字节，IPv6返回16字节（IPv4映射地址返回4字节），无法解析返回null
+     */
+    static byte[] parseAddress(String address) {
+        if (address.isEmpty()) {
+            return null;
+        }
+
+        if (address.indexOf(':') < 0) {
+            return parseIpv4(address);
+        }
+
+        String literal = address;
+        if (literal.startsWith("[") && literal.endsWith("]")) {
+            literal = literal.substring(1, literal.length() - 1);
+        }
+        int zone = literal.indexOf('%');
+        if (zone >= 0) {
+            literal = literal.substring(0, zone);
+        }
+
+        try {
+            // 包含冒号的字符串只会按IPv6字面量解析，不会进行DNS查询
+            InetAddress inet = InetAddress.getByName(literal);
+            byte[] bytes = inet.getAddress();
+            if (inet instanceof Inet6Address && isMappedV4(bytes)) {
+                return Arrays.copyOfRange(bytes, 12, 16);
+            }
+            return bytes;
+        } catch (UnknownHostException | SecurityException e) {
+            return null;
+        }
+    }
+
+    private static byte[] parseIpv4(String address) {
+        byte[] bytes = new byte[4];
+        int part = 0;
+        int value = -1;
+        for (int i = 0; i < address.length(); i++) {
+            char c = address.charAt(i);
+            if (c == '.') {
+                if (value < 0 || part == 3) {
+                    return null;
+                }
+                bytes[part++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) {
+                    return null;
+                }
+            } else {
+                return null;
+            }
+        }
+        if (value < 0 || part != 3) {
+            return null;
+        }
+        bytes[3] = (byte) value;
+        return bytes;
+    }
+}
@@ -0,0 +1,98 @@
+package org.a.banapi.cache;
+
+/**
+ * 字符串布隆过滤器，用于在查询精确索引之前快速排除不在集合中的名称
+ * <p>
+ * 位数组大小和哈希函数个数按预期条目数和目标误判率计算，k个位置由一个64位哈希拆成的两个
+ * 32位哈希组合得到（双重哈希），查询过程不分配对象。
+ * 构建完成后只读，可安全地被多个线程并发查询。
+ */
+public final class NameBloomFilter {
+    private static final double LN2 = Math.log(2);
+
+    private final long[] bits;
+    private final long bitCount;
+    private final int hashCount;
+
+    /**
+     * @param expectedEntries 预期条目数
+     * @param falsePositiveRate 目标误判率，取值 (0, 1)
+     */
+    public NameBloomFilter(int expectedEntries, double falsePositiveRate) {
+        int n = Math.max(1, expectedEntries);
+        double p = Math.min(0.5, Math.max(1e-9, falsePositiveRate));
+        long m = (long) Math.ceil(-n * Math.log(p) / (LN2 * LN2));
+        m = Math.max(64, (m + 63) & ~63L);
+        this.bits = new long[(int) (m >>> 6)];
+        this.bitCount = m;
+        this.hashCount = Math.max(1, (int) Math.round((double) m / n * LN2));
+    }
+
+    /**
+     * 添加名称
+     * @param key 已规范化的名称
+     */
+    public void add(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            bits[(int) (index >>> 6)] |= 1L << index;
+        }
+    }
+
+    /**
+     * 判断名称是否可能存在
+     * @param key 已规范化的名称
+     * @return false表示一定不存在；true表示可能存在，需要查询精确索引确认
+     */
+    public boolean mightContain(String key) {
+        long hash = hash(key);
+        int h1 = (int) hash;
+        int h2 = (int) (hash >>> 32);
+        for (int i = 0; i < hashCount; i++) {
+            long index = Integer.toUnsignedLong(h1 + i * h2) % bitCount;
+            if ((bits[(int) (index >>> 6)] & (1L << index)) == 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * @return 位数组大小（位）
+     */
+    public long getBitCount() {
+        return bitCount;
+    }
+
+    /**
+     * @return 哈希函数个数
+     */
+    public int getHashCount() {
+        return hashCount;
+    }
+
+    /**
+     * @return 占用内存（字节）
+     */
+    public long getSizeInBytes() {
+        return (long) bits.length * Long.BYTES;
+    }
+
+    // FNV-1a 64位，再用MurmurHash3的fmix64打散，保证高低32位都足够均匀
+    private static long hash(String key) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < key.length(); i++) {
+            h ^= key.charAt(i);
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -2,7 +2,27 @@ package org.a.banapi.commands;
 
 import org.a.banapi.Banapi;
 import org.a.banapi.api.APIService;
+import org.a.banapi.api.CircuitBreaker;
+import org.a.banapi.api.EndpointPool;
+import org.a.banapi.bulk.BulkJob;
+import org.a.banapi.bungee.BungeeMessenger;
+import org.a.banapi.listeners.LoginCheckStats;
+import org.a.banapi.listeners.LoginDecisionCache;
+import org.a.banapi.metrics.Histogram;
+import org.a.banapi.metrics.MetricsRegistry;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.Page;
+import org.a.banapi.search.SearchIndex;
+import org.a.banapi.search.SearchQuery;
+import org.a.banapi.tasks.BanEventSubscriber;
+import org.a.banapi.util.BanMessageFormatter;
+import org.a.banapi.util.IoExecutor;
+import org.a.banapi.wal.WalEntry;
+import org.a.banapi.wal.WriteBehindQueue;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -10,9 +30,15 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 
+import java.io.File;
 import java.io.IOException;
-import java.text.SimpleDateFormat;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 /**
  * 处理BanAPI命令，用于查询和操作API内容
@@ -20,7 +46,8 @@ import java.util.*;
 public class BanAPICommand implements CommandExecutor, TabCompleter {
     private final Banapi plugin;
     private final APIService apiService;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
+    // 同一时间只允许一个批量任务，避免重复执行同一个文件
+    private final AtomicBoolean bulkRunning = new AtomicBoolean();
 
     public BanAPICommand(Banapi plugin) {
         this.plugin = plugin;
@@ -41,7 +68,7 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
 
         switch (args[0].toLowerCase()) {
             case "list":
-                showBanList(sender);
+                showBanList(sender, args);
                 break;
             case "stats":
                 showStats(sender);
@@ -53,6 +80,22 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
                 }
                 handleBan(sender, args);
                 break;
+            case "status":
+                showStatus(sender);
+                break;
+            case "metrics":
+                showMetrics(sender);
+                break;
+            case "reload":
+                handleReload(sender);
+                break;
+            case "search":
+                if (args.length < 2) {
+                    sender.sendMessage(Component.text("用法: /banapi search <条件...>，例如 admin:Console reason:外挂 status:active since:7d type:temp").color(NamedTextColor.RED));
+                    return true;
+                }
+                handleSearch(sender, args);
+                break;
             case "release":
                 if (args.length < 2) {
                     sender.sendMessage(ChatColor.RED + "用法: /banapi release <ID>");
@@ -60,6 +103,20 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
                 }
                 handleRelease(sender, args);
                 break;
+            case "import":
+                if (args.length < 2) {
+                    sender.sendMessage(Component.text("用法: /banapi import <文件>（插件目录中的 .csv 或 .jsonl 文件）").color(NamedTextColor.RED));
+                    return true;
+                }
+                handleImport(sender, args);
+                break;
+            case "release-bulk":
+                if (args.length < 2) {
+                    sender.sendMessage(Component.text("用法: /banapi release-bulk <文件|搜索条件...>").color(NamedTextColor.RED));
+                    return true;
+                }
+                handleReleaseBulk(sender, args);
+                break;
             default:
                 showHelp(sender);
                 break;
@@ -71,8 +128,8 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
     private void showHelp(CommandSender sender) {
         sender.sendMessage(Component.text("===== BanAPI 命令帮助 =====").color(NamedTextColor.YELLOW));
         sender.sendMessage(Component.text()
-            .append(Component.text("/banapi list").color(NamedTextColor.GOLD))
-            .append(Component.text(" - 显示所有封禁列表").color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi list [页码] [每页条数]").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 分页显示封禁列表").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
             .append(Component.text("/banapi stats").color(NamedTextColor.GOLD))
@@ -86,119 +143,287 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
             .append(Component.text("/banapi release <ID>").color(NamedTextColor.GOLD))
             .append(Component.text(" - 解除指定ID的封禁").color(NamedTextColor.WHITE))
             .build());
-    }
-
-    private void showBanList(CommandSender sender) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                List<Map<String, Object>> bansList = apiService.getBans();
-                
-                sender.sendMessage(Component.text("===== 封禁列表 =====").color(NamedTextColor.YELLOW));
-                
-                if (bansList.isEmpty()) {
-                    sender.sendMessage(Component.text("当前没有封禁记录").color(NamedTextColor.GRAY));
-                    return;
-                }
-                
-                for (Map<String, Object> ban : bansList) {
-                    displayBanInfo(sender, ban);
-                }
-            } catch (IOException e) {
-                sender.sendMessage(ChatColor.RED + "获取封禁列表失败: " + e.getMessage());
-                plugin.getLogger().warning("获取封禁列表时出错: " + e.getMessage());
-            }
-        });
-    }
-
-    private void displayBanInfo(CommandSender sender, Map<String, Object> ban) {
-        int id = ((Number) ban.get("id")).intValue();
-        String nickname = (String) ban.get("nickname");
-        String reason = (String) ban.get("reason");
-        String admin = (String) ban.get("admin");
-        boolean isPermanent = (boolean) ban.get("isPermanent");
-        boolean isReleased = (boolean) ban.get("isReleased");
-        String startTime = formatTime((String) ban.get("startTime"));
-        String endTime = ban.get("endTime") != null ? formatTime((String) ban.get("endTime")) : "永久";
-        
         sender.sendMessage(Component.text()
-            .append(Component.text("ID: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(id).color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi import <文件>").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 从插件目录中的CSV/JSONL文件批量导入封禁").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
-            .append(Component.text("玩家: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(nickname).color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi release-bulk <文件|搜索条件...>").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 按文件或搜索结果批量解除封禁").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
-            .append(Component.text("原因: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(reason).color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi status").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 显示本地封禁索引与登录检查状态").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
-            .append(Component.text("管理员: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(admin).color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi metrics").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 显示耗时分布等运行指标").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
-            .append(Component.text("类型: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(isPermanent ? "永久" : "临时").color(NamedTextColor.WHITE))
+            .append(Component.text("/banapi search <条件...>").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 按 admin/player/reason/status/type/since/until 搜索本地封禁记录").color(NamedTextColor.WHITE))
+            .build());
+        sender.sendMessage(Component.text()
+            .append(Component.text("/banapi reload").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 重新加载配置文件和消息模板").color(NamedTextColor.WHITE))
+            .build());
+    }
+
+    private void handleReload(CommandSender sender) {
+        plugin.getConfigManager().reload();
+        // 已缓存的拒绝结果和封禁消息使用的是旧模板
+        if (plugin.getLoginListener() != null) {
+            plugin.getLoginListener().getDecisionCache().clear();
+            plugin.getLoginListener().getMessageFormatter().clear();
+        }
+        sender.sendMessage(Component.text("配置已重新加载").color(NamedTextColor.GREEN));
+        sender.sendMessage(Component.text("API地址、超时、熔断与执行器等设置需要重启插件后生效").color(NamedTextColor.GRAY));
+    }
+
+    private void showMetrics(CommandSender sender) {
+        sender.sendMessage(Component.text("===== BanAPI 指标 =====").color(NamedTextColor.YELLOW));
+        for (MetricsRegistry.Metric metric : plugin.getMetrics().getMetrics()) {
+            String value;
+            if (metric.getType() == MetricsRegistry.Type.HISTOGRAM) {
+                Histogram.Snapshot snapshot = metric.getHistogram().snapshot();
+                if (snapshot.getCount() == 0) {
+                    continue;
+                }
+                value = String.format("n=%d p50=%.1fms p95=%.1fms p99=%.1fms max=%.1fms",
+                    snapshot.getCount(),
+                    snapshot.quantile(0.5) / 1000.0,
+                    snapshot.quantile(0.95) / 1000.0,
+                    snapshot.quantile(0.99) / 1000.0,
+                    snapshot.getMax() / 1000.0);
+            } else {
+                double current = metric.getValue();
+                value = current == Math.rint(current) ? String.valueOf((long) current) : String.format("%.3f", current);
+            }
+            sender.sendMessage(Component.text()
+                .append(Component.text(metric.getName() + metric.getLabels() + ": ").color(NamedTextColor.GOLD))
+                .append(Component.text(value).color(NamedTextColor.WHITE))
+                .build());
+        }
+    }
+
+    private void showStatus(CommandSender sender) {
+        sender.sendMessage(Component.text("===== BanAPI 运行状态 =====").color(NamedTextColor.YELLOW));
+        sendStatusLine(sender, "本地索引记录数", plugin.getBanCache().current().size());
+        if (plugin.getBanExpiryTask() != null) {
+            sendStatusLine(sender, "待到期临时封禁", plugin.getBanExpiryTask().getPendingCount());
+        }
+
+        BanEventSubscriber subscriber = plugin.getBanEventSubscriber();
+        if (subscriber != null) {
+            sender.sendMessage(Component.text()
+                .append(Component.text("封禁事件推送: ").color(NamedTextColor.GOLD))
+                .append(Component.text(subscriber.isConnected() ? "已连接" : "未连接（使用定时轮询）")
+                    .color(subscriber.isConnected() ? NamedTextColor.GREEN : NamedTextColor.RED))
+                .build());
+            sendStatusLine(sender, "已应用推送事件", subscriber.getEvents());
+            sendStatusLine(sender, "推送重连次数", subscriber.getReconnects());
+        }
+
+        sendStatusLine(sender, "API实际请求", apiService.getCoalescerExecuted());
+        sendStatusLine(sender, "API合并请求", apiService.getCoalescerDeduplicated());
+        sendStatusLine(sender, "API在途请求", apiService.getCoalescerInFlight());
+
+        EndpointPool endpointPool = apiService.getEndpointPool();
+        if (endpointPool != null) {
+            for (EndpointPool.Endpoint endpoint : endpointPool.getEndpoints()) {
+                sender.sendMessage(Component.text()
+                    .append(Component.text(endpoint.getUrl() + ": ").color(NamedTextColor.GOLD))
+                    .append(Component.text(endpoint.isEjected() ? "已摘除" : "可用")
+                        .color(endpoint.isEjected() ? NamedTextColor.RED : NamedTextColor.GREEN))
+                    .append(Component.text(" 在途 " + endpoint.getOutstanding()
+                        + " / 请求 " + endpoint.getRequests()
+                        + " / 摘除 " + endpoint.getEjections()).color(NamedTextColor.WHITE))
+                    .build());
+            }
+        }
+
+        CircuitBreaker breaker = apiService.getCircuitBreaker();
+        sender.sendMessage(Component.text()
+            .append(Component.text("熔断器状态: ").color(NamedTextColor.GOLD))
+            .append(Component.text(breaker.getState().name())
+                .color(breaker.getState() == CircuitBreaker.State.CLOSED ? NamedTextColor.GREEN : NamedTextColor.RED))
             .build());
         sender.sendMessage(Component.text()
-            .append(Component.text("状态: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(isReleased ? "已解除" : "生效中").color(isReleased ? NamedTextColor.GREEN : NamedTextColor.RED))
+            .append(Component.text("近期失败率: ").color(NamedTextColor.GOLD))
+            .append(Component.text(String.format("%.1f%%", breaker.getFailureRate() * 100)).color(NamedTextColor.WHITE))
             .build());
+        sendStatusLine(sender, "熔断状态切换", breaker.getTransitions());
+        sendStatusLine(sender, "熔断拒绝请求", breaker.getRejected());
+        sendStatusLine(sender, "使用本地数据回答", apiService.getLocalFallbacks());
+        sendStatusLine(sender, "重试次数", apiService.getRetryBudget().getGranted());
+        sendStatusLine(sender, "预算不足放弃重试", apiService.getRetryBudget().getDenied());
+        sendStatusLine(sender, "剩余重试预算", apiService.getRetryBudget().getAvailable());
+        for (Map.Entry<String, Long> entry : apiService.getLatencyP95().entrySet()) {
+            sendStatusLine(sender, "请求耗时p95(ms) " + entry.getKey(), entry.getValue());
+        }
+        sendStatusLine(sender, "对冲请求", apiService.getHedgesSent());
+        sendStatusLine(sender, "对冲请求胜出", apiService.getHedgeWins());
+
+        BungeeMessenger messenger = plugin.getBungeeMessenger();
+        if (messenger != null) {
+            sendStatusLine(sender, "发往其他子服的封禁同步", messenger.getSent());
+            sendStatusLine(sender, "来自其他子服的封禁同步", messenger.getReceived());
+        }
+
+        WriteBehindQueue writeQueue = plugin.getWriteQueue();
+        if (writeQueue != null) {
+            sendStatusLine(sender, "待提交封禁操作", writeQueue.getPendingCount());
+            sendStatusLine(sender, "已提交封禁操作", writeQueue.getAcknowledged());
+            sendStatusLine(sender, "被拒绝封禁操作", writeQueue.getRejected());
+            if (writeQueue.getLastError() != null) {
+                sender.sendMessage(Component.text()
+                    .append(Component.text("最近提交失败: ").color(NamedTextColor.GOLD))
+                    .append(Component.text(writeQueue.getLastError()).color(NamedTextColor.RED))
+                    .build());
+            }
+        }
+
+        IoExecutor executor = plugin.getIoExecutor();
         sender.sendMessage(Component.text()
-            .append(Component.text("开始时间: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(startTime).color(NamedTextColor.WHITE))
+            .append(Component.text("I/O线程池: ").color(NamedTextColor.GOLD))
+            .append(Component.text(executor.isVirtual() ? "虚拟线程" : "平台线程").color(NamedTextColor.WHITE))
             .build());
+        sendStatusLine(sender, "执行中任务", executor.getActive());
+        sendStatusLine(sender, "执行中任务峰值", executor.getPeakActive());
+        sendStatusLine(sender, "排队任务", executor.getQueued());
+        sendStatusLine(sender, "已完成任务", executor.getCompleted());
+        sendStatusLine(sender, "失败任务", executor.getFailed());
+        sendStatusLine(sender, "被拒绝任务", executor.getRejected());
+
+        if (plugin.getLoginListener() == null) {
+            return;
+        }
+
+        LoginCheckStats stats = plugin.getLoginListener().getStats();
+        sendStatusLine(sender, "索引命中", stats.getIndexLookups());
+        sendStatusLine(sender, "回源查询", stats.getFallbackLookups());
+        sendStatusLine(sender, "封禁拒绝", stats.getBanned());
+        sendStatusLine(sender, "查询超时", stats.getTimeouts());
+        sendStatusLine(sender, "查询出错", stats.getErrors());
+        sendStatusLine(sender, "失败放行", stats.getFailOpen());
+        sendStatusLine(sender, "失败拒绝", stats.getFailClosed());
+        sendStatusLine(sender, "待复查登记", stats.getRechecksScheduled());
+        sendStatusLine(sender, "复查踢出", stats.getRechecksKicked());
+
+        LoginDecisionCache decisionCache = plugin.getLoginListener().getDecisionCache();
+        sendStatusLine(sender, "结果缓存条目", decisionCache.size());
+        sendStatusLine(sender, "结果缓存命中", decisionCache.getHits());
+        sendStatusLine(sender, "结果缓存未命中", decisionCache.getMisses());
+
+        BanMessageFormatter messageFormatter = plugin.getLoginListener().getMessageFormatter();
+        sendStatusLine(sender, "封禁消息缓存条目", messageFormatter.size());
+        sendStatusLine(sender, "封禁消息缓存命中", messageFormatter.getHits());
+    }
+
+    private void sendStatusLine(CommandSender sender, String name, long value) {
         sender.sendMessage(Component.text()
-            .append(Component.text("结束时间: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(endTime).color(NamedTextColor.WHITE))
+            .append(Component.text(name + ": ").color(NamedTextColor.GOLD))
+            .append(Component.text(value).color(NamedTextColor.WHITE))
             .build());
-        sender.sendMessage(Component.text("----------").color(NamedTextColor.GRAY));
     }
 
-    private String formatTime(String isoTime) {
-        try {
-            // 将ISO 8601格式转换为更易读的格式
-            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-            Date date = isoFormat.parse(isoTime);
-            return dateFormat.format(date);
-        } catch (Exception e) {
-            return isoTime; // 如果解析失败，返回原始字符串
-        }
+    private void showBanList(CommandSender sender, String[] args) {
+        int[] paging = PagedMessage.parsePaging(args, 1, plugin.getConfigManager().getListPageSize());
+        apiService.getBansPageAsync(paging[0], paging[1]).whenComplete((page, error) -> {
+            if (error != null) {
+                String message = unwrap(error).getMessage();
+                sender.sendMessage(ChatColor.RED + "获取封禁列表失败: " + message);
+                plugin.getLogger().warning("获取封禁列表时出错: " + message);
+                return;
+            }
+
+            sender.sendMessage(PagedMessage.render("封禁列表", page,
+                target -> "/banapi list " + target + " " + page.getSize(),
+                "当前没有封禁记录", this::appendBanInfo));
+        });
     }
 
-    private void showStats(CommandSender sender) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+    /**
+     * 在本地搜索索引上执行查询，不访问API
+     */
+    private void handleSearch(CommandSender sender, String[] args) {
+        String text = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        runAsync(sender, () -> {
+            if (!plugin.getBanCache().isLoaded()) {
+                sender.sendMessage(Component.text("本地封禁索引尚未加载，请稍后再试").color(NamedTextColor.RED));
+                return;
+            }
             try {
-                Map<String, Object> stats = apiService.getStats();
-                
-                sender.sendMessage(Component.text("===== 封禁统计 =====").color(NamedTextColor.YELLOW));
-                
-                if (stats.containsKey("total")) {
-                    sender.sendMessage(Component.text()
-                        .append(Component.text("总封禁数: ").color(NamedTextColor.GOLD))
-                        .append(Component.text(stats.get("total").toString()).color(NamedTextColor.WHITE))
-                        .build());
-                }
-                
-                if (stats.containsKey("active")) {
-                    sender.sendMessage(Component.text()
-                        .append(Component.text("活跃封禁: ").color(NamedTextColor.GOLD))
-                        .append(Component.text(stats.get("active").toString()).color(NamedTextColor.WHITE))
-                        .build());
-                }
-                
-                if (stats.containsKey("released")) {
-                    sender.sendMessage(Component.text()
-                        .append(Component.text("已解除封禁: ").color(NamedTextColor.GOLD))
-                        .append(Component.text(stats.get("released").toString()).color(NamedTextColor.WHITE))
-                        .build());
-                }
-                
-            } catch (IOException e) {
-                sender.sendMessage(ChatColor.RED + "获取统计信息失败: " + e.getMessage());
-                plugin.getLogger().warning("获取统计信息时出错: " + e.getMessage());
+                SearchQuery query = SearchQuery.parse(text, System.currentTimeMillis());
+                SearchIndex<BanRecord> index = plugin.getBanCache().current().searchIndex();
+                long start = System.nanoTime();
+                List<BanRecord> matches = index.search(query);
+                double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+                Page<BanRecord> page = Page.slice(matches, query.getPage(), plugin.getConfigManager().getListPageSize());
+                sender.sendMessage(PagedMessage.render(String.format("搜索结果 (%.2fms)", millis), page,
+                    PagedMessage.searchPages("/banapi search", text),
+                    "没有匹配的封禁记录", this::appendBanInfo));
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage(Component.text("查询条件有误: " + e.getMessage()).color(NamedTextColor.RED));
+            }
+        });
+    }
+
+    private void displayBanInfo(CommandSender sender, BanRecord ban) {
+        TextComponent.Builder builder = Component.text();
+        appendBanInfo(builder, ban);
+        builder.append(Component.text("----------").color(NamedTextColor.GRAY));
+        sender.sendMessage(builder.build());
+    }
+
+    private void appendBanInfo(TextComponent.Builder builder, BanRecord ban) {
+        boolean isReleased = ban.isReleased();
+        String endTime = ban.getEndTime() != null ? ban.getEndTimeDisplay() : "永久";
+
+        PagedMessage.appendLine(builder, "ID", ban.getId(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "玩家", ban.getNickname(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "原因", ban.getReason(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "管理员", ban.getAdmin(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "类型", ban.isPermanent() ? "永久" : "临时", NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "状态", isReleased ? "已解除" : "生效中",
+            isReleased ? NamedTextColor.GREEN : NamedTextColor.RED);
+        PagedMessage.appendLine(builder, "开始时间", ban.getStartTimeDisplay(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "结束时间", endTime, NamedTextColor.WHITE);
+    }
+
+    private void showStats(CommandSender sender) {
+        apiService.getStatsAsync().whenComplete((stats, error) -> {
+            if (error != null) {
+                String message = unwrap(error).getMessage();
+                sender.sendMessage(ChatColor.RED + "获取统计信息失败: " + message);
+                plugin.getLogger().warning("获取统计信息时出错: " + message);
+                return;
+            }
+
+            sender.sendMessage(Component.text("===== 封禁统计 =====").color(NamedTextColor.YELLOW));
+
+            if (stats.containsKey("total")) {
+                sender.sendMessage(Component.text()
+                    .append(Component.text("总封禁数: ").color(NamedTextColor.GOLD))
+                    .append(Component.text(stats.get("total").toString()).color(NamedTextColor.WHITE))
+                    .build());
             }
+
+            if (stats.containsKey("active")) {
+                sender.sendMessage(Component.text()
+                    .append(Component.text("活跃封禁: ").color(NamedTextColor.GOLD))
+                    .append(Component.text(stats.get("active").toString()).color(NamedTextColor.WHITE))
+                    .build());
+            }
+
+            if (stats.containsKey("released")) {
+                sender.sendMessage(Component.text()
+                    .append(Component.text("已解除封禁: ").color(NamedTextColor.GOLD))
+                    .append(Component.text(stats.get("released").toString()).color(NamedTextColor.WHITE))
+                    .build());
+            }
+
         });
     }
 
@@ -219,18 +444,40 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
         }
         
         final Long finalDuration = duration;
-        
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                Map<String, Object> result = apiService.addBan(nickname, reason, admin, isPermanent, finalDuration);
-                
-                sender.sendMessage(Component.text("成功添加封禁记录：").color(NamedTextColor.GREEN));
-                displayBanInfo(sender, result);
-                
-            } catch (IOException e) {
-                sender.sendMessage(ChatColor.RED + "添加封禁记录失败: " + e.getMessage());
-                plugin.getLogger().warning("添加封禁记录时出错: " + e.getMessage());
+
+        WriteBehindQueue writeQueue = plugin.getWriteQueue();
+        if (writeQueue != null) {
+            // 写入本地日志需要刷盘，不在主线程执行
+            runAsync(sender, () -> {
+                WalEntry entry;
+                try {
+                    entry = writeQueue.submitBan(nickname, reason, admin, isPermanent, finalDuration);
+                } catch (IOException e) {
+                    sender.sendMessage(ChatColor.RED + "添加封禁记录失败: " + e.getMessage());
+                    plugin.getLogger().warning("写入写前日志时出错: " + e.getMessage());
+                    return;
+                }
+                sender.sendMessage(Component.text("封禁已在本服生效，正在提交到BanAPIService：").color(NamedTextColor.GREEN));
+                displayBanInfo(sender, entry.getLocalRecord());
+                if (plugin.getLoginListener() != null) {
+                    plugin.getLoginListener().kickIfBanned(entry.getLocalRecord());
+                }
+                notifyWhenAcknowledged(sender, entry, "封禁");
+            });
+            return;
+        }
+
+        apiService.addBanAsync(nickname, reason, admin, isPermanent, finalDuration).whenComplete((result, error) -> {
+            if (error != null) {
+                String message = unwrap(error).getMessage();
+                sender.sendMessage(ChatColor.RED + "添加封禁记录失败: " + message);
+                plugin.getLogger().warning("添加封禁记录时出错: " + message);
+                return;
             }
+
+            sender.sendMessage(Component.text("成功添加封禁记录：").color(NamedTextColor.GREEN));
+            displayBanInfo(sender, result);
+            propagate(result);
         });
     }
 
@@ -242,26 +489,218 @@ public class BanAPICommand implements CommandExecutor, TabCompleter {
             sender.sendMessage(ChatColor.RED + "ID必须是一个有效的数字");
             return;
         }
-        
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+
+        WriteBehindQueue writeQueue = plugin.getWriteQueue();
+        if (writeQueue != null) {
+            runAsync(sender, () -> {
+                WalEntry entry;
+                try {
+                    entry = writeQueue.submitRelease(id);
+                } catch (IOException e) {
+                    sender.sendMessage(ChatColor.RED + "解除封禁失败: " + e.getMessage());
+                    plugin.getLogger().warning("写入写前日志时出错: " + e.getMessage());
+                    return;
+                }
+                sender.sendMessage(Component.text("封禁 #" + id + " 已在本服解除，正在提交到BanAPIService").color(NamedTextColor.GREEN));
+                notifyWhenAcknowledged(sender, entry, "解封");
+            });
+            return;
+        }
+
+        apiService.updateBanStatusAsync(id, true).whenComplete((result, error) -> {
+            if (error != null) {
+                String message = unwrap(error).getMessage();
+                sender.sendMessage(ChatColor.RED + "解除封禁失败: " + message);
+                plugin.getLogger().warning("解除封禁时出错: " + message);
+                return;
+            }
+
+            sender.sendMessage(Component.text("成功解除封禁：").color(NamedTextColor.GREEN));
+            displayBanInfo(sender, result);
+            propagate(result);
+        });
+    }
+
+    private void handleImport(CommandSender sender, String[] args) {
+        Path file = resolveBulkFile(sender, args[1]);
+        if (file != null) {
+            startBulkJob(sender, BulkJob.fromFile(plugin, sender, BulkJob.Mode.IMPORT, file));
+        }
+    }
+
+    /**
+     * 参数是插件目录中的文件时按文件解封，否则作为搜索条件，对匹配的生效中封禁执行解封。
+     * 按条件解封时需要在末尾加上 confirm 才会执行，否则只显示匹配数量
+     */
+    private void handleReleaseBulk(CommandSender sender, String[] args) {
+        if (args.length == 2 && isBulkFile(args[1])) {
+            Path file = resolveBulkFile(sender, args[1]);
+            if (file != null) {
+                startBulkJob(sender, BulkJob.fromFile(plugin, sender, BulkJob.Mode.RELEASE, file));
+            }
+            return;
+        }
+
+        boolean confirmed = args[args.length - 1].equalsIgnoreCase("confirm");
+        String text = String.join(" ", Arrays.copyOfRange(args, 1, confirmed ? args.length - 1 : args.length));
+        if (text.isEmpty()) {
+            sender.sendMessage(Component.text("用法: /banapi release-bulk <文件|搜索条件...>").color(NamedTextColor.RED));
+            return;
+        }
+        runAsync(sender, () -> {
+            if (!plugin.getBanCache().isLoaded()) {
+                sender.sendMessage(Component.text("本地封禁索引尚未加载，请稍后再试").color(NamedTextColor.RED));
+                return;
+            }
+            List<BanRecord> targets = new ArrayList<>();
+            try {
+                SearchQuery query = SearchQuery.parse(text, System.currentTimeMillis());
+                for (BanRecord ban : plugin.getBanCache().current().searchIndex().search(query)) {
+                    if (!ban.isReleased() && ban.hasId()) {
+                        targets.add(ban);
+                    }
+                }
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage(Component.text("查询条件有误: " + e.getMessage()).color(NamedTextColor.RED));
+                return;
+            }
+
+            if (targets.isEmpty()) {
+                sender.sendMessage(Component.text("没有匹配的生效中封禁").color(NamedTextColor.YELLOW));
+            } else if (!confirmed) {
+                String command = "/banapi release-bulk " + text + " confirm";
+                sender.sendMessage(Component.text()
+                    .append(Component.text("将解除 " + targets.size() + " 条生效中的封禁，").color(NamedTextColor.YELLOW))
+                    .append(Component.text("[点击确认]").color(NamedTextColor.RED)
+                        .clickEvent(ClickEvent.runCommand(command))
+                        .hoverEvent(HoverEvent.showText(Component.text(command))))
+                    .build());
+            } else {
+                startBulkJob(sender, BulkJob.releaseRecords(plugin, sender, targets));
+            }
+        });
+    }
+
+    private void startBulkJob(CommandSender sender, BulkJob job) {
+        if (!bulkRunning.compareAndSet(false, true)) {
+            sender.sendMessage(Component.text("已有批量任务正在执行，请等待其完成").color(NamedTextColor.RED));
+            return;
+        }
+        boolean submitted = runAsync(sender, () -> {
             try {
-                Map<String, Object> result = apiService.updateBanStatus(id, true);
-                
-                sender.sendMessage(Component.text("成功解除封禁：").color(NamedTextColor.GREEN));
-                displayBanInfo(sender, result);
-                
-            } catch (IOException e) {
-                sender.sendMessage(ChatColor.RED + "解除封禁失败: " + e.getMessage());
-                plugin.getLogger().warning("解除封禁时出错: " + e.getMessage());
+                job.run();
+            } finally {
+                bulkRunning.set(false);
             }
         });
+        if (!submitted) {
+            bulkRunning.set(false);
+        }
+    }
+
+    private static boolean isBulkFile(String name) {
+        String lower = name.toLowerCase();
+        return lower.endsWith(".csv") || lower.endsWith(".jsonl") || lower.endsWith(".ndjson");
+    }
+
+    /**
+     * 解析批量操作的输入文件，只允许读取插件目录内的文件
+     * @return 文件路径，不合法时返回null并提示
+     */
+    private Path resolveBulkFile(CommandSender sender, String name) {
+        if (!isBulkFile(name)) {
+            sender.sendMessage(Component.text("只支持 .csv、.jsonl 或 .ndjson 文件").color(NamedTextColor.RED));
+            return null;
+        }
+        Path folder = plugin.getDataFolder().toPath().toAbsolutePath().normalize();
+        Path file = folder.resolve(name).normalize();
+        if (!file.startsWith(folder)) {
+            sender.sendMessage(Component.text("文件必须位于插件目录中").color(NamedTextColor.RED));
+            return null;
+        }
+        if (!Files.isRegularFile(file)) {
+            sender.sendMessage(Component.text("文件不存在: " + name).color(NamedTextColor.RED));
+            return null;
+        }
+        return file;
+    }
+
+    private List<String> bulkFiles() {
+        List<String> names = new ArrayList<>();
+        File[] files = plugin.getDataFolder().listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.isFile() && isBulkFile(file.getName())) {
+                    names.add(file.getName());
+                }
+            }
+        }
+        return names;
+    }
+
+    /**
+     * 把直接提交成功的封禁变更写入本地索引，踢出本服在线的被封禁玩家，并同步到其他子服（写后提交的操作由队列在确认后同步）
+     */
+    private void propagate(BanRecord result) {
+        if (plugin.getBanCache().isLoaded()) {
+            plugin.getBanCache().merge(Collections.singletonList(result));
+        }
+        if (plugin.getLoginListener() != null) {
+            plugin.getLoginListener().getDecisionCache().clear();
+            if (!result.isReleased()) {
+                plugin.getLoginListener().kickIfBanned(result);
+            }
+        }
+        if (plugin.getBungeeMessenger() != null) {
+            plugin.getBungeeMessenger().broadcastBan(result);
+        }
+    }
+
+    /**
+     * API确认或拒绝写后提交的操作时通知执行者
+     */
+    private void notifyWhenAcknowledged(CommandSender sender, WalEntry entry, String action) {
+        entry.getResult().whenComplete((result, error) -> {
+            if (error != null) {
+                sender.sendMessage(Component.text(action + "被BanAPIService拒绝，已撤销本地变更: " + unwrap(error).getMessage())
+                    .color(NamedTextColor.RED));
+            } else if (result.hasId()) {
+                sender.sendMessage(Component.text(action + "已提交到BanAPIService，封禁ID: " + result.getId())
+                    .color(NamedTextColor.GRAY));
+            }
+        });
+    }
+
+    // 异步调用的异常会被包装在CompletionException中
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    /**
+     * 在I/O线程池上执行命令的耗时部分，线程池已满时提示执行者稍后再试
+     * @return 是否已提交
+     */
+    private boolean runAsync(CommandSender sender, Runnable task) {
+        try {
+            plugin.getIoExecutor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(Component.text("服务器繁忙，请稍后再试").color(NamedTextColor.RED));
+            return false;
+        }
     }
 
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> completions = new ArrayList<>(Arrays.asList("list", "stats", "ban", "release"));
+            List<String> completions = new ArrayList<>(Arrays.asList("list", "stats", "ban", "release", "status", "metrics", "reload", "search",
+                "import", "release-bulk"));
             return filterCompletions(completions, args[0]);
+        } else if (args.length == 2 && (args[0].equalsIgnoreCase("import") || args[0].equalsIgnoreCase("release-bulk"))) {
+            return filterCompletions(bulkFiles(), args[1]);
+        } else if (args.length >= 2 && args[0].equalsIgnoreCase("search")) {
+            return filterCompletions(new ArrayList<>(Arrays.asList("admin:", "player:", "reason:", "status:active",
+                "status:released", "type:perm", "type:temp", "since:7d", "until:", "page:")), args[args.length - 1]);
         } else if (args.length == 5 && args[0].equalsIgnoreCase("ban")) {
             return Arrays.asList("true", "false");
         }
@@ -31,7 +31,7 @@ public class GetAPICommand implements CommandExecutor {
 
         // 获取API信息
         ConfigManager configManager = apiService.getConfigManager();
-        String apiUrl = configManager.getApiUrl();
+        String apiUrl = String.join(", ", configManager.getApiUrls());
         String apiKey = configManager.getApiKey();
         int updateInterval = configManager.getUpdateInterval();
 
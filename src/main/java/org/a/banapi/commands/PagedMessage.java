@@ -0,0 +1,108 @@
+package org.a.banapi.commands;
+
+import org.a.banapi.model.Page;
+import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
+import net.kyori.adventure.text.event.ClickEvent;
+import net.kyori.adventure.text.event.HoverEvent;
+import net.kyori.adventure.text.format.NamedTextColor;
+
+import java.util.function.BiConsumer;
+import java.util.function.IntFunction;
+
+/**
+ * 把一页记录渲染为一条多行消息，末尾附带可点击的翻页按钮
+ */
+final class PagedMessage {
+    private PagedMessage() {
+    }
+
+    /**
+     * @param title 标题
+     * @param page 分页结果
+     * @param pageCommand 根据页码生成翻页命令
+     * @param emptyText 没有记录时显示的文字
+     * @param entry 把一条记录写入消息，每行以换行结尾
+     * @return 整页消息
+     */
+    static <T> Component render(String title, Page<T> page, IntFunction<String> pageCommand, String emptyText,
+                                BiConsumer<TextComponent.Builder, T> entry) {
+        TextComponent.Builder builder = Component.text();
+        builder.append(Component.text("===== " + title + " " + describe(page) + " =====").color(NamedTextColor.YELLOW))
+            .append(Component.newline());
+
+        if (page.getItems().isEmpty()) {
+            builder.append(Component.text(emptyText).color(NamedTextColor.GRAY));
+            return builder.build();
+        }
+
+        for (T item : page.getItems()) {
+            entry.accept(builder, item);
+            builder.append(Component.text("----------").color(NamedTextColor.GRAY))
+                .append(Component.newline());
+        }
+
+        builder.append(navigation(page.hasPrevious(), "[« 上一页]", pageCommand.apply(page.getPage() - 1)))
+            .append(Component.text("  第 " + page.getPage() + " 页  ").color(NamedTextColor.GRAY))
+            .append(navigation(page.hasNext(), "[下一页 »]", pageCommand.apply(page.getPage() + 1)));
+        return builder.build();
+    }
+
+    /**
+     * 写入一行 “名称: 值”
+     */
+    static void appendLine(TextComponent.Builder builder, String name, Object value, NamedTextColor valueColor) {
+        builder.append(Component.text(name + ": ").color(NamedTextColor.YELLOW))
+            .append(Component.text(String.valueOf(value)).color(valueColor))
+            .append(Component.newline());
+    }
+
+    private static String describe(Page<?> page) {
+        if (page.getTotal() < 0) {
+            return "(第 " + page.getPage() + " 页)";
+        }
+        return "(第 " + page.getPage() + "/" + page.getTotalPages() + " 页，共 " + page.getTotal() + " 条)";
+    }
+
+    private static Component navigation(boolean enabled, String label, String command) {
+        if (!enabled) {
+            return Component.text(label).color(NamedTextColor.DARK_GRAY);
+        }
+        return Component.text(label).color(NamedTextColor.AQUA)
+            .clickEvent(ClickEvent.runCommand(command))
+            .hoverEvent(HoverEvent.showText(Component.text(command).color(NamedTextColor.GRAY)));
+    }
+
+    /**
+     * 搜索结果的翻页命令：去掉原查询中的page条件，再追加目标页码
+     * @param command 命令，例如 "/banapi search"
+     * @param query 原查询
+     * @return 根据页码生成翻页命令
+     */
+    static IntFunction<String> searchPages(String command, String query) {
+        String base = command + " " + query.replaceAll("(^|\\s+)page:\\S+", "").trim();
+        return target -> base + " page:" + target;
+    }
+
+    /**
+     * 解析页码和每页条数参数，无效时使用默认值
+     * @param args 命令参数
+     * @param offset 页码参数的位置
+     * @param defaultSize 默认每页条数
+     * @return {页码, 每页条数}
+     */
+    static int[] parsePaging(String[] args, int offset, int defaultSize) {
+        int page = args.length > offset ? parsePositive(args[offset], 1) : 1;
+        int size = args.length > offset + 1 ? parsePositive(args[offset + 1], defaultSize) : defaultSize;
+        return new int[]{page, Math.min(size, 100)};
+    }
+
+    private static int parsePositive(String value, int defaultValue) {
+        try {
+            int parsed = Integer.parseInt(value);
+            return parsed > 0 ? parsed : defaultValue;
+        } catch (NumberFormatException e) {
+            return defaultValue;
+        }
+    }
+}
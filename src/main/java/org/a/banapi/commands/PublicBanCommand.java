@@ -2,7 +2,13 @@ package org.a.banapi.commands;
 
 import org.a.banapi.Banapi;
 import org.a.banapi.api.PublicAPIService;
+import org.a.banapi.cache.NameBloomFilter;
+import org.a.banapi.model.Page;
+import org.a.banapi.model.PublicBanRecord;
+import org.a.banapi.search.SearchIndex;
+import org.a.banapi.search.SearchQuery;
 import net.kyori.adventure.text.Component;
+import net.kyori.adventure.text.TextComponent;
 import net.kyori.adventure.text.format.NamedTextColor;
 import org.bukkit.ChatColor;
 import org.bukkit.command.Command;
@@ -10,8 +16,8 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.command.TabCompleter;
 
-import java.text.SimpleDateFormat;
 import java.util.*;
+import java.util.concurrent.RejectedExecutionException;
 
 /**
  * 处理公共封禁API的命令
@@ -19,7 +25,6 @@ import java.util.*;
 public class PublicBanCommand implements CommandExecutor, TabCompleter {
     private final Banapi plugin;
     private final PublicAPIService publicAPIService;
-    private final SimpleDateFormat dateFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
 
     public PublicBanCommand(Banapi plugin) {
         this.plugin = plugin;
@@ -40,7 +45,7 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
 
         switch (args[0].toLowerCase()) {
             case "list":
-                showBanList(sender);
+                showBanList(sender, args);
                 break;
             case "stats":
                 showStats(sender);
@@ -59,6 +64,13 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
                 }
                 checkIp(sender, args[1]);
                 break;
+            case "search":
+                if (args.length < 2) {
+                    sender.sendMessage(Component.text("用法: /publicban search <条件...>，例如 reason:外挂 type:player since:30d").color(NamedTextColor.RED));
+                    return true;
+                }
+                handleSearch(sender, args);
+                break;
             default:
                 showHelp(sender);
                 break;
@@ -70,8 +82,8 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
     private void showHelp(CommandSender sender) {
         sender.sendMessage(Component.text("===== 公共封禁API 命令帮助 =====").color(NamedTextColor.YELLOW));
         sender.sendMessage(Component.text()
-            .append(Component.text("/publicban list").color(NamedTextColor.GOLD))
-            .append(Component.text(" - 显示公共封禁列表").color(NamedTextColor.WHITE))
+            .append(Component.text("/publicban list [页码] [每页条数]").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 分页显示公共封禁列表").color(NamedTextColor.WHITE))
             .build());
         sender.sendMessage(Component.text()
             .append(Component.text("/publicban stats").color(NamedTextColor.GOLD))
@@ -85,25 +97,49 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
             .append(Component.text("/publicban checkip <IP地址>").color(NamedTextColor.GOLD))
             .append(Component.text(" - 检查IP是否在公共封禁列表中").color(NamedTextColor.WHITE))
             .build());
+        sender.sendMessage(Component.text()
+            .append(Component.text("/publicban search <条件...>").color(NamedTextColor.GOLD))
+            .append(Component.text(" - 按 player/ip/reason/type/since/until 搜索公共封禁记录").color(NamedTextColor.WHITE))
+            .build());
     }
 
-    @SuppressWarnings("unchecked")
-    private void showBanList(CommandSender sender) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+    /**
+     * 在公共封禁快照的搜索索引上执行查询
+     */
+    private void handleSearch(CommandSender sender, String[] args) {
+        String text = String.join(" ", Arrays.copyOfRange(args, 1, args.length));
+        runAsync(sender, () -> {
             try {
-                Map<String, Object> banData = publicAPIService.getBanData();
-                List<Map<String, Object>> activePlayers = (List<Map<String, Object>>) banData.get("active_players");
-
-                sender.sendMessage(Component.text("===== 公共封禁列表 =====").color(NamedTextColor.YELLOW));
+                SearchQuery query = SearchQuery.parse(text, System.currentTimeMillis());
+                SearchIndex<PublicBanRecord> index = publicAPIService.getSnapshot().searchIndex();
+                long start = System.nanoTime();
+                List<PublicBanRecord> matches = index.search(query);
+                double millis = (System.nanoTime() - start) / 1_000_000.0;
+
+                Page<PublicBanRecord> page = Page.slice(matches, query.getPage(), plugin.getConfigManager().getListPageSize());
+                sender.sendMessage(PagedMessage.render(String.format("公共封禁搜索结果 (%.2fms)", millis), page,
+                    PagedMessage.searchPages("/publicban search", text),
+                    "没有匹配的公共封禁记录", this::appendPlayerBanInfo));
+            } catch (IllegalArgumentException e) {
+                sender.sendMessage(Component.text("查询条件有误: " + e.getMessage()).color(NamedTextColor.RED));
+            } catch (Exception e) {
+                sender.sendMessage(ChatColor.RED + "搜索公共封禁列表失败: " + e.getMessage());
+                plugin.getLogger().warning("搜索公共封禁列表时出错: " + e.getMessage());
+            }
+        });
+    }
 
-                if (activePlayers == null || activePlayers.isEmpty()) {
-                    sender.sendMessage(Component.text("当前没有公共封禁记录").color(NamedTextColor.GRAY));
-                    return;
-                }
+    private void showBanList(CommandSender sender, String[] args) {
+        int[] paging = PagedMessage.parsePaging(args, 1, plugin.getConfigManager().getListPageSize());
+        runAsync(sender, () -> {
+            try {
+                // 公共API不支持分页，从缓存的快照中截取
+                List<PublicBanRecord> activePlayers = publicAPIService.getBanData().getActivePlayers();
+                Page<PublicBanRecord> page = Page.slice(activePlayers, paging[0], paging[1]);
 
-                for (Map<String, Object> player : activePlayers) {
-                    displayPlayerBanInfo(sender, player);
-                }
+                sender.sendMessage(PagedMessage.render("公共封禁列表", page,
+                    target -> "/publicban list " + target + " " + page.getSize(),
+                    "当前没有公共封禁记录", this::appendPlayerBanInfo));
             } catch (Exception e) {
                 sender.sendMessage(ChatColor.RED + "获取公共封禁列表失败: " + e.getMessage());
                 plugin.getLogger().warning("获取公共封禁列表时出错: " + e.getMessage());
@@ -111,43 +147,22 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
         });
     }
 
-    private void displayPlayerBanInfo(CommandSender sender, Map<String, Object> player) {
-        String username = (String) player.get("username");
-        String cause = (String) player.get("cause");
-        String ip = (String) player.get("ip");
-        String timestamp = formatTime((String) player.get("timestamp"));
-
-        sender.sendMessage(Component.text()
-            .append(Component.text("玩家: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(username).color(NamedTextColor.WHITE))
-            .build());
-        sender.sendMessage(Component.text()
-            .append(Component.text("原因: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(cause).color(NamedTextColor.WHITE))
-            .build());
-        sender.sendMessage(Component.text()
-            .append(Component.text("IP: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(ip).color(NamedTextColor.WHITE))
-            .build());
-        sender.sendMessage(Component.text()
-            .append(Component.text("封禁时间: ").color(NamedTextColor.YELLOW))
-            .append(Component.text(timestamp).color(NamedTextColor.WHITE))
-            .build());
-        sender.sendMessage(Component.text("----------").color(NamedTextColor.GRAY));
+    private void displayPlayerBanInfo(CommandSender sender, PublicBanRecord player) {
+        TextComponent.Builder builder = Component.text();
+        appendPlayerBanInfo(builder, player);
+        builder.append(Component.text("----------").color(NamedTextColor.GRAY));
+        sender.sendMessage(builder.build());
     }
 
-    private String formatTime(String isoTime) {
-        try {
-            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSSSSS");
-            Date date = isoFormat.parse(isoTime);
-            return dateFormat.format(date);
-        } catch (Exception e) {
-            return isoTime; // 如果解析失败，返回原始字符串
-        }
+    private void appendPlayerBanInfo(TextComponent.Builder builder, PublicBanRecord player) {
+        PagedMessage.appendLine(builder, "玩家", player.getUsername(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "原因", player.getCause(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "IP", player.getIp(), NamedTextColor.WHITE);
+        PagedMessage.appendLine(builder, "封禁时间", player.getTimestampDisplay(), NamedTextColor.WHITE);
     }
 
     private void showStats(CommandSender sender) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runAsync(sender, () -> {
             try {
                 Map<String, Object> stats = publicAPIService.getStats();
 
@@ -163,6 +178,27 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
                     .append(Component.text(stats.get("ip_count").toString()).color(NamedTextColor.WHITE))
                     .build());
 
+                sender.sendMessage(Component.text("===== 缓存状态 =====").color(NamedTextColor.YELLOW));
+                sendStatLine(sender, "缓存命中", publicAPIService.getCacheHits());
+                sendStatLine(sender, "返回旧数据", publicAPIService.getStaleServes());
+                sendStatLine(sender, "刷新成功", publicAPIService.getRefreshCount());
+                sendStatLine(sender, "刷新失败", publicAPIService.getRefreshFailures());
+
+                NameBloomFilter filter = publicAPIService.getPlayerFilter();
+                if (filter != null) {
+                    sender.sendMessage(Component.text("===== 玩家名过滤器 =====").color(NamedTextColor.YELLOW));
+                    sendStatLine(sender, "过滤器大小(字节)", filter.getSizeInBytes());
+                    sendStatLine(sender, "哈希函数个数", filter.getHashCount());
+                    sendStatLine(sender, "直接排除", publicAPIService.getBloomRejects());
+                    sendStatLine(sender, "确认命中", publicAPIService.getBloomMatches());
+                    sendStatLine(sender, "误判次数", publicAPIService.getBloomFalsePositives());
+                    sender.sendMessage(Component.text()
+                        .append(Component.text("实测误判率: ").color(NamedTextColor.GOLD))
+                        .append(Component.text(String.format("%.4f%%", publicAPIService.getBloomFalsePositiveRate() * 100))
+                            .color(NamedTextColor.WHITE))
+                        .build());
+                }
+
             } catch (Exception e) {
                 sender.sendMessage(ChatColor.RED + "获取公共封禁统计信息失败: " + e.getMessage());
                 plugin.getLogger().warning("获取公共封禁统计信息时出错: " + e.getMessage());
@@ -170,10 +206,17 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
         });
     }
 
+    private void sendStatLine(CommandSender sender, String name, long value) {
+        sender.sendMessage(Component.text()
+            .append(Component.text(name + ": ").color(NamedTextColor.GOLD))
+            .append(Component.text(value).color(NamedTextColor.WHITE))
+            .build());
+    }
+
     private void checkPlayer(CommandSender sender, String playerName) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runAsync(sender, () -> {
             try {
-                Map<String, Object> banInfo = publicAPIService.checkPlayerBan(playerName);
+                PublicBanRecord banInfo = publicAPIService.checkPlayerBan(playerName);
 
                 if (banInfo == null) {
                     sender.sendMessage(Component.text("玩家 " + playerName + " 不在公共封禁列表中").color(NamedTextColor.GREEN));
@@ -191,9 +234,9 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
     }
 
     private void checkIp(CommandSender sender, String ip) {
-        plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+        runAsync(sender, () -> {
             try {
-                Map<String, Object> banInfo = publicAPIService.checkIpBan(ip);
+                PublicBanRecord banInfo = publicAPIService.checkIpBan(ip);
 
                 if (banInfo == null) {
                     sender.sendMessage(Component.text("IP " + ip + " 不在公共封禁列表中").color(NamedTextColor.GREEN));
@@ -202,9 +245,9 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
 
                 sender.sendMessage(Component.text("IP " + ip + " 在公共封禁列表中:").color(NamedTextColor.RED));
 
-                String cause = (String) banInfo.get("cause");
-                List<String> players = (List<String>) banInfo.get("players");
-                String timestamp = formatTime((String) banInfo.get("timestamp"));
+                String cause = banInfo.getCause();
+                List<String> players = banInfo.getPlayers();
+                String timestamp = banInfo.getTimestampDisplay();
 
                 sender.sendMessage(Component.text()
                     .append(Component.text("原因: ").color(NamedTextColor.YELLOW))
@@ -228,11 +271,28 @@ public class PublicBanCommand implements CommandExecutor, TabCompleter {
         });
     }
 
+    /**
+     * 在I/O线程池上执行命令的耗时部分，线程池已满时提示执行者稍后再试
+     * @return 是否已提交
+     */
+    private boolean runAsync(CommandSender sender, Runnable task) {
+        try {
+            plugin.getIoExecutor().execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            sender.sendMessage(Component.text("服务器繁忙，请稍后再试").color(NamedTextColor.RED));
+            return false;
+        }
+    }
+
     @Override
     public List<String> onTabComplete(CommandSender sender, Command command, String alias, String[] args) {
         if (args.length == 1) {
-            List<String> completions = new ArrayList<>(Arrays.asList("list", "stats", "check", "checkip"));
+            List<String> completions = new ArrayList<>(Arrays.asList("list", "stats", "check", "checkip", "search"));
             return filterCompletions(completions, args[0]);
+        } else if (args.length >= 2 && args[0].equalsIgnoreCase("search")) {
+            return filterCompletions(new ArrayList<>(Arrays.asList("player:", "ip:", "reason:", "type:player",
+                "type:ip", "since:7d", "until:", "page:")), args[args.length - 1]);
         }
         return new ArrayList<>();
     }
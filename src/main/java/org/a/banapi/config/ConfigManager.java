@@ -1,5 +1,6 @@
 package org.a.banapi.config;
 
+import org.a.banapi.util.MessageTemplate;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.yaml.snakeyaml.Yaml;
 
@@ -7,11 +8,27 @@ import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class ConfigManager {
+    /** 封禁消息支持的占位符，顺序即渲染参数顺序 */
+    public static final String[] BAN_MESSAGE_PLACEHOLDERS =
+            {"id", "reason", "admin", "startTime", "endTime", "banType", "isPermanent"};
+    /** 封禁公告支持的占位符 */
+    public static final String[] BROADCAST_PLACEHOLDERS = {"nickname", "reason", "admin", "total"};
+    /** 公共API警告消息支持的占位符 */
+    public static final String[] WARNING_PLACEHOLDERS = {"nickname", "ip", "reason", "timestamp"};
+
+    // 缓存中表示配置项不存在
+    private static final Object MISSING = new Object();
+
     private final JavaPlugin plugin;
-    private Map<String, Object> config;
+    // 配置和按路径缓存的查找结果一起替换，重新加载时不会读到旧配置的缓存值
+    private volatile ConfigState state = new ConfigState(null);
+    private volatile Templates templates;
 
     public ConfigManager(JavaPlugin plugin) {
         this.plugin = plugin;
@@ -26,20 +43,301 @@ public class ConfigManager {
 
         try (InputStream input = new FileInputStream(configFile)) {
             Yaml yaml = new Yaml();
-            config = yaml.load(input);
+            state = new ConfigState(yaml.load(input));
         } catch (IOException e) {
             plugin.getLogger().severe("Failed to load config.yml: " + e.getMessage());
         }
+        templates = new Templates(
+                MessageTemplate.compile(getBanMessageFormat(), BAN_MESSAGE_PLACEHOLDERS),
+                MessageTemplate.compile(getBanBroadcastFormat(), BROADCAST_PLACEHOLDERS),
+                MessageTemplate.compile(getPublicApiWarningFormat(), WARNING_PLACEHOLDERS));
+    }
+
+    /**
+     * 重新读取config.yml并重新编译消息模板
+     * <p>
+     * 每次调用getter时读取的配置立即生效；HTTP客户端、熔断器、执行器等启动时创建的组件需要重启插件。
+     */
+    public void reload() {
+        loadConfig();
     }
 
     public String getApiUrl() {
-        return getNestedConfig("api.url", "http://localhost:5000");
+        return getApiUrls().get(0);
+    }
+
+    /**
+     * 获取所有BanAPIService地址，api.url 可以是单个地址或地址列表
+     * @return 地址列表，至少包含一个地址
+     */
+    public List<String> getApiUrls() {
+        Object value = getNestedConfig("api.url", (Object) "http://localhost:5000");
+        List<String> urls = new ArrayList<>();
+        if (value instanceof List) {
+            for (Object url : (List<?>) value) {
+                if (url != null && !url.toString().trim().isEmpty()) {
+                    urls.add(trimTrailingSlash(url.toString().trim()));
+                }
+            }
+        } else if (value != null) {
+            urls.add(trimTrailingSlash(value.toString().trim()));
+        }
+        if (urls.isEmpty()) {
+            urls.add("http://localhost:5000");
+        }
+        return urls;
+    }
+
+    private static String trimTrailingSlash(String url) {
+        return url.endsWith("/") ? url.substring(0, url.length() - 1) : url;
+    }
+
+    /**
+     * 获取地址连续失败多少次后被暂时摘除
+     * @return 连续失败次数
+     */
+    public int getEndpointFailureThreshold() {
+        return getNestedConfig("api.health-check.failure-threshold", 3);
+    }
+
+    /**
+     * 获取地址首次被摘除的时长，之后每次探测失败时长加倍
+     * @return 摘除时长（秒）
+     */
+    public int getEndpointEjectSeconds() {
+        return getNestedConfig("api.health-check.eject-seconds", 10);
+    }
+
+    /**
+     * 获取地址被摘除的最长时长
+     * @return 最长摘除时长（秒）
+     */
+    public int getEndpointMaxEjectSeconds() {
+        return getNestedConfig("api.health-check.max-eject-seconds", 300);
     }
 
     public String getApiKey() {
         return getNestedConfig("api.key", "");
     }
 
+    /**
+     * 获取异步API请求的默认超时时间
+     * @return 整个请求的最长耗时（毫秒）
+     */
+    public int getApiCallTimeout() {
+        return getNestedConfig("api.call-timeout-ms", 10000);
+    }
+
+    /**
+     * 检查API是否支持分页查询封禁列表
+     * @return 是否使用服务端分页
+     */
+    public boolean isServerPagingEnabled() {
+        return getNestedConfig("api.server-paging", false);
+    }
+
+    /**
+     * 获取批量导入和批量解封时同时进行的写请求数
+     * @return 并发请求数
+     */
+    public int getBulkConcurrency() {
+        return getNestedConfig("bulk.concurrency", 8);
+    }
+
+    /**
+     * 获取批量接口每次提交的记录数
+     * @return 每批记录数，0表示不使用批量接口
+     */
+    public int getBulkBatchSize() {
+        return getNestedConfig("bulk.batch-size", 0);
+    }
+
+    /**
+     * 是否先将管理员的封禁与解封写入本地写前日志，再在后台提交到API
+     * @return 是否启用写后提交
+     */
+    public boolean isWriteBehindEnabled() {
+        return getNestedConfig("write-behind.enabled", true);
+    }
+
+    /**
+     * 获取提交失败后首次重试的等待时间
+     * @return 等待时间（毫秒）
+     */
+    public int getWriteBehindRetryBase() {
+        return getNestedConfig("write-behind.retry-base-ms", 1000);
+    }
+
+    /**
+     * 获取提交失败后重试的最长等待时间
+     * @return 等待时间（毫秒）
+     */
+    public int getWriteBehindRetryMax() {
+        return getNestedConfig("write-behind.retry-max-ms", 60000);
+    }
+
+    /**
+     * 获取累计多少条已确认的操作后压缩写前日志
+     * @return 确认记录数
+     */
+    public int getWriteBehindCompactAfter() {
+        return getNestedConfig("write-behind.compact-after", 256);
+    }
+
+    /**
+     * 获取列表命令的默认每页条数
+     * @return 每页条数
+     */
+    public int getListPageSize() {
+        return getNestedConfig("commands.list-page-size", 10);
+    }
+
+    /**
+     * 检查是否合并相同的在途GET请求
+     * @return 是否合并请求
+     */
+    public boolean isRequestCoalescingEnabled() {
+        return getNestedConfig("api.coalesce-requests", true);
+    }
+
+    /**
+     * 检查是否启用熔断与重试
+     * @return 是否启用
+     */
+    public boolean isResilienceEnabled() {
+        return getNestedConfig("resilience.enabled", true);
+    }
+
+    /**
+     * 获取熔断器统计失败率的调用次数窗口
+     * @return 窗口大小
+     */
+    public int getBreakerWindowSize() {
+        return getNestedConfig("resilience.breaker.window-size", 20);
+    }
+
+    /**
+     * 获取熔断器计算失败率所需的最少调用次数
+     * @return 最少调用次数
+     */
+    public int getBreakerMinimumCalls() {
+        return getNestedConfig("resilience.breaker.minimum-calls", 10);
+    }
+
+    /**
+     * 获取打开熔断器的失败率阈值
+     * @return 失败率阈值
+     */
+    public double getBreakerFailureRate() {
+        Number value = getNestedConfig("resilience.breaker.failure-rate", (Number) 0.5);
+        return value.doubleValue();
+    }
+
+    /**
+     * 获取熔断器打开后的持续时间
+     * @return 持续时间（秒）
+     */
+    public int getBreakerOpenSeconds() {
+        return getNestedConfig("resilience.breaker.open-seconds", 30);
+    }
+
+    /**
+     * 获取GET请求的最大重试次数
+     * @return 最大重试次数
+     */
+    public int getMaxRetries() {
+        return getNestedConfig("resilience.retry.max-retries", 2);
+    }
+
+    /**
+     * 获取重试退避的基础延迟
+     * @return 基础延迟（毫秒）
+     */
+    public int getRetryBaseDelay() {
+        return getNestedConfig("resilience.retry.base-delay-ms", 200);
+    }
+
+    /**
+     * 获取重试退避的最大延迟
+     * @return 最大延迟（毫秒）
+     */
+    public int getRetryMaxDelay() {
+        return getNestedConfig("resilience.retry.max-delay-ms", 2000);
+    }
+
+    /**
+     * 获取重试预算比例，即每次请求可产生的重试次数
+     * @return 重试预算比例
+     */
+    public double getRetryBudgetRatio() {
+        Number value = getNestedConfig("resilience.retry.budget-ratio", (Number) 0.2);
+        return value.doubleValue();
+    }
+
+    /**
+     * 获取重试预算的令牌上限
+     * @return 令牌上限
+     */
+    public int getRetryBudgetMax() {
+        return getNestedConfig("resilience.retry.budget-max", 20);
+    }
+
+    /**
+     * 检查是否启用对冲请求
+     * @return 是否启用
+     */
+    public boolean isHedgingEnabled() {
+        return getNestedConfig("resilience.hedge.enabled", false);
+    }
+
+    /**
+     * 获取发送对冲请求前的最短等待时间
+     * @return 最短等待时间（毫秒）
+     */
+    public int getHedgeMinDelay() {
+        return getNestedConfig("resilience.hedge.min-delay-ms", 50);
+    }
+
+    /**
+     * 检查是否启用Prometheus指标服务
+     * @return 是否启用
+     */
+    public boolean isPrometheusEnabled() {
+        return getNestedConfig("metrics.prometheus.enabled", false);
+    }
+
+    /**
+     * 获取Prometheus指标服务的端口，服务只监听127.0.0.1
+     * @return 端口
+     */
+    public int getPrometheusPort() {
+        return getNestedConfig("metrics.prometheus.port", 9464);
+    }
+
+    /**
+     * 检查I/O线程池是否在Java 21及以上使用虚拟线程
+     * @return 是否使用虚拟线程
+     */
+    public boolean isVirtualThreadsEnabled() {
+        return getNestedConfig("executor.virtual-threads", true);
+    }
+
+    /**
+     * 获取平台线程模式下I/O线程池的最大线程数
+     * @return 最大线程数
+     */
+    public int getIoMaxThreads() {
+        return getNestedConfig("executor.max-threads", 16);
+    }
+
+    /**
+     * 获取平台线程模式下I/O线程池的等待队列长度
+     * @return 队列长度
+     */
+    public int getIoQueueSize() {
+        return getNestedConfig("executor.queue-size", 256);
+    }
+
     public int getUpdateInterval() {
         return getNestedConfig("update-interval", 60);
     }
@@ -69,6 +367,38 @@ public class ConfigManager {
             "§7如有异议，请联系管理员或在官网申诉");
     }
     
+    /**
+     * 获取编译后的封禁消息模板
+     * @return 封禁消息模板，占位符见 {@link #BAN_MESSAGE_PLACEHOLDERS}
+     */
+    public MessageTemplate getBanMessageTemplate() {
+        return templates.banMessage;
+    }
+
+    /**
+     * 获取编译后的封禁公告模板
+     * @return 封禁公告模板，占位符见 {@link #BROADCAST_PLACEHOLDERS}
+     */
+    public MessageTemplate getBanBroadcastTemplate() {
+        return templates.broadcast;
+    }
+
+    /**
+     * 获取编译后的公共API警告消息模板
+     * @return 警告消息模板，占位符见 {@link #WARNING_PLACEHOLDERS}
+     */
+    public MessageTemplate getPublicApiWarningTemplate() {
+        return templates.warning;
+    }
+
+    /**
+     * 获取最多缓存多少条已生成的封禁消息
+     * @return 缓存条数
+     */
+    public int getBanMessageCacheSize() {
+        return getNestedConfig("ban-message.cache-size", 1024);
+    }
+
     /**
      * 检查是否启用公共API
      * @return 是否启用公共API
@@ -89,6 +419,40 @@ public class ConfigManager {
             "§7封禁时间: §f{timestamp}");
     }
     
+    /**
+     * 获取公共封禁数据的缓存有效期
+     * @return 缓存有效期（秒）
+     */
+    public int getPublicApiCacheTtl() {
+        return getNestedConfig("public-api.cache-ttl", 300);
+    }
+
+    /**
+     * 获取公共封禁数据提前刷新的比例，缓存年龄超过 有效期×该比例 时在后台刷新
+     * @return 提前刷新比例（0~1）
+     */
+    public double getPublicApiRefreshAhead() {
+        Number value = getNestedConfig("public-api.refresh-ahead", (Number) 0.8);
+        return value.doubleValue();
+    }
+
+    /**
+     * 获取公共封禁数据加载失败后的重试间隔，期间不再请求公共API
+     * @return 重试间隔（秒）
+     */
+    public int getPublicApiFailureBackoff() {
+        return getNestedConfig("public-api.failure-backoff", 60);
+    }
+
+    /**
+     * 获取公共封禁玩家名布隆过滤器的目标误判率
+     * @return 误判率
+     */
+    public double getPublicApiBloomFpp() {
+        Number value = getNestedConfig("public-api.bloom-fpp", (Number) 0.01);
+        return value.doubleValue();
+    }
+
     /**
      * 检查是否记录警告日志
      * @return 是否记录警告日志
@@ -113,27 +477,173 @@ public class ConfigManager {
         return getNestedConfig("bungee.channel", "BungeeCord");
     }
 
-    // 辅助方法：获取嵌套配置值
+    /**
+     * 是否通过BungeeCord把本服的封禁变更同步到其他子服
+     * @return 是否同步封禁变更
+     */
+    public boolean isBungeePropagateEnabled() {
+        return getNestedConfig("bungee.propagate", true);
+    }
+
+    /**
+     * 获取同步封禁变更时使用的 Forward 子通道名称
+     * @return 子通道名称
+     */
+    public String getBungeeSubchannel() {
+        return getNestedConfig("bungee.subchannel", "BanAPI");
+    }
+
+    /**
+     * 检查同步封禁列表时是否使用条件请求（If-None-Match / If-Modified-Since）
+     * @return 是否使用条件请求
+     */
+    public boolean isConditionalSyncEnabled() {
+        return getNestedConfig("sync.conditional", true);
+    }
+
+    /**
+     * 检查是否启用增量同步（需要BanAPIService支持since参数）
+     * @return 是否启用增量同步
+     */
+    public boolean isDeltaSyncEnabled() {
+        return getNestedConfig("sync.delta", false);
+    }
+
+    /**
+     * 获取增量模式下全量校准的间隔
+     * @return 每隔多少次同步进行一次全量同步
+     */
+    public int getFullResyncEvery() {
+        return getNestedConfig("sync.full-resync-every", 10);
+    }
+
+    /**
+     * 是否订阅BanAPIService的封禁事件推送，连接期间不再定时轮询
+     * @return 是否启用推送
+     */
+    public boolean isPushEnabled() {
+        return getNestedConfig("sync.push.enabled", false);
+    }
+
+    /**
+     * 获取封禁事件流（Server-Sent Events）的路径
+     * @return 相对于API地址的路径
+     */
+    public String getPushPath() {
+        return getNestedConfig("sync.push.path", "/bans/events");
+    }
+
+    /**
+     * 获取事件流的读取超时，超过该时间没有收到任何数据（包括心跳）即视为断开
+     * @return 超时时间（秒）
+     */
+    public int getPushReadTimeout() {
+        return getNestedConfig("sync.push.read-timeout", 90);
+    }
+
+    /**
+     * 获取断开后重新连接的最长等待时间
+     * @return 等待时间（毫秒）
+     */
+    public int getPushReconnectMax() {
+        return getNestedConfig("sync.push.reconnect-max-ms", 60000);
+    }
+
+    /**
+     * 获取登录检查在本地索引未就绪时回源查询的最长等待时间
+     * @return 超时时间（毫秒）
+     */
+    public int getLoginCheckTimeout() {
+        return getNestedConfig("login-check.timeout-ms", 2000);
+    }
+
+    /**
+     * 获取登录检查超时或出错时的处理策略
+     * @return 策略名称：allow / deny / allow-and-recheck
+     */
+    public String getLoginFailurePolicy() {
+        return getNestedConfig("login-check.failure-policy", "allow-and-recheck");
+    }
+
+    /**
+     * 获取登录结果缓存的最大条目数
+     * @return 最大条目数，0表示禁用
+     */
+    public int getDecisionCacheMaxSize() {
+        return getNestedConfig("login-check.decision-cache.max-size", 10000);
+    }
+
+    /**
+     * 获取被拒绝登录结果的缓存时间
+     * @return 缓存时间（秒）
+     */
+    public int getDecisionCacheDeniedTtl() {
+        return getNestedConfig("login-check.decision-cache.denied-ttl", 60);
+    }
+
+    /**
+     * 获取放行登录结果的缓存时间
+     * @return 缓存时间（秒）
+     */
+    public int getDecisionCacheAllowedTtl() {
+        return getNestedConfig("login-check.decision-cache.allowed-ttl", 30);
+    }
+
+    // 辅助方法：获取嵌套配置值，查找结果按路径缓存
     @SuppressWarnings("unchecked")
     private <T> T getNestedConfig(String path, T defaultValue) {
-        if (config == null) {
+        ConfigState current = state;
+        if (current.root == null) {
             return defaultValue;
         }
 
-        String[] parts = path.split("\\.");
-        Map<String, Object> current = config;
+        Object value = current.values.computeIfAbsent(path, current::resolve);
+        return value != MISSING ? (T) value : defaultValue;
+    }
+
+    /**
+     * 一次加载得到的配置及其查找缓存
+     */
+    private static final class ConfigState {
+        final Map<String, Object> root;
+        final ConcurrentHashMap<String, Object> values = new ConcurrentHashMap<>();
+
+        ConfigState(Map<String, Object> root) {
+            this.root = root;
+        }
+
+        @SuppressWarnings("unchecked")
+        Object resolve(String path) {
+            String[] parts = path.split("\\.");
+            Map<String, Object> current = root;
 
-        for (int i = 0; i < parts.length - 1; i++) {
-            Object value = current.get(parts[i]);
-            if (value instanceof Map) {
-                current = (Map<String, Object>) value;
-            } else {
-                return defaultValue;
+            for (int i = 0; i < parts.length - 1; i++) {
+                Object value = current.get(parts[i]);
+                if (value instanceof Map) {
+                    current = (Map<String, Object>) value;
+                } else {
+                    return MISSING;
+                }
             }
+
+            Object value = current.get(parts[parts.length - 1]);
+            return value != null ? value : MISSING;
         }
+    }
 
-        Object value = current.get(parts[parts.length - 1]);
-        return value != null ? (T) value : defaultValue;
+    /**
+     * 一次加载编译出的消息模板，整体替换
+     */
+    private static final class Templates {
+        final MessageTemplate banMessage;
+        final MessageTemplate broadcast;
+        final MessageTemplate warning;
+
+        Templates(MessageTemplate banMessage, MessageTemplate broadcast, MessageTemplate warning) {
+            this.banMessage = banMessage;
+            this.broadcast = broadcast;
+            this.warning = warning;
+        }
     }
 
 
@@ -0,0 +1,99 @@
+package org.a.banapi.listeners;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 登录封禁检查各分支的计数器
+ */
+public class LoginCheckStats {
+    private final AtomicLong indexLookups = new AtomicLong();
+    private final AtomicLong fallbackLookups = new AtomicLong();
+    private final AtomicLong banned = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+    private final AtomicLong failOpen = new AtomicLong();
+    private final AtomicLong failClosed = new AtomicLong();
+    private final AtomicLong rechecksScheduled = new AtomicLong();
+    private final AtomicLong rechecksKicked = new AtomicLong();
+
+    void recordIndexLookup() {
+        indexLookups.incrementAndGet();
+    }
+
+    void recordFallbackLookup() {
+        fallbackLookups.incrementAndGet();
+    }
+
+    void recordBanned() {
+        banned.incrementAndGet();
+    }
+
+    void recordTimeout() {
+        timeouts.incrementAndGet();
+    }
+
+    void recordError() {
+        errors.incrementAndGet();
+    }
+
+    void recordFailOpen() {
+        failOpen.incrementAndGet();
+    }
+
+    void recordFailClosed() {
+        failClosed.incrementAndGet();
+    }
+
+    void recordRecheckScheduled() {
+        rechecksScheduled.incrementAndGet();
+    }
+
+    void recordRecheckKicked() {
+        rechecksKicked.incrementAndGet();
+    }
+
+    /** @return 直接命中本地索引的检查次数 */
+    public long getIndexLookups() {
+        return indexLookups.get();
+    }
+
+    /** @return 索引未就绪、回源查询的次数 */
+    public long getFallbackLookups() {
+        return fallbackLookups.get();
+    }
+
+    /** @return 因封禁被拒绝登录的次数 */
+    public long getBanned() {
+        return banned.get();
+    }
+
+    /** @return 回源查询超时的次数 */
+    public long getTimeouts() {
+        return timeouts.get();
+    }
+
+    /** @return 回源查询出错的次数 */
+    public long getErrors() {
+        return errors.get();
+    }
+
+    /** @return 失败后按策略放行的次数 */
+    public long getFailOpen() {
+        return failOpen.get();
+    }
+
+    /** @return 失败后按策略拒绝的次数 */
+    public long getFailClosed() {
+        return failClosed.get();
+    }
+
+    /** @return 登记待复查的次数 */
+    public long getRechecksScheduled() {
+        return rechecksScheduled.get();
+    }
+
+    /** @return 复查后被踢出的次数 */
+    public long getRechecksKicked() {
+        return rechecksKicked.get();
+    }
+}
@@ -0,0 +1,145 @@
+package org.a.banapi.listeners;
+
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent.Result;
+
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 按“小写玩家名 + IP”缓存登录检查的最终结果，使频繁重连只需一次哈希查找
+ * <p>
+ * 被拒绝和放行的结果使用各自的有效期；每条结果记录其计算时封禁索引的版本，索引变化后自动失效。
+ * 容量有上限，超出时淘汰最久未使用的条目。
+ */
+public class LoginDecisionCache {
+    private final int maxSize;
+    private final long deniedTtlMillis;
+    private final long allowedTtlMillis;
+    private final Map<String, Decision> entries;
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public LoginDecisionCache(int maxSize, long deniedTtlMillis, long allowedTtlMillis) {
+        this.maxSize = maxSize;
+        this.deniedTtlMillis = deniedTtlMillis;
+        this.allowedTtlMillis = allowedTtlMillis;
+        this.entries = new LinkedHashMap<String, Decision>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Decision> eldest) {
+                return size() > LoginDecisionCache.this.maxSize;
+            }
+        };
+    }
+
+    /**
+     * 查找仍然有效的登录结果
+     * @param playerName 玩家名
+     * @param ip 玩家IP
+     * @param indexVersion 当前封禁索引版本
+     * @return 缓存的结果，不存在或已失效时返回null
+     */
+    public Decision get(String playerName, String ip, long indexVersion) {
+        String key = key(playerName, ip);
+        long now = System.currentTimeMillis();
+        synchronized (entries) {
+            Decision decision = entries.get(key);
+            if (decision != null && (decision.indexVersion != indexVersion || decision.expiresAt <= now)) {
+                entries.remove(key);
+                decision = null;
+            }
+            if (decision == null) {
+                misses.incrementAndGet();
+            } else {
+                hits.incrementAndGet();
+            }
+            return decision;
+        }
+    }
+
+    /**
+     * 缓存放行结果
+     */
+    public void putAllowed(String playerName, String ip, long indexVersion) {
+        put(playerName, ip, new Decision(null, null, indexVersion, allowedTtlMillis));
+    }
+
+    /**
+     * 缓存拒绝结果及预先渲染好的踢出消息
+     */
+    public void putDenied(String playerName, String ip, long indexVersion, Result result, String message) {
+        put(playerName, ip, new Decision(result, message, indexVersion, deniedTtlMillis));
+    }
+
+    private void put(String playerName, String ip, Decision decision) {
+        if (maxSize <= 0 || decision.expiresAt <= System.currentTimeMillis()) {
+            return;
+        }
+        synchronized (entries) {
+            entries.put(key(playerName, ip), decision);
+        }
+    }
+
+    /**
+     * 清空所有缓存的结果
+     */
+    public void clear() {
+        synchronized (entries) {
+            entries.clear();
+        }
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public long getHits() {
+        return hits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String key(String playerName, String ip) {
+        return playerName.toLowerCase(Locale.ROOT) + '|' + ip;
+    }
+
+    /**
+     * 一次登录检查的最终结果
+     */
+    public static final class Decision {
+        private final Result result;
+        private final String message;
+        private final long indexVersion;
+        private final long expiresAt;
+
+        private Decision(Result result, String message, long indexVersion, long ttlMillis) {
+            this.result = result;
+            this.message = message;
+            this.indexVersion = indexVersion;
+            this.expiresAt = System.currentTimeMillis() + ttlMillis;
+        }
+
+        /**
+         * @return 是否拒绝登录
+         */
+        public boolean isDenied() {
+            return result != null;
+        }
+
+        public Result getResult() {
+            return result;
+        }
+
+        /**
+         * @return 预先渲染好的踢出消息，放行时为null
+         */
+        public String getMessage() {
+            return message;
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package org.a.banapi.listeners;
+
+import java.util.Locale;
+
+/**
+ * 无法在期限内完成封禁检查时的处理策略
+ */
+public enum LoginFailurePolicy {
+    /** 直接放行 */
+    ALLOW,
+    /** 拒绝登录 */
+    DENY,
+    /** 放行，并在下次同步成功后复查 */
+    ALLOW_AND_RECHECK;
+
+    /**
+     * 解析配置中的策略名称
+     * @param value 配置值，如 allow / deny / allow-and-recheck
+     * @return 对应的策略，无法识别时返回ALLOW_AND_RECHECK
+     */
+    public static LoginFailurePolicy fromConfig(String value) {
+        if (value == null) {
+            return ALLOW_AND_RECHECK;
+        }
+        try {
+            return valueOf(value.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        } catch (IllegalArgumentException e) {
+            return ALLOW_AND_RECHECK;
+        }
+    }
+}
@@ -3,113 +3,236 @@ package org.a.banapi.listeners;
 import org.a.banapi.Banapi;
 import org.a.banapi.api.APIService;
 import org.a.banapi.api.PublicAPIService;
+import org.a.banapi.cache.BanCache;
+import org.a.banapi.cache.BanIndex;
+import org.a.banapi.metrics.Histogram;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.PublicBanRecord;
+import org.a.banapi.util.BanMessageFormatter;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.player.PlayerLoginEvent;
-import org.bukkit.event.player.PlayerLoginEvent.Result;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent.Result;
 
+import java.io.InterruptedIOException;
 import java.net.InetAddress;
-import java.text.SimpleDateFormat;
-import java.util.Date;
-import java.util.List;
-import java.util.Map;
-import java.util.TimeZone;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
 /**
  * 处理玩家登录事件的监听器
+ * <p>
+ * 封禁检查在AsyncPlayerPreLoginEvent中进行，不占用服务器主线程。
  */
 public class PlayerLoginListener implements Listener {
     private final Banapi plugin;
     private final APIService apiService;
     private final PublicAPIService publicAPIService;
+    private final BanCache banCache;
     private final Logger logger;
+    private final LoginCheckStats stats = new LoginCheckStats();
+    private final LoginDecisionCache decisionCache;
+    private final Set<String> pendingRechecks = ConcurrentHashMap.newKeySet();
+    private final Histogram checkLatency;
+    private final BanMessageFormatter messageFormatter;
 
-    public PlayerLoginListener(Banapi plugin, APIService apiService, PublicAPIService publicAPIService) {
+    public PlayerLoginListener(Banapi plugin, APIService apiService, PublicAPIService publicAPIService, BanCache banCache) {
         this.plugin = plugin;
         this.apiService = apiService;
         this.publicAPIService = publicAPIService;
+        this.banCache = banCache;
         this.logger = Logger.getLogger("BanAPI");
+        this.decisionCache = new LoginDecisionCache(
+                plugin.getConfigManager().getDecisionCacheMaxSize(),
+                plugin.getConfigManager().getDecisionCacheDeniedTtl() * 1000L,
+                plugin.getConfigManager().getDecisionCacheAllowedTtl() * 1000L);
+        this.checkLatency = plugin.getMetrics().histogram("banapi_login_check_seconds", "登录封禁检查耗时");
+        this.messageFormatter = new BanMessageFormatter(plugin.getConfigManager().getBanMessageCacheSize());
     }
 
     @EventHandler
-    public void onPlayerLogin(PlayerLoginEvent event) {
-        String playerName = event.getPlayer().getName();
+    public void onAsyncPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != Result.ALLOWED) {
+            return;
+        }
+
+        long start = System.nanoTime();
+        try {
+            checkLogin(event);
+        } finally {
+            checkLatency.recordSince(start);
+        }
+    }
+
+    private void checkLogin(AsyncPlayerPreLoginEvent event) {
+        String playerName = event.getName();
         InetAddress address = event.getAddress();
         String ip = address.getHostAddress();
 
+        // 短时间内重复登录直接使用缓存的结果
+        LoginDecisionCache.Decision cached = decisionCache.get(playerName, ip, banCache.getVersion());
+        if (cached != null) {
+            if (cached.isDenied()) {
+                deny(event, playerName, cached.getResult(), cached.getMessage());
+            }
+            return;
+        }
+
         // 检查ID是否包含禁止关键词
         if (playerName.toLowerCase().contains("api")) {
-            if (plugin.getConfigManager().isBungeeEnabled() && plugin.getBungeeMessenger() != null) {
-                // 使用BungeeCord踢出玩家
-                plugin.getBungeeMessenger().kickPlayer(playerName, "§c您的游戏ID包含禁止使用的关键词 'API'\n§7请更换其他游戏ID后再尝试登录");
-                // 允许玩家登录到这个服务器，但会被BungeeCord立即踢出
-                event.allow();
-            } else {
-                // 使用原生方式踢出玩家
-                event.disallow(Result.KICK_OTHER, "§c您的游戏ID包含禁止使用的关键词 'API'\n§7请更换其他游戏ID后再尝试登录");
-            }
+            String message = "§c您的游戏ID包含禁止使用的关键词 'API'\n§7请更换其他游戏ID后再尝试登录";
+            decisionCache.putDenied(playerName, ip, banCache.getVersion(), Result.KICK_OTHER, message);
+            deny(event, playerName, Result.KICK_OTHER, message);
             return;
         }
 
+        // 先读版本再取索引：索引先于版本发布，期间的更新只会让缓存的结果被视为过期
+        long indexVersion = banCache.getVersion();
+        BanIndex index;
         try {
-            // 检查本地封禁API
-            List<Map<String, Object>> banList = apiService.getBans();
-            Map<String, Object> banInfo = findPlayerBan(banList, playerName);
-
-            if (banInfo != null) {
-                if (!isBanValid(banInfo)) {
-                    if (plugin.getConfigManager().isBungeeEnabled() && plugin.getBungeeMessenger() != null) {
-                        plugin.getBungeeMessenger().kickPlayer(playerName, "§c无法验证您的封禁状态\n§7请联系管理员");
-                        event.allow();
-                    } else {
-                        event.disallow(Result.KICK_BANNED, "§c无法验证您的封禁状态\n§7请联系管理员");
-                    }
-                    return;
-                }
+            index = resolveIndex();
+        } catch (InterruptedIOException e) {
+            stats.recordTimeout();
+            logger.warning("检查玩家 " + playerName + " 的封禁状态超时: " + e.getMessage());
+            applyFailurePolicy(event, playerName);
+            return;
+        } catch (Exception e) {
+            stats.recordError();
+            logger.log(Level.WARNING, "检查玩家 " + playerName + " 的封禁状态时出错", e);
+            applyFailurePolicy(event, playerName);
+            return;
+        }
 
-                if (!isBanReleased(banInfo)) {
-                    String banMessage = buildBanMessage(banInfo);
-                    
-                    if (plugin.getConfigManager().isBungeeEnabled() && plugin.getBungeeMessenger() != null) {
-                        plugin.getBungeeMessenger().kickPlayer(playerName, banMessage);
-                        event.allow();
-                    } else {
-                        event.disallow(Result.KICK_BANNED, banMessage);
-                    }
+        BanRecord banInfo = index.findByName(playerName);
+        if (banInfo != null) {
+            if (!isBanValid(banInfo)) {
+                String message = "§c无法验证您的封禁状态\n§7请联系管理员";
+                decisionCache.putDenied(playerName, ip, indexVersion, Result.KICK_BANNED, message);
+                deny(event, playerName, Result.KICK_BANNED, message);
+                return;
+            }
 
-                    // 广播封禁消息
-                    if (plugin.getConfigManager().isBanBroadcastEnabled()) {
-                        broadcastBanMessage(playerName, banInfo);
-                    }
-                    return;
+            if (!isBanLifted(banInfo)) {
+                stats.recordBanned();
+                String message = buildBanMessage(banInfo);
+                decisionCache.putDenied(playerName, ip, indexVersion, Result.KICK_BANNED, message);
+                deny(event, playerName, Result.KICK_BANNED, message);
+
+                // 广播封禁消息
+                if (plugin.getConfigManager().isBanBroadcastEnabled()) {
+                    broadcastBanMessage(playerName, banInfo);
                 }
+                return;
             }
+        }
 
-            // 检查公共封禁API
-            checkPublicBanAPI(event, playerName, ip);
+        decisionCache.putAllowed(playerName, ip, indexVersion);
 
-        } catch (Exception e) {
-            logger.log(Level.SEVERE, "处理玩家登录时出错", e);
-            event.allow();
+        // 检查公共封禁API
+        checkPublicBanAPI(playerName, address);
+    }
+
+    /**
+     * 获取用于本次检查的封禁索引
+     * <p>
+     * 索引已同步时直接使用；否则在配置的期限内回源拉取一次封禁列表并写入索引。
+     */
+    private BanIndex resolveIndex() throws Exception {
+        if (banCache.isLoaded()) {
+            stats.recordIndexLookup();
+            return banCache.current();
+        }
+
+        stats.recordFallbackLookup();
+        int timeout = plugin.getConfigManager().getLoginCheckTimeout();
+        return banCache.replace(apiService.getBans(timeout));
+    }
+
+    /**
+     * 按配置的失败策略处理无法完成的封禁检查
+     */
+    private void applyFailurePolicy(AsyncPlayerPreLoginEvent event, String playerName) {
+        LoginFailurePolicy policy = LoginFailurePolicy.fromConfig(plugin.getConfigManager().getLoginFailurePolicy());
+        switch (policy) {
+            case DENY:
+                stats.recordFailClosed();
+                event.disallow(Result.KICK_OTHER, "§c暂时无法验证您的封禁状态\n§7请稍后再试");
+                break;
+            case ALLOW_AND_RECHECK:
+                stats.recordFailOpen();
+                stats.recordRecheckScheduled();
+                pendingRechecks.add(playerName);
+                break;
+            case ALLOW:
+            default:
+                stats.recordFailOpen();
+                break;
+        }
+    }
+
+    /**
+     * 对因检查失败而被放行的玩家进行复查，应在封禁索引同步成功后调用
+     */
+    public void recheckPending() {
+        if (pendingRechecks.isEmpty()) {
+            return;
+        }
+
+        BanIndex index = banCache.current();
+        Set<String> names = new HashSet<>(pendingRechecks);
+        pendingRechecks.removeAll(names);
+
+        for (String playerName : names) {
+            BanRecord banInfo = index.findByName(playerName);
+            if (banInfo == null || !isBanValid(banInfo) || isBanLifted(banInfo)) {
+                continue;
+            }
+
+            String banMessage = buildBanMessage(banInfo);
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                Player player = Bukkit.getPlayerExact(playerName);
+                if (player != null) {
+                    stats.recordRecheckKicked();
+                    player.kickPlayer(banMessage);
+                }
+            });
+        }
+    }
+
+    /**
+     * 拒绝玩家登录，启用BungeeCord时交由代理端踢出
+     * <p>
+     * 插件消息需要借助一个在线玩家发送，本服没有在线玩家时直接在本服拒绝登录。
+     */
+    private void deny(AsyncPlayerPreLoginEvent event, String playerName, Result result, String message) {
+        if (plugin.getConfigManager().isBungeeEnabled() && plugin.getBungeeMessenger() != null
+                && !Bukkit.getOnlinePlayers().isEmpty()) {
+            // 允许玩家登录到这个服务器，但会被BungeeCord立即踢出
+            Bukkit.getScheduler().runTask(plugin, () -> plugin.getBungeeMessenger().kickPlayer(playerName, message));
+        } else {
+            event.disallow(result, message);
         }
     }
     
     /**
      * 检查玩家是否在公共封禁API中
-     * @param event 登录事件
      * @param playerName 玩家名称
-     * @param ip 玩家IP
+     * @param address 玩家地址
      */
-    private void checkPublicBanAPI(PlayerLoginEvent event, String playerName, String ip) {
+    private void checkPublicBanAPI(String playerName, InetAddress address) {
+        // 公共API只是警告不阻止，异步检查避免拖慢登录
         try {
-            // 异步检查，避免阻塞主线程
-            plugin.getServer().getScheduler().runTaskAsynchronously(plugin, () -> {
+            plugin.getIoExecutor().execute(() -> {
                 try {
+                    String ip = address.getHostAddress();
                     // 检查玩家名称
-                    Map<String, Object> playerBanInfo = publicAPIService.checkPlayerBan(playerName);
+                    PublicBanRecord playerBanInfo = publicAPIService.checkPlayerBan(playerName);
                     if (playerBanInfo != null) {
                         // 记录警告日志
                         publicAPIService.logWarning(playerName, ip, playerBanInfo);
@@ -119,7 +242,7 @@ public class PlayerLoginListener implements Listener {
                     }
                     
                     // 检查IP地址
-                    Map<String, Object> ipBanInfo = publicAPIService.checkIpBan(ip);
+                    PublicBanRecord ipBanInfo = publicAPIService.checkIpBan(address);
                     if (ipBanInfo != null && playerBanInfo == null) { // 避免重复通知
                         // 记录警告日志
                         publicAPIService.logWarning(playerName, ip, ipBanInfo);
@@ -131,99 +254,95 @@ public class PlayerLoginListener implements Listener {
                     logger.log(Level.WARNING, "检查公共封禁API时出错", e);
                 }
             });
-            
-            // 允许玩家登录，因为公共API只是警告不阻止
-            event.allow();
-            
-        } catch (Exception e) {
-            logger.log(Level.WARNING, "处理公共封禁API检查时出错", e);
-            event.allow(); // 出错时允许登录
+        } catch (RejectedExecutionException e) {
+            // I/O线程池已满时跳过这次只作提示的检查，不影响登录
+            logger.fine("I/O线程池已满，跳过玩家 " + playerName + " 的公共封禁检查");
         }
     }
 
-    private Map<String, Object> findPlayerBan(List<Map<String, Object>> banList, String playerName) {
-        return banList.stream()
-                .filter(ban -> playerName.equalsIgnoreCase((String) ban.get("nickname")))
-                .findFirst()
-                .orElse(null);
-    }
-
-    private boolean isBanValid(Map<String, Object> banInfo) {
-        return banInfo.containsKey("isReleased") && banInfo.containsKey("isPermanent");
-    }
-
-    private boolean isBanReleased(Map<String, Object> banInfo) {
-        return Boolean.TRUE.equals(banInfo.get("isReleased"));
-    }
-
-    private String buildBanMessage(Map<String, Object> banInfo) {
-        // 获取配置的封禁消息格式
-        String messageFormat = plugin.getConfigManager().getBanMessageFormat();
-        
-        // 获取封禁信息
-        int id = ((Number) banInfo.getOrDefault("id", 0)).intValue();
-        String reason = (String) banInfo.getOrDefault("reason", "违反服务器规则");
-        String admin = (String) banInfo.getOrDefault("admin", "系统");
-        boolean permanent = Boolean.TRUE.equals(banInfo.get("isPermanent"));
-        String startTime = formatTime((String) banInfo.getOrDefault("startTime", "未知时间"));
-        String endTime = permanent ? "永久" : formatTime((String) banInfo.getOrDefault("endTime", "未知"));
-        String banType = permanent ? "永久封禁" : "临时封禁";
-        
-        // 替换占位符
-        return messageFormat
-            .replace("{id}", String.valueOf(id))
-            .replace("{reason}", reason)
-            .replace("{admin}", admin)
-            .replace("{startTime}", startTime)
-            .replace("{endTime}", endTime)
-            .replace("{banType}", banType)
-            .replace("{isPermanent}", String.valueOf(permanent));
-    }
-    
     /**
-     * 格式化时间为更易读的格式
+     * 玩家在本服在线且封禁有效时将其踢出，用于批量导入和其他子服同步过来的封禁
+     * @param banInfo 封禁记录
      */
-    private String formatTime(String timeStr) {
-        if (timeStr == null || timeStr.equals("未知时间") || timeStr.equals("未知")) {
-            return timeStr;
-        }
-        
-        try {
-            // 将ISO 8601格式转换为更易读的格式
-            SimpleDateFormat isoFormat = new SimpleDateFormat("yyyy-MM-dd'T'HH:mm:ss.SSS'Z'");
-            isoFormat.setTimeZone(TimeZone.getTimeZone("UTC"));
-            
-            SimpleDateFormat outputFormat = new SimpleDateFormat("yyyy-MM-dd HH:mm:ss");
-            Date date = isoFormat.parse(timeStr);
-            return outputFormat.format(date);
-        } catch (Exception e) {
-            return timeStr; // 如果解析失败，返回原始字符串
+    public void kickIfBanned(BanRecord banInfo) {
+        String playerName = banInfo.getNickname();
+        if (playerName == null || !isBanValid(banInfo) || isBanLifted(banInfo)) {
+            return;
         }
+
+        String banMessage = buildBanMessage(banInfo);
+        Bukkit.getScheduler().runTask(plugin, () -> {
+            Player player = Bukkit.getPlayerExact(playerName);
+            if (player != null) {
+                player.kickPlayer(banMessage);
+            }
+        });
+    }
+
+    private boolean isBanValid(BanRecord banInfo) {
+        return banInfo.hasStatus();
+    }
+
+    /**
+     * 封禁已解除，或者临时封禁已经到期（时间轮清理前的这段时间也按到期处理）
+     */
+    private boolean isBanLifted(BanRecord banInfo) {
+        return banInfo.isReleased() || banInfo.isExpiredAt(System.currentTimeMillis());
     }
 
-    private void broadcastBanMessage(String playerName, Map<String, Object> banInfo) {
+    private String buildBanMessage(BanRecord banInfo) {
+        return messageFormatter.format(plugin.getConfigManager().getBanMessageTemplate(), banInfo);
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+    
+    private void broadcastBanMessage(String playerName, BanRecord banInfo) {
         // 检查是否已经公告过
         if (plugin.getNotifiedBans().contains(playerName)) {
             return;
         }
 
-        Bukkit.getScheduler().runTaskAsynchronously(plugin, () -> {
-            try {
-                Map<String, Object> stats = apiService.getStats();
-                String message = plugin.getConfigManager().getBanBroadcastFormat()
-                        .replace("{nickname}", playerName)
-                        .replace("{reason}", (String) banInfo.getOrDefault("reason", "无"))
-                        .replace("{admin}", (String) banInfo.getOrDefault("admin", "系统"))
-                        .replace("{total}", String.valueOf(stats.get("total")));
-
-                // 标记为已公告
-                plugin.getNotifiedBans().add(playerName);
-
-                Bukkit.getScheduler().runTask(plugin, () ->
-                        Bukkit.broadcastMessage(message));
-            } catch (Exception e) {
-                logger.log(Level.WARNING, "广播封禁消息时出错", e);
-            }
+        apiService.getStatsAsync().thenAccept(stats -> {
+            String message = plugin.getConfigManager().getBanBroadcastTemplate().render(
+                    playerName,
+                    orDefault(banInfo.getReason(), "无"),
+                    orDefault(banInfo.getAdmin(), "系统"),
+                    String.valueOf(stats.get("total")));
+
+            // 标记为已公告
+            plugin.getNotifiedBans().add(playerName);
+
+            Bukkit.getScheduler().runTask(plugin, () ->
+                    Bukkit.broadcastMessage(message));
+        }).exceptionally(e -> {
+            logger.log(Level.WARNING, "广播封禁消息时出错", e);
+            return null;
         });
     }
+
+    /**
+     * 获取封禁消息缓存
+     * @return 封禁消息生成器
+     */
+    public BanMessageFormatter getMessageFormatter() {
+        return messageFormatter;
+    }
+
+    /**
+     * 获取登录结果缓存
+     * @return 登录结果缓存
+     */
+    public LoginDecisionCache getDecisionCache() {
+        return decisionCache;
+    }
+
+    /**
+     * 获取登录检查计数器
+     * @return 登录检查计数器
+     */
+    public LoginCheckStats getStats() {
+        return stats;
+    }
 }
\ No newline at end of file
@@ -0,0 +1,25 @@
+package org.a.banapi.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 只增计数器，基于LongAdder，高并发下写入无竞争
+ */
+public final class Counter {
+    private final LongAdder value = new LongAdder();
+
+    Counter() {
+    }
+
+    public void increment() {
+        value.increment();
+    }
+
+    public void add(long amount) {
+        value.add(amount);
+    }
+
+    public long get() {
+        return value.sum();
+    }
+}
@@ -0,0 +1,219 @@
+package org.a.banapi.metrics;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.DoubleSupplier;
+
+/**
+ * 插件内的指标注册表
+ * <p>
+ * 计数器和直方图在热路径上只做无锁的累加；仪表（gauge）在读取时才调用提供函数，
+ * 用于导出已有组件内部的计数。指标按名称和标签排序，便于输出。
+ */
+public final class MetricsRegistry {
+    private static final double[] QUANTILES = {0.5, 0.9, 0.95, 0.99};
+
+    private final Map<String, Metric> metrics = new ConcurrentSkipListMap<>();
+
+    public enum Type {
+        COUNTER, GAUGE, HISTOGRAM
+    }
+
+    /**
+     * 已注册的指标
+     */
+    public static final class Metric {
+        private final String name;
+        private final String labels;
+        private final String help;
+        private final Type type;
+        private final Counter counter;
+        private final Histogram histogram;
+        private final DoubleSupplier gauge;
+
+        private Metric(String name, String labels, String help, Type type,
+                       Counter counter, Histogram histogram, DoubleSupplier gauge) {
+            this.name = name;
+            this.labels = labels;
+            this.help = help;
+            this.type = type;
+            this.counter = counter;
+            this.histogram = histogram;
+            this.gauge = gauge;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /** @return Prometheus格式的标签，例如 {operation="getBans"}，没有标签时为空字符串 */
+        public String getLabels() {
+            return labels;
+        }
+
+        public String getHelp() {
+            return help;
+        }
+
+        public Type getType() {
+            return type;
+        }
+
+        /** @return 计数器或仪表的当前值，直方图返回记录次数 */
+        public double getValue() {
+            if (gauge != null) {
+                return gauge.getAsDouble();
+            }
+            return type == Type.COUNTER ? counter.get() : histogram.snapshot().getCount();
+        }
+
+        /** @return 直方图，非直方图指标返回null */
+        public Histogram getHistogram() {
+            return histogram;
+        }
+    }
+
+    /**
+     * 获取或创建计数器
+     * @param name 指标名
+     * @param help 说明
+     * @param labels 标签，按 键, 值, 键, 值 ... 的顺序
+     * @return 计数器
+     */
+    public Counter counter(String name, String help, String... labels) {
+        return register(name, help, Type.COUNTER, labels, null).counter;
+    }
+
+    /**
+     * 获取或创建直方图，单位为微秒，导出为秒
+     * @param name 指标名，应以 _seconds 结尾
+     * @param help 说明
+     * @param labels 标签，按 键, 值, 键, 值 ... 的顺序
+     * @return 直方图
+     */
+    public Histogram histogram(String name, String help, String... labels) {
+        return register(name, help, Type.HISTOGRAM, labels, null).histogram;
+    }
+
+    /**
+     * 注册仪表，已存在同名同标签的仪表时替换
+     * @param name 指标名
+     * @param help 说明
+     * @param value 读取当前值的函数
+     * @param labels 标签，按 键, 值, 键, 值 ... 的顺序
+     */
+    public void gauge(String name, String help, DoubleSupplier value, String... labels) {
+        String labelText = formatLabels(labels);
+        metrics.put(name + labelText, new Metric(name, labelText, help, Type.GAUGE, null, null, value));
+    }
+
+    /**
+     * 注册由已有组件维护的只增计数，读取时调用提供函数；已存在同名同标签的指标时替换
+     * @param name 指标名，应以 _total 结尾
+     * @param help 说明
+     * @param value 读取当前值的函数
+     * @param labels 标签，按 键, 值, 键, 值 ... 的顺序
+     */
+    public void functionCounter(String name, String help, DoubleSupplier value, String... labels) {
+        String labelText = formatLabels(labels);
+        metrics.put(name + labelText, new Metric(name, labelText, help, Type.COUNTER, null, null, value));
+    }
+
+    private Metric register(String name, String help, Type type, String[] labels, DoubleSupplier gauge) {
+        String labelText = formatLabels(labels);
+        Metric metric = metrics.computeIfAbsent(name + labelText, key -> new Metric(name, labelText, help, type,
+                type == Type.COUNTER ? new Counter() : null,
+                type == Type.HISTOGRAM ? new Histogram() : null,
+                gauge));
+        if (metric.type != type) {
+            throw new IllegalArgumentException("指标 " + name + " 已注册为 " + metric.type);
+        }
+        return metric;
+    }
+
+    /**
+     * @return 所有指标，按名称和标签排序
+     */
+    public List<Metric> getMetrics() {
+        return new ArrayList<>(metrics.values());
+    }
+
+    /**
+     * 以Prometheus文本格式导出所有指标，直方图导出为summary
+     * @return 导出文本
+     */
+    public String toPrometheus() {
+        StringBuilder out = new StringBuilder(4096);
+        String lastName = null;
+        for (Metric metric : metrics.values()) {
+            if (!metric.name.equals(lastName)) {
+                out.append("# HELP ").append(metric.name).append(' ').append(metric.help).append('\n');
+                out.append("# TYPE ").append(metric.name).append(' ').append(prometheusType(metric.type)).append('\n');
+                lastName = metric.name;
+            }
+
+            if (metric.type != Type.HISTOGRAM) {
+                out.append(metric.name).append(metric.labels).append(' ')
+                        .append(formatValue(metric.getValue())).append('\n');
+                continue;
+            }
+
+            Histogram.Snapshot snapshot = metric.histogram.snapshot();
+            for (double quantile : QUANTILES) {
+                out.append(metric.name).append(withLabel(metric.labels, "quantile", String.valueOf(quantile))).append(' ')
+                        .append(formatValue(snapshot.quantile(quantile) / 1_000_000.0)).append('\n');
+            }
+            out.append(metric.name).append("_sum").append(metric.labels).append(' ')
+                    .append(formatValue(snapshot.getSum() / 1_000_000.0)).append('\n');
+            out.append(metric.name).append("_count").append(metric.labels).append(' ')
+                    .append(snapshot.getCount()).append('\n');
+        }
+        return out.toString();
+    }
+
+    private static String prometheusType(Type type) {
+        switch (type) {
+            case COUNTER:
+                return "counter";
+            case GAUGE:
+                return "gauge";
+            default:
+                return "summary";
+        }
+    }
+
+    private static String formatLabels(String[] labels) {
+        if (labels.length == 0) {
+            return "";
+        }
+        if (labels.length % 2 != 0) {
+            throw new IllegalArgumentException("标签必须成对出现");
+        }
+        StringBuilder out = new StringBuilder("{");
+        for (int i = 0; i < labels.length; i += 2) {
+            if (i > 0) {
+                out.append(',');
+            }
+            out.append(labels[i]).append("=\"").append(escape(labels[i + 1])).append('"');
+        }
+        return out.append('}').toString();
+    }
+
+    private static String withLabel(String labels, String key, String value) {
+        String label = key + "=\"" + value + '"';
+        return labels.isEmpty() ? "{" + label + "}" : labels.substring(0, labels.length() - 1) + "," + label + "}";
+    }
+
+    private static String escape(String value) {
+        return value.replace("\\", "\\\\").replace("\"", "\\\"").replace("\n", "\\n");
+    }
+
+    private static String formatValue(double value) {
+        if (value == Math.rint(value) && !Double.isInfinite(value)) {
+            return String.valueOf((long) value);
+        }
+        return String.valueOf(value);
+    }
+}
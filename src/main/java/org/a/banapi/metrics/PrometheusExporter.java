@@ -0,0 +1,55 @@
+package org.a.banapi.metrics;
+
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 以Prometheus文本格式提供指标的HTTP服务，只监听本机回环地址
+ */
+public final class PrometheusExporter {
+    private final HttpServer server;
+
+    /**
+     * 创建并启动服务
+     * @param registry 指标注册表
+     * @param port 监听端口
+     * @throws IOException 如果端口无法监听
+     */
+    public PrometheusExporter(MetricsRegistry registry, int port) throws IOException {
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/metrics", exchange -> {
+            try {
+                if (!"GET".equals(exchange.getRequestMethod())) {
+                    exchange.sendResponseHeaders(405, -1);
+                    return;
+                }
+                byte[] body = registry.toPrometheus().getBytes(StandardCharsets.UTF_8);
+                exchange.getResponseHeaders().set("Content-Type", "text/plain; version=0.0.4; charset=utf-8");
+                exchange.sendResponseHeaders(200, body.length);
+                try (OutputStream out = exchange.getResponseBody()) {
+                    out.write(body);
+                }
+            } finally {
+                exchange.close();
+            }
+        });
+        server.start();
+    }
+
+    /**
+     * 停止服务
+     */
+    public void stop() {
+        server.stop(0);
+    }
+
+    /** @return 实际监听的端口 */
+    public int getPort() {
+        return server.getAddress().getPort();
+    }
+}
@@ -0,0 +1,169 @@
+package org.a.banapi.model;
+
+import org.a.banapi.util.TimeFormats;
+
+import java.util.Locale;
+
+/**
+ * BanAPIService返回的一条封禁记录
+ * <p>
+ * 不可变对象。构造时即完成时间解析和玩家名小写化，登录检查、消息渲染和命令显示
+ * 直接使用预先计算好的字段。
+ */
+public final class BanRecord {
+    private final int id;
+    private final boolean hasId;
+    private final String nickname;
+    private final String nicknameKey;
+    private final String reason;
+    private final String admin;
+    private final boolean permanent;
+    private final boolean released;
+    private final boolean hasStatus;
+    private final String startTime;
+    private final String endTime;
+    private final String updatedAt;
+    private final long startMillis;
+    private final long endMillis;
+
+    // 显示用时间在首次使用时计算，多线程重复计算结果相同
+    private String startTimeDisplay;
+    private String endTimeDisplay;
+
+    /**
+     * @param id 封禁ID，缺失时为null
+     * @param permanent 是否永久封禁，缺失时为null
+     * @param released 是否已解除，缺失时为null
+     */
+    public BanRecord(Integer id, String nickname, String reason, String admin,
+                     Boolean permanent, Boolean released,
+                     String startTime, String endTime, String updatedAt) {
+        this.id = id != null ? id : 0;
+        this.hasId = id != null;
+        this.nickname = nickname;
+        this.nicknameKey = nickname != null ? nickname.toLowerCase(Locale.ROOT) : null;
+        this.reason = reason;
+        this.admin = admin;
+        this.permanent = Boolean.TRUE.equals(permanent);
+        this.released = Boolean.TRUE.equals(released);
+        this.hasStatus = permanent != null && released != null;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.updatedAt = updatedAt;
+        this.startMillis = TimeFormats.parseEpochMillis(startTime);
+        this.endMillis = TimeFormats.parseEpochMillis(endTime);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    /**
+     * @return 记录中是否包含封禁ID
+     */
+    public boolean hasId() {
+        return hasId;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    /**
+     * @return 小写的玩家名，用于索引查找
+     */
+    public String getNicknameKey() {
+        return nicknameKey;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getAdmin() {
+        return admin;
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    public boolean isReleased() {
+        return released;
+    }
+
+    /**
+     * @return 记录中是否同时包含isPermanent和isReleased字段
+     */
+    public boolean hasStatus() {
+        return hasStatus;
+    }
+
+    public String getStartTime() {
+        return startTime;
+    }
+
+    public String getEndTime() {
+        return endTime;
+    }
+
+    public String getUpdatedAt() {
+        return updatedAt;
+    }
+
+    /**
+     * @return 封禁开始时间的毫秒时间戳，缺失或无法解析时为TimeFormats.UNKNOWN
+     */
+    public long getStartMillis() {
+        return startMillis;
+    }
+
+    /**
+     * @return 封禁结束时间的毫秒时间戳，缺失或无法解析时为TimeFormats.UNKNOWN
+     */
+    public long getEndMillis() {
+        return endMillis;
+    }
+
+    /**
+     * @return 显示用的开始时间，无法解析时返回原始字符串
+     */
+    public String getStartTimeDisplay() {
+        String display = startTimeDisplay;
+        if (display == null && startTime != null) {
+            display = TimeFormats.display(startTime, startMillis);
+            startTimeDisplay = display;
+        }
+        return display;
+    }
+
+    /**
+     * @return 显示用的结束时间，无法解析时返回原始字符串
+     */
+    public String getEndTimeDisplay() {
+        String display = endTimeDisplay;
+        if (display == null && endTime != null) {
+            display = TimeFormats.display(endTime, endMillis);
+            endTimeDisplay = display;
+        }
+        return display;
+    }
+
+    /**
+     * 判断临时封禁在给定时间是否已到期
+     * @param nowMillis 当前时间
+     * @return 是否为已到期的临时封禁
+     */
+    public boolean isExpiredAt(long nowMillis) {
+        return !permanent && endMillis != TimeFormats.UNKNOWN && endMillis <= nowMillis;
+    }
+
+    /**
+     * @return 除isReleased为true外与当前记录相同的新记录
+     */
+    public BanRecord asReleased() {
+        return new BanRecord(hasId ? id : null, nickname, reason, admin,
+                hasStatus ? permanent : null, hasStatus ? Boolean.TRUE : null,
+                startTime, endTime, updatedAt);
+    }
+}
@@ -0,0 +1,43 @@
+package org.a.banapi.model;
+
+/**
+ * 待提交的新封禁，字段与 POST /ban 的请求体一致
+ */
+public final class NewBan {
+    private final String nickname;
+    private final String reason;
+    private final String admin;
+    private final boolean permanent;
+    private final Long duration;
+
+    /**
+     * @param duration 临时封禁时长（毫秒），永久封禁时为null
+     */
+    public NewBan(String nickname, String reason, String admin, boolean permanent, Long duration) {
+        this.nickname = nickname;
+        this.reason = reason;
+        this.admin = admin;
+        this.permanent = permanent;
+        this.duration = duration;
+    }
+
+    public String getNickname() {
+        return nickname;
+    }
+
+    public String getReason() {
+        return reason;
+    }
+
+    public String getAdmin() {
+        return admin;
+    }
+
+    public boolean isPermanent() {
+        return permanent;
+    }
+
+    public Long getDuration() {
+        return duration;
+    }
+}
@@ -0,0 +1,80 @@
+package org.a.banapi.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 分页查询的一页结果
+ * @param <T> 记录类型
+ */
+public final class Page<T> {
+    private final List<T> items;
+    private final int page;
+    private final int size;
+    private final long total;
+
+    /**
+     * @param items 本页记录
+     * @param page 页码，从1开始
+     * @param size 每页条数
+     * @param total 总条数，未知时为-1
+     */
+    public Page(List<T> items, int page, int size, long total) {
+        this.items = items != null ? Collections.unmodifiableList(items) : Collections.emptyList();
+        this.page = page;
+        this.size = size;
+        this.total = total;
+    }
+
+    /**
+     * 从完整列表中截取一页，不复制记录
+     * @param all 完整列表
+     * @param page 页码，从1开始，超出范围时取最后一页
+     * @param size 每页条数
+     * @return 分页结果
+     */
+    public static <T> Page<T> slice(List<T> all, int page, int size) {
+        int pages = Math.max(1, (all.size() + size - 1) / size);
+        int current = Math.max(1, Math.min(page, pages));
+        int from = (current - 1) * size;
+        int to = Math.min(all.size(), from + size);
+        return new Page<>(all.subList(from, to), current, size, all.size());
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return 总条数，未知时为-1
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    /**
+     * @return 总页数，总条数未知时为-1
+     */
+    public int getTotalPages() {
+        return total < 0 ? -1 : (int) Math.max(1, (total + size - 1) / size);
+    }
+
+    public boolean hasPrevious() {
+        return page > 1;
+    }
+
+    /**
+     * 总条数未知时，本页已满即认为还有下一页
+     */
+    public boolean hasNext() {
+        return total < 0 ? items.size() >= size : page < getTotalPages();
+    }
+}
@@ -0,0 +1,37 @@
+package org.a.banapi.model;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 公共封禁API返回的完整数据
+ */
+public final class PublicBanData {
+    private final List<PublicBanRecord> activePlayers;
+    private final List<PublicBanRecord> activeIps;
+    private final long playerCount;
+    private final long ipCount;
+
+    public PublicBanData(List<PublicBanRecord> activePlayers, List<PublicBanRecord> activeIps, long playerCount, long ipCount) {
+        this.activePlayers = activePlayers != null ? Collections.unmodifiableList(activePlayers) : Collections.emptyList();
+        this.activeIps = activeIps != null ? Collections.unmodifiableList(activeIps) : Collections.emptyList();
+        this.playerCount = playerCount;
+        this.ipCount = ipCount;
+    }
+
+    public List<PublicBanRecord> getActivePlayers() {
+        return activePlayers;
+    }
+
+    public List<PublicBanRecord> getActiveIps() {
+        return activeIps;
+    }
+
+    public long getPlayerCount() {
+        return playerCount;
+    }
+
+    public long getIpCount() {
+        return ipCount;
+    }
+}
@@ -0,0 +1,85 @@
+package org.a.banapi.model;
+
+import org.a.banapi.util.TimeFormats;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 公共封禁列表中的一条记录，玩家封禁与IP封禁共用
+ * <p>
+ * 不可变对象，玩家名的小写形式和时间戳在构造时计算。
+ */
+public final class PublicBanRecord {
+    private final String username;
+    private final String usernameKey;
+    private final String ip;
+    private final String cause;
+    private final String timestamp;
+    private final List<String> players;
+    private final long timestampMillis;
+
+    // 显示用时间在首次使用时计算，多线程重复计算结果相同
+    private String timestampDisplay;
+
+    /**
+     * @param username 玩家名，IP封禁记录为null
+     * @param players IP封禁关联的玩家，玩家封禁记录为空
+     */
+    public PublicBanRecord(String username, String ip, String cause, String timestamp, List<String> players) {
+        this.username = username;
+        this.usernameKey = username != null ? username.toLowerCase(Locale.ROOT) : null;
+        this.ip = ip;
+        this.cause = cause;
+        this.timestamp = timestamp;
+        this.players = players != null ? Collections.unmodifiableList(players) : Collections.emptyList();
+        this.timestampMillis = TimeFormats.parseEpochMillis(timestamp);
+    }
+
+    public String getUsername() {
+        return username;
+    }
+
+    /**
+     * @return 小写的玩家名，用于索引查找
+     */
+    public String getUsernameKey() {
+        return usernameKey;
+    }
+
+    public String getIp() {
+        return ip;
+    }
+
+    public String getCause() {
+        return cause;
+    }
+
+    public String getTimestamp() {
+        return timestamp;
+    }
+
+    public List<String> getPlayers() {
+        return players;
+    }
+
+    /**
+     * @return 封禁时间的毫秒时间戳，缺失或无法解析时为TimeFormats.UNKNOWN
+     */
+    public long getTimestampMillis() {
+        return timestampMillis;
+    }
+
+    /**
+     * @return 显示用的封禁时间，无法解析时返回原始字符串
+     */
+    public String getTimestampDisplay() {
+        String display = timestampDisplay;
+        if (display == null && timestamp != null) {
+            display = TimeFormats.display(timestamp, timestampMillis);
+            timestampDisplay = display;
+        }
+        return display;
+    }
+}
@@ -0,0 +1,25 @@
+package org.a.banapi.model;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * 解码一批记录时使用的字符串字典，使重复出现的原因、管理员等字符串共享同一实例
+ * <p>
+ * 只在单次解码期间使用，不需要线程安全，也不会无限增长。
+ */
+public final class StringPool {
+    private final Map<String, String> pool = new HashMap<>();
+
+    /**
+     * @param value 字符串
+     * @return 字典中与之相等的实例，首次出现时返回其本身
+     */
+    public String intern(String value) {
+        if (value == null) {
+            return null;
+        }
+        String existing = pool.putIfAbsent(value, value);
+        return existing != null ? existing : value;
+    }
+}
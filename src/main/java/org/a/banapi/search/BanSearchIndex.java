@@ -0,0 +1,53 @@
+package org.a.banapi.search;
+
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.model.PublicBanData;
+import org.a.banapi.model.PublicBanRecord;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 封禁列表和公共封禁列表的搜索字段定义
+ */
+public final class BanSearchIndex {
+    private BanSearchIndex() {
+    }
+
+    /**
+     * 本服封禁记录：admin、player、reason、status(active/released)、type(perm/temp)，按开始时间筛选
+     * @param records 封禁记录
+     * @return 搜索索引
+     */
+    public static SearchIndex<BanRecord> forBans(List<BanRecord> records) {
+        return SearchIndex.<BanRecord>builder()
+                .keyword("admin", BanRecord::getAdmin)
+                .keyword("player", BanRecord::getNicknameKey)
+                .text("reason", BanRecord::getReason)
+                .flag("status", "active", ban -> ban.hasStatus() && !ban.isReleased())
+                .flag("status", "released", BanRecord::isReleased)
+                .flag("type", "perm", BanRecord::isPermanent)
+                .flag("type", "temp", ban -> !ban.isPermanent())
+                .time(BanRecord::getStartMillis)
+                .build(records);
+    }
+
+    /**
+     * 公共封禁记录：player、ip、reason、type(player/ip)，按封禁时间筛选
+     * @param data 公共封禁数据
+     * @return 搜索索引
+     */
+    public static SearchIndex<PublicBanRecord> forPublicBans(PublicBanData data) {
+        List<PublicBanRecord> records = new ArrayList<>(data.getActivePlayers().size() + data.getActiveIps().size());
+        records.addAll(data.getActivePlayers());
+        records.addAll(data.getActiveIps());
+        return SearchIndex.<PublicBanRecord>builder()
+                .keyword("player", PublicBanRecord::getUsernameKey)
+                .keyword("ip", PublicBanRecord::getIp)
+                .text("reason", PublicBanRecord::getCause)
+                .flag("type", "player", record -> record.getUsername() != null)
+                .flag("type", "ip", record -> record.getIp() != null)
+                .time(PublicBanRecord::getTimestampMillis)
+                .build(records);
+    }
+}
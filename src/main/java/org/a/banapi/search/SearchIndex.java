@@ -0,0 +1,436 @@
+package org.a.banapi.search;
+
+import org.a.banapi.util.TimeFormats;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeSet;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.function.ToLongFunction;
+
+/**
+ * 不可变的本地搜索索引
+ * <p>
+ * 关键字字段（如管理员）和文本字段（如原因）使用倒排表，文本按字符及相邻字符对切分，
+ * 因此中英文都支持子串查询；状态、类型等标记使用BitSet；时间字段按时间排序。
+ * 查询时先取最短的倒排表，再与其他倒排表求交，最后用BitSet和时间范围过滤，不扫描全部记录。
+ * @param <T> 记录类型
+ */
+public final class SearchIndex<T> {
+    private static final int[] NO_POSTINGS = new int[0];
+
+    private final List<T> records;
+    private final Map<String, Map<String, int[]>> keywords;
+    private final Map<String, TextField> texts;
+    private final Map<String, Map<String, BitSet>> flags;
+    private final long[] times;
+    private final long[] sortedTimes;
+    private final int[] sortedPositions;
+
+    private SearchIndex(List<T> records,
+                        Map<String, Map<String, int[]>> keywords,
+                        Map<String, TextField> texts,
+                        Map<String, Map<String, BitSet>> flags,
+                        long[] times, long[] sortedTimes, int[] sortedPositions) {
+        this.records = records;
+        this.keywords = keywords;
+        this.texts = texts;
+        this.flags = flags;
+        this.times = times;
+        this.sortedTimes = sortedTimes;
+        this.sortedPositions = sortedPositions;
+    }
+
+    public static <T> Builder<T> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * 执行查询
+     * @param query 搜索条件
+     * @return 匹配的记录，顺序与构建索引时的记录顺序一致
+     * @throws IllegalArgumentException 如果使用了索引不支持的字段或取值
+     */
+    public List<T> search(SearchQuery query) {
+        List<int[]> postings = new ArrayList<>();
+        List<BitSet> masks = new ArrayList<>();
+        List<TextFilter> verifications = new ArrayList<>();
+
+        for (SearchQuery.Clause clause : query.getClauses()) {
+            String field = clause.getField();
+            String value = clause.getValue();
+            if (keywords.containsKey(field)) {
+                postings.add(keywords.get(field).getOrDefault(value, NO_POSTINGS));
+            } else if (texts.containsKey(field)) {
+                TextField text = texts.get(field);
+                List<String> tokens = queryTokens(value);
+                for (String token : tokens) {
+                    postings.add(text.tokens.getOrDefault(token, NO_POSTINGS));
+                }
+                // 相邻字符对都出现不代表子串出现，对候选记录再做一次确认
+                if (value.length() > 2 || tokens.isEmpty()) {
+                    verifications.add(new TextFilter(text.values, value));
+                }
+            } else if (flags.containsKey(field)) {
+                BitSet mask = flags.get(field).get(value);
+                if (mask == null) {
+                    throw new IllegalArgumentException("条件 " + field + " 只支持: " + String.join(", ", flags.get(field).keySet()));
+                }
+                masks.add(mask);
+            } else {
+                throw new IllegalArgumentException("不支持的查询条件: " + field + "，可用: " + String.join(", ", getFields()));
+            }
+        }
+
+        long since = query.getSince();
+        long until = query.getUntil();
+        boolean timeFilter = query.hasTimeRange();
+        if (timeFilter && times == null) {
+            throw new IllegalArgumentException("该列表不支持按时间筛选");
+        }
+
+        List<T> result = new ArrayList<>();
+        if (!postings.isEmpty()) {
+            for (int position : intersect(postings)) {
+                if (accept(position, masks, verifications, timeFilter, since, until)) {
+                    result.add(records.get(position));
+                }
+            }
+            return result;
+        }
+
+        BitSet candidates;
+        if (timeFilter) {
+            // 只有时间和标记条件时，用排序后的时间索引确定候选范围
+            candidates = new BitSet(records.size());
+            // 时间未知的记录排在最前面，不参与时间筛选
+            int from = Math.max(lowerBound(sortedTimes, since), lowerBound(sortedTimes, TimeFormats.UNKNOWN + 1));
+            int to = lowerBound(sortedTimes, until);
+            for (int i = from; i < to; i++) {
+                candidates.set(sortedPositions[i]);
+            }
+        } else {
+            candidates = new BitSet(records.size());
+            candidates.set(0, records.size());
+        }
+        for (BitSet mask : masks) {
+            candidates.and(mask);
+        }
+        for (int position = candidates.nextSetBit(0); position >= 0; position = candidates.nextSetBit(position + 1)) {
+            if (accept(position, Collections.emptyList(), verifications, false, since, until)) {
+                result.add(records.get(position));
+            }
+        }
+        return result;
+    }
+
+    private boolean accept(int position, List<BitSet> masks, List<TextFilter> verifications,
+                           boolean timeFilter, long since, long until) {
+        for (BitSet mask : masks) {
+            if (!mask.get(position)) {
+                return false;
+            }
+        }
+        if (timeFilter) {
+            long time = times[position];
+            if (time == TimeFormats.UNKNOWN || time < since || time >= until) {
+                return false;
+            }
+        }
+        for (TextFilter filter : verifications) {
+            String value = filter.values[position];
+            if (value == null || !value.contains(filter.text)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 多个升序倒排表求交，从最短的开始
+     */
+    private static int[] intersect(List<int[]> postings) {
+        postings.sort((a, b) -> Integer.compare(a.length, b.length));
+        int[] result = postings.get(0);
+        for (int i = 1; i < postings.size() && result.length > 0; i++) {
+            int[] other = postings.get(i);
+            int[] merged = new int[result.length];
+            int count = 0;
+            int j = 0;
+            for (int position : result) {
+                j = advance(other, j, position);
+                if (j < other.length && other[j] == position) {
+                    merged[count++] = position;
+                }
+            }
+            result = Arrays.copyOf(merged, count);
+        }
+        return result;
+    }
+
+    /**
+     * 倍增查找other中从from开始第一个不小于target的位置
+     */
+    private static int advance(int[] other, int from, int target) {
+        int step = 1;
+        int low = from;
+        int high = from;
+        while (high < other.length && other[high] < target) {
+            low = high + 1;
+            high = from + step;
+            step <<= 1;
+        }
+        int index = Arrays.binarySearch(other, low, Math.min(high + 1, other.length), target);
+        return index >= 0 ? index : -index - 1;
+    }
+
+    private static int lowerBound(long[] sorted, long value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * 文本切分：连续的字母数字为一段，每段取单个字符和相邻字符对
+     */
+    static void tokenize(String text, Map<String, IntList> postings, int position) {
+        int runStart = -1;
+        for (int i = 0; i <= text.length(); i++) {
+            boolean word = i < text.length() && Character.isLetterOrDigit(text.charAt(i));
+            if (word && runStart < 0) {
+                runStart = i;
+            } else if (!word && runStart >= 0) {
+                for (int j = runStart; j < i; j++) {
+                    add(postings, text.substring(j, j + 1), position);
+                    if (j + 1 < i) {
+                        add(postings, text.substring(j, j + 2), position);
+                    }
+                }
+                runStart = -1;
+            }
+        }
+    }
+
+    private static void add(Map<String, IntList> postings, String token, int position) {
+        postings.computeIfAbsent(token, key -> new IntList()).addIfLast(position);
+    }
+
+    /**
+     * 查询文本切分：长度为1时取单个字符，否则取所有相邻字符对
+     */
+    private static List<String> queryTokens(String value) {
+        List<String> tokens = new ArrayList<>();
+        Map<String, IntList> collected = new LinkedHashMap<>();
+        tokenize(value, collected, 0);
+        for (String token : collected.keySet()) {
+            if (token.length() == 2 || value.length() == 1) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    /**
+     * @return 支持的查询字段
+     */
+    public List<String> getFields() {
+        TreeSet<String> fields = new TreeSet<>();
+        fields.addAll(keywords.keySet());
+        fields.addAll(texts.keySet());
+        fields.addAll(flags.keySet());
+        List<String> result = new ArrayList<>(fields);
+        if (times != null) {
+            result.add(SearchQuery.SINCE);
+            result.add(SearchQuery.UNTIL);
+        }
+        return result;
+    }
+
+    public int size() {
+        return records.size();
+    }
+
+    private static final class TextField {
+        final Map<String, int[]> tokens;
+        final String[] values;
+
+        TextField(Map<String, int[]> tokens, String[] values) {
+            this.tokens = tokens;
+            this.values = values;
+        }
+    }
+
+    private static final class TextFilter {
+        final String[] values;
+        final String text;
+
+        TextFilter(String[] values, String text) {
+            this.values = values;
+            this.text = text;
+        }
+    }
+
+    /**
+     * 构建时使用的可增长int数组
+     */
+    static final class IntList {
+        private int[] values = new int[4];
+        private int size;
+
+        void addIfLast(int value) {
+            // 位置按升序添加，同一记录的重复词只记一次
+            if (size > 0 && values[size - 1] == value) {
+                return;
+            }
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+
+    /**
+     * 搜索索引构建器，先声明字段再调用 {@link #build(List)}
+     * @param <T> 记录类型
+     */
+    public static final class Builder<T> {
+        private final Map<String, Function<T, String>> keywordFields = new LinkedHashMap<>();
+        private final Map<String, Function<T, String>> textFields = new LinkedHashMap<>();
+        private final Map<String, Map<String, Predicate<T>>> flagFields = new LinkedHashMap<>();
+        private ToLongFunction<T> timeField;
+
+        private Builder() {
+        }
+
+        /**
+         * 精确匹配的字段（忽略大小写）
+         */
+        public Builder<T> keyword(String name, Function<T, String> extractor) {
+            keywordFields.put(name, extractor);
+            return this;
+        }
+
+        /**
+         * 支持子串匹配的文本字段（忽略大小写）
+         */
+        public Builder<T> text(String name, Function<T, String> extractor) {
+            textFields.put(name, extractor);
+            return this;
+        }
+
+        /**
+         * 标记字段的一个取值，例如 status:active
+         */
+        public Builder<T> flag(String name, String value, Predicate<T> predicate) {
+            flagFields.computeIfAbsent(name, key -> new LinkedHashMap<>()).put(value, predicate);
+            return this;
+        }
+
+        /**
+         * 用于 since/until 的时间字段，取值为毫秒时间戳，未知时为 {@link TimeFormats#UNKNOWN}
+         */
+        public Builder<T> time(ToLongFunction<T> extractor) {
+            this.timeField = extractor;
+            return this;
+        }
+
+        /**
+         * @param records 记录列表，构建后不应再修改
+         */
+        public SearchIndex<T> build(List<T> records) {
+            int size = records.size();
+
+            Map<String, Map<String, int[]>> keywords = new HashMap<>();
+            for (Map.Entry<String, Function<T, String>> field : keywordFields.entrySet()) {
+                Map<String, IntList> postings = new HashMap<>();
+                for (int i = 0; i < size; i++) {
+                    String value = field.getValue().apply(records.get(i));
+                    if (value != null) {
+                        add(postings, value.toLowerCase(Locale.ROOT), i);
+                    }
+                }
+                keywords.put(field.getKey(), freeze(postings));
+            }
+
+            Map<String, TextField> texts = new HashMap<>();
+            for (Map.Entry<String, Function<T, String>> field : textFields.entrySet()) {
+                Map<String, IntList> postings = new HashMap<>();
+                String[] values = new String[size];
+                for (int i = 0; i < size; i++) {
+                    String value = field.getValue().apply(records.get(i));
+                    if (value != null) {
+                        values[i] = value.toLowerCase(Locale.ROOT);
+                        tokenize(values[i], postings, i);
+                    }
+                }
+                texts.put(field.getKey(), new TextField(freeze(postings), values));
+            }
+
+            Map<String, Map<String, BitSet>> flags = new HashMap<>();
+            for (Map.Entry<String, Map<String, Predicate<T>>> field : flagFields.entrySet()) {
+                Map<String, BitSet> values = new LinkedHashMap<>();
+                for (Map.Entry<String, Predicate<T>> flag : field.getValue().entrySet()) {
+                    BitSet bits = new BitSet(size);
+                    for (int i = 0; i < size; i++) {
+                        if (flag.getValue().test(records.get(i))) {
+                            bits.set(i);
+                        }
+                    }
+                    values.put(flag.getKey(), bits);
+                }
+                flags.put(field.getKey(), values);
+            }
+
+            long[] times = null;
+            long[] sortedTimes = null;
+            int[] sortedPositions = null;
+            if (timeField != null) {
+                times = new long[size];
+                Integer[] order = new Integer[size];
+                for (int i = 0; i < size; i++) {
+                    times[i] = timeField.applyAsLong(records.get(i));
+                    order[i] = i;
+                }
+                long[] byPosition = times;
+                Arrays.sort(order, (a, b) -> Long.compare(byPosition[a], byPosition[b]));
+                sortedTimes = new long[size];
+                sortedPositions = new int[size];
+                for (int i = 0; i < size; i++) {
+                    sortedPositions[i] = order[i];
+                    sortedTimes[i] = times[order[i]];
+                }
+            }
+
+            return new SearchIndex<>(Collections.unmodifiableList(records),
+                    keywords, texts, flags, times, sortedTimes, sortedPositions);
+        }
+
+        private static Map<String, int[]> freeze(Map<String, IntList> postings) {
+            Map<String, int[]> frozen = new HashMap<>(Math.max(16, (int) (postings.size() / 0.75f) + 1));
+            for (Map.Entry<String, IntList> entry : postings.entrySet()) {
+                frozen.put(entry.getKey(), entry.getValue().toArray());
+            }
+            return frozen;
+        }
+    }
+}
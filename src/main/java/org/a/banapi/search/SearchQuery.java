@@ -0,0 +1,206 @@
+package org.a.banapi.search;
+
+import java.time.LocalDate;
+import java.time.ZoneId;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * 解析后的搜索条件
+ * <p>
+ * 语法为空格分隔的 字段:值，值中含空格时用双引号括起，例如
+ * {@code admin:Console reason:"使用 外挂" status:active since:7d type:temp}。
+ * 不带字段名的词按 reason 处理。since/until 支持相对时长（30m、12h、7d、2w）和日期（2024-05-01）；
+ * page:N 指定结果页码。
+ */
+public final class SearchQuery {
+    /** 按时间筛选的字段名，时间字段在索引中单独处理 */
+    static final String SINCE = "since";
+    static final String UNTIL = "until";
+
+    private final List<Clause> clauses;
+    private final long since;
+    private final long until;
+    private final int page;
+
+    private SearchQuery(List<Clause> clauses, long since, long until, int page) {
+        this.clauses = Collections.unmodifiableList(clauses);
+        this.since = since;
+        this.until = until;
+        this.page = page;
+    }
+
+    /**
+     * 解析搜索条件
+     * @param text 搜索条件
+     * @param nowMillis 当前时间，用于计算相对时长
+     * @return 搜索条件
+     * @throws IllegalArgumentException 如果语法不正确
+     */
+    public static SearchQuery parse(String text, long nowMillis) {
+        List<Clause> clauses = new ArrayList<>();
+        long since = Long.MIN_VALUE;
+        long until = Long.MAX_VALUE;
+        int page = 1;
+
+        for (String token : split(text)) {
+            int colon = token.indexOf(':');
+            String field = colon > 0 ? token.substring(0, colon).toLowerCase(Locale.ROOT) : "reason";
+            String value = unquote(colon > 0 ? token.substring(colon + 1) : token);
+            if (value.isEmpty()) {
+                throw new IllegalArgumentException("条件 " + field + " 缺少值");
+            }
+
+            switch (field) {
+                case SINCE:
+                    since = parseTime(value, nowMillis, false);
+                    break;
+                case UNTIL:
+                    until = parseTime(value, nowMillis, true);
+                    break;
+                case "page":
+                    try {
+                        page = Math.max(1, Integer.parseInt(value));
+                    } catch (NumberFormatException e) {
+                        throw new IllegalArgumentException("无效的页码: " + value);
+                    }
+                    break;
+                default:
+                    clauses.add(new Clause(field, normalize(value.toLowerCase(Locale.ROOT))));
+                    break;
+            }
+        }
+        return new SearchQuery(clauses, since, until, page);
+    }
+
+    /**
+     * 按空格切分，双引号内的空格保留
+     */
+    private static List<String> split(String text) {
+        List<String> tokens = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c == '"') {
+                quoted = !quoted;
+                current.append(c);
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (current.length() > 0) {
+                    tokens.add(current.toString());
+                    current.setLength(0);
+                }
+            } else {
+                current.append(c);
+            }
+        }
+        if (quoted) {
+            throw new IllegalArgumentException("引号没有闭合");
+        }
+        if (current.length() > 0) {
+            tokens.add(current.toString());
+        }
+        return tokens;
+    }
+
+    private static String unquote(String value) {
+        return value.replace("\"", "").trim();
+    }
+
+    // 常用的同义写法
+    private static String normalize(String value) {
+        switch (value) {
+            case "permanent":
+                return "perm";
+            case "temporary":
+                return "temp";
+            default:
+                return value;
+        }
+    }
+
+    /**
+     * @param endOfDay 日期按当天结束计算（用于until）
+     */
+    private static long parseTime(String value, long nowMillis, boolean endOfDay) {
+        char unit = Character.toLowerCase(value.charAt(value.length() - 1));
+        if (Character.isLetter(unit) && value.length() > 1) {
+            long amount;
+            try {
+                amount = Long.parseLong(value.substring(0, value.length() - 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("无效的时长: " + value);
+            }
+            switch (unit) {
+                case 's':
+                    return nowMillis - amount * 1000L;
+                case 'm':
+                    return nowMillis - amount * 60_000L;
+                case 'h':
+                    return nowMillis - amount * 3_600_000L;
+                case 'd':
+                    return nowMillis - amount * 86_400_000L;
+                case 'w':
+                    return nowMillis - amount * 604_800_000L;
+                default:
+                    throw new IllegalArgumentException("无效的时长单位: " + value);
+            }
+        }
+        try {
+            LocalDate date = LocalDate.parse(value);
+            return (endOfDay ? date.plusDays(1) : date).atStartOfDay(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("无效的时间: " + value + "（支持 7d、12h 或 2024-05-01）");
+        }
+    }
+
+    public List<Clause> getClauses() {
+        return clauses;
+    }
+
+    /**
+     * @return 时间下限（含），不限时为Long.MIN_VALUE
+     */
+    public long getSince() {
+        return since;
+    }
+
+    /**
+     * @return 时间上限（不含），不限时为Long.MAX_VALUE
+     */
+    public long getUntil() {
+        return until;
+    }
+
+    public boolean hasTimeRange() {
+        return since != Long.MIN_VALUE || until != Long.MAX_VALUE;
+    }
+
+    public int getPage() {
+        return page;
+    }
+
+    /**
+     * 单个 字段:值 条件，值已转换为小写
+     */
+    public static final class Clause {
+        private final String field;
+        private final String value;
+
+        Clause(String field, String value) {
+            this.field = field;
+            this.value = value;
+        }
+
+        public String getField() {
+            return field;
+        }
+
+        public String getValue() {
+            return value;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package org.a.banapi.tasks;
+
+import okhttp3.Response;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import org.a.banapi.Banapi;
+import org.a.banapi.api.APIService;
+import org.a.banapi.api.BanJsonDecoder;
+import org.a.banapi.model.BanRecord;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.Collections;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * 订阅BanAPIService的封禁事件流，收到事件后立即更新本地索引
+ * <p>
+ * 连接期间 {@link BanUpdateTask} 不再轮询；断开后恢复轮询，同时按指数退避重连，重连时携带最后收到的事件ID，
+ * 由API补发断开期间的事件。没有事件ID的连接（首次连接或API返回410无法补发）建立后补一次同步，
+ * 收到 resync 事件时立即执行一次全量同步。事件ID只在事件应用到本地索引后才推进，
+ * 无法应用的事件（如首次同步完成前收到的）由补一次同步弥补。
+ */
+public class BanEventSubscriber extends EventSourceListener {
+    private static final long RECONNECT_BASE_MILLIS = 1000;
+
+    private final Host host;
+    private final Connector connector;
+    private final long reconnectMaxMillis;
+    private final AtomicLong events = new AtomicLong();
+    private final AtomicLong reconnects = new AtomicLong();
+
+    private volatile EventSource source;
+    private volatile boolean connected;
+    private volatile boolean stopped;
+    private volatile String lastEventId;
+    // 同一连接的回调依次执行，以下状态只在回调中修改
+    private int consecutiveFailures;
+    private boolean syncRequested;
+
+    public BanEventSubscriber(Banapi plugin, APIService apiService) {
+        this(new PluginHost(plugin), apiService::subscribeBanEvents, apiService.getConfigManager().getPushReconnectMax());
+    }
+
+    /**
+     * @param host 应用事件、触发同步和调度重连的宿主
+     * @param connector 建立事件流连接
+     * @param reconnectMaxMillis 最长重连间隔（毫秒）
+     */
+    BanEventSubscriber(Host host, Connector connector, long reconnectMaxMillis) {
+        this.host = host;
+        this.connector = connector;
+        this.reconnectMaxMillis = Math.max(RECONNECT_BASE_MILLIS, reconnectMaxMillis);
+    }
+
+    public void start() {
+        connect();
+    }
+
+    // 与isCurrent互斥，新连接的回调要等source赋值后才能判断是否属于当前连接
+    private synchronized void connect() {
+        if (!stopped) {
+            source = connector.connect(lastEventId, this);
+        }
+    }
+
+    private synchronized boolean isCurrent(EventSource eventSource) {
+        return eventSource == source;
+    }
+
+    @Override
+    public void onOpen(EventSource eventSource, Response response) {
+        if (!isCurrent(eventSource)) {
+            return;
+        }
+        // 失败计数在收到第一个事件后才清零，建立后立即断开的连接仍按退避重连
+        connected = true;
+        syncRequested = false;
+        host.getLogger().info("已连接封禁事件推送" + (lastEventId != null ? "，从事件 " + lastEventId + " 继续" : ""));
+        if (lastEventId == null) {
+            // 首次连接前的变更不会被补发，补一次同步
+            host.requestSync(false);
+        }
+    }
+
+    @Override
+    public void onEvent(EventSource eventSource, String id, String type, String data) {
+        if (!isCurrent(eventSource)) {
+            return;
+        }
+        consecutiveFailures = 0;
+        boolean applied;
+        switch (type != null ? type : "update") {
+            case "ban":
+            case "unban":
+            case "release":
+            case "update":
+                applied = apply(data);
+                break;
+            case "resync":
+                host.requestSync(true);
+                applied = true;
+                break;
+            default:
+                // 心跳等其他事件
+                applied = true;
+                break;
+        }
+        if (applied) {
+            if (id != null) {
+                lastEventId = id;
+            }
+        } else if (!syncRequested) {
+            // 事件ID停留在最后应用的事件，漏掉的变更由同步补上；同一连接只补一次
+            syncRequested = true;
+            host.requestSync(false);
+        }
+    }
+
+    /**
+     * @return 事件是否已应用到本地索引
+     */
+    private boolean apply(String data) {
+        BanRecord ban;
+        try {
+            ban = BanJsonDecoder.readBan(new StringReader(data));
+        } catch (IOException | RuntimeException e) {
+            host.getLogger().warning("无法解析封禁事件: " + e.getMessage());
+            return false;
+        }
+        if (!ban.hasId()) {
+            host.getLogger().warning("封禁事件缺少ID，已忽略");
+            return false;
+        }
+        if (!host.apply(ban)) {
+            return false;
+        }
+        events.incrementAndGet();
+        return true;
+    }
+
+    @Override
+    public void onClosed(EventSource eventSource) {
+        disconnected(eventSource, "服务端关闭了连接");
+    }
+
+    @Override
+    public void onFailure(EventSource eventSource, Throwable t, Response response) {
+        if (!isCurrent(eventSource) || stopped) {
+            return;
+        }
+        int code = response != null ? response.code() : 0;
+        if (code == 404 || code == 501) {
+            connected = false;
+            host.getLogger().warning("BanAPIService不支持封禁事件推送 (状态码 " + code + ")，继续使用定时轮询");
+            return;
+        }
+        if (code == 410) {
+            // 事件ID过旧，API无法补发；不带事件ID重连后会补一次同步
+            lastEventId = null;
+        }
+        disconnected(eventSource, t != null ? t.getMessage() : "状态码 " + code);
+    }
+
+    private void disconnected(EventSource eventSource, String reason) {
+        if (!isCurrent(eventSource) || stopped) {
+            return;
+        }
+        connected = false;
+        consecutiveFailures++;
+        reconnects.incrementAndGet();
+        long cap = Math.min(reconnectMaxMillis, RECONNECT_BASE_MILLIS << Math.min(consecutiveFailures - 1, 16));
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+        host.getLogger().warning("封禁事件推送已断开 (" + reason + ")，恢复定时轮询，" + delay / 1000 + " 秒后重连");
+        host.schedule(this::connect, delay);
+    }
+
+    /**
+     * 断开连接并停止重连
+     */
+    public void stop() {
+        stopped = true;
+        connected = false;
+        EventSource current = source;
+        if (current != null) {
+            current.cancel();
+        }
+    }
+
+    /**
+     * @return 事件流当前是否已连接
+     */
+    public boolean isConnected() {
+        return connected;
+    }
+
+    /** @return 已应用的封禁事件数 */
+    public long getEvents() {
+        return events.get();
+    }
+
+    /** @return 断开后重连的次数 */
+    public long getReconnects() {
+        return reconnects.get();
+    }
+
+    /**
+     * 事件流连接的建立方式
+     */
+    interface Connector {
+        /**
+         * @param lastEventId 最后应用的事件ID，为null时只接收之后的事件
+         * @param listener 事件监听器
+         * @return 事件流连接
+         */
+        EventSource connect(String lastEventId, EventSourceListener listener);
+    }
+
+    /**
+     * 订阅者依赖的插件功能
+     */
+    interface Host {
+        /**
+         * 将一条事件中的封禁记录合并到本地索引
+         * @return 是否已合并；首次同步完成前无法合并，返回false
+         */
+        boolean apply(BanRecord ban);
+
+        /**
+         * 在IO线程上立即执行一次同步
+         * @param full 是否全量同步
+         */
+        void requestSync(boolean full);
+
+        /**
+         * 延迟执行任务
+         */
+        void schedule(Runnable task, long delayMillis);
+
+        Logger getLogger();
+    }
+
+    private static final class PluginHost implements Host {
+        private final Banapi plugin;
+
+        private PluginHost(Banapi plugin) {
+            this.plugin = plugin;
+        }
+
+        @Override
+        public boolean apply(BanRecord ban) {
+            if (!plugin.getBanCache().isLoaded()) {
+                return false;
+            }
+            plugin.getBanCache().merge(Collections.singletonList(ban));
+            if (plugin.getLoginListener() != null) {
+                plugin.getLoginListener().getDecisionCache().clear();
+            }
+            return true;
+        }
+
+        @Override
+        public void requestSync(boolean full) {
+            BanUpdateTask updateTask = plugin.getBanUpdateTask();
+            if (updateTask != null) {
+                plugin.getIoExecutor().execute(() -> updateTask.syncNow(full));
+            }
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            plugin.getServer().getScheduler().runTaskLaterAsynchronously(plugin, task, Math.max(1, delayMillis / 50));
+        }
+
+        @Override
+        public Logger getLogger() {
+            return plugin.getLogger();
+        }
+    }
+}
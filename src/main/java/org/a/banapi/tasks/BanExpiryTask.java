@@ -0,0 +1,133 @@
+package org.a.banapi.tasks;
+
+import org.a.banapi.Banapi;
+import org.a.banapi.cache.BanCache;
+import org.a.banapi.cache.BanIndex;
+import org.a.banapi.cache.ExpiryWheel;
+import org.a.banapi.model.BanRecord;
+import org.a.banapi.util.TimeFormats;
+import org.bukkit.scheduler.BukkitRunnable;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 在本地按endTime使临时封禁到期，无需等待BanAPIService更新isReleased和下一次同步
+ * <p>
+ * 所有临时封禁登记在同一个时间轮中，由本任务每秒推进一次，而不是为每条封禁单独调度任务。
+ * 增量变更只重新登记变化的记录；只有全量同步替换索引后，时间轮才根据新索引整体重建。
+ */
+public class BanExpiryTask extends BukkitRunnable implements BanCache.ChangeListener {
+    private static final long TICK_MILLIS = 1000;
+
+    private final Banapi plugin;
+    private final ExpiryWheel wheel;
+    // 每条登记中的临时封禁的到期时间；记录变化后时间轮里旧的条目不删除，触发时按此过滤
+    private final Map<Integer, Long> scheduled = new ConcurrentHashMap<>();
+    // 索引变化由同步线程通知，在本任务的线程上处理
+    private final Queue<Integer> changedIds = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean resyncNeeded = new AtomicBoolean(true);
+
+    public BanExpiryTask(Banapi plugin) {
+        this.plugin = plugin;
+        this.wheel = new ExpiryWheel(TICK_MILLIS, System.currentTimeMillis());
+    }
+
+    @Override
+    public void onReplaced() {
+        resyncNeeded.set(true);
+    }
+
+    @Override
+    public void onChanged(Collection<Integer> ids) {
+        changedIds.addAll(ids);
+    }
+
+    @Override
+    public void run() {
+        long now = System.currentTimeMillis();
+        List<Integer> expired = new ArrayList<>();
+
+        BanIndex index = plugin.getBanCache().current();
+        if (resyncNeeded.getAndSet(false)) {
+            // 之后读取的索引已经包含队列中的变更
+            changedIds.clear();
+            reschedule(index, now, expired);
+        } else {
+            Integer id;
+            while ((id = changedIds.poll()) != null) {
+                update(id, index.findById(id), now, expired);
+            }
+        }
+        wheel.advance(now, id -> {
+            Long endMillis = scheduled.get(id);
+            if (endMillis != null && endMillis <= now) {
+                scheduled.remove(id);
+                expired.add(id);
+            }
+        });
+
+        if (!expired.isEmpty()) {
+            plugin.getBanCache().expire(expired, now);
+            plugin.getLogger().fine(expired.size() + " 条临时封禁已到期");
+        }
+    }
+
+    /**
+     * 根据新的索引重建时间轮，已经到期的封禁直接加入expired
+     */
+    private void reschedule(BanIndex index, long now, List<Integer> expired) {
+        wheel.reset(now);
+        scheduled.clear();
+        for (BanRecord ban : index.getRecords()) {
+            if (ban.hasId()) {
+                update(ban.getId(), ban, now, expired);
+            }
+        }
+    }
+
+    /**
+     * 按记录的当前状态登记或取消一条临时封禁，已经到期的直接加入expired
+     * @param ban 记录的当前状态，已被删除时为null
+     */
+    private void update(int id, BanRecord ban, long now, List<Integer> expired) {
+        if (ban == null || !ban.hasStatus() || ban.isReleased() || ban.isPermanent() || ban.getEndMillis() == TimeFormats.UNKNOWN) {
+            scheduled.remove(id);
+            return;
+        }
+        long endMillis = ban.getEndMillis();
+        if (endMillis <= now) {
+            scheduled.remove(id);
+            expired.add(id);
+            return;
+        }
+        Long previous = scheduled.put(id, endMillis);
+        if ((previous == null || previous != endMillis) && !wheel.schedule(id, endMillis)) {
+            scheduled.remove(id);
+        }
+    }
+
+    /**
+     * @return 等待到期的临时封禁数量
+     */
+    public int getPendingCount() {
+        return scheduled.size();
+    }
+
+    public void start() {
+        plugin.getBanCache().setChangeListener(this);
+        this.runTaskTimerAsynchronously(plugin, 20L, 20L);
+    }
+
+    @Override
+    public synchronized void cancel() throws IllegalStateException {
+        plugin.getBanCache().setChangeListener(null);
+        super.cancel();
+    }
+}
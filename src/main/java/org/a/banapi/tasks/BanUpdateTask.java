@@ -2,36 +2,158 @@ package org.a.banapi.tasks;
 
 import org.a.banapi.Banapi;
 import org.a.banapi.api.APIService;
+import org.a.banapi.api.BanListResponse;
+import org.a.banapi.api.CircuitOpenException;
+import org.a.banapi.cache.BanIndex;
+import org.a.banapi.config.ConfigManager;
+import org.a.banapi.metrics.Counter;
+import org.a.banapi.metrics.Histogram;
+import org.a.banapi.model.BanRecord;
 import org.bukkit.scheduler.BukkitRunnable;
 
 import java.io.IOException;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 public class BanUpdateTask extends BukkitRunnable {
     private final Banapi plugin;
     private final APIService apiService;
+    private final Counter syncRecords;
+    private final Map<String, Histogram> syncLatency = new ConcurrentHashMap<>();
+
+    // 条件请求与增量同步的状态，由 this 保护（定时任务与推送触发的同步可能在不同线程）
+    private String etag;
+    private String lastModified;
+    private String cursor;
+    private long syncCount;
+    private long savedVersion = -1;
+    private boolean forceSync;
+    private boolean forceFull;
 
     public BanUpdateTask(Banapi plugin, APIService apiService) {
         this.plugin = plugin;
         this.apiService = apiService;
+        this.syncRecords = plugin.getMetrics().counter("banapi_sync_records_total", "同步获取的封禁记录数");
+    }
+
+    /**
+     * 立即同步一次，推送连接需要补齐数据时调用
+     * @param full 是否强制全量同步
+     */
+    public synchronized void syncNow(boolean full) {
+        forceSync = true;
+        forceFull |= full;
+        run();
     }
 
     @Override
-    public void run() {
+    public synchronized void run() {
+        BanEventSubscriber subscriber = plugin.getBanEventSubscriber();
+        if (!forceSync && subscriber != null && subscriber.isConnected() && plugin.getBanCache().isLoaded()) {
+            // 推送连接期间不轮询，只保存推送带来的变化，本地索引已是最新，可以直接复查
+            BanIndex index = plugin.getBanCache().current();
+            if (plugin.getBanCache().getVersion() != savedVersion) {
+                saveSnapshot(index);
+                index.searchIndex();
+            }
+            if (plugin.getLoginListener() != null) {
+                plugin.getLoginListener().recheckPending();
+            }
+            return;
+        }
+        boolean forcedFull = forceFull;
+        forceSync = false;
+        forceFull = false;
+
+        long start = System.nanoTime();
+        String outcome = "error";
         try {
-            List<Map<String, Object>> bans = apiService.getBans();
-            plugin.getLogger().info("成功获取到 " + bans.size() + " 条封禁记录");
+            ConfigManager config = apiService.getConfigManager();
+            boolean fullSync = forcedFull
+                    || !config.isDeltaSyncEnabled()
+                    || cursor == null
+                    || !plugin.getBanCache().isLoaded()
+                    || syncCount % Math.max(1, config.getFullResyncEvery()) == 0;
+            boolean conditional = config.isConditionalSyncEnabled() && plugin.getBanCache().isLoaded();
+
+            BanListResponse response = apiService.getBanChanges(
+                    conditional ? etag : null,
+                    conditional ? lastModified : null,
+                    fullSync ? null : cursor);
+            syncCount++;
+
+            if (response.isNotModified()) {
+                outcome = "not_modified";
+                plugin.getLogger().fine("封禁列表未发生变化");
+            } else {
+                outcome = response.isDelta() ? "delta" : "full";
+                List<BanRecord> bans = response.getRecords();
+                BanIndex index;
+                if (response.isDelta()) {
+                    index = plugin.getBanCache().merge(bans);
+                    plugin.getLogger().info("增量同步获取到 " + bans.size() + " 条变更，本地共 " + index.size() + " 条封禁记录");
+                } else {
+                    index = plugin.getBanCache().replace(bans);
+                    etag = response.getEtag();
+                    lastModified = response.getLastModified();
+                    plugin.getLogger().info("成功获取到 " + bans.size() + " 条封禁记录");
+                }
+                syncRecords.add(bans.size());
+                // 游标只取自API返回的记录；其他途径合并进索引的记录可能比本服已拉取的变更更新
+                cursor = maxUpdatedAt(bans, response.isDelta() ? cursor : null);
+                saveSnapshot(index);
+                // 同步线程中预先构建搜索索引，搜索命令不需要等待
+                index.searchIndex();
+            }
+
+            // 复查因检查失败而被放行的玩家
+            if (plugin.getLoginListener() != null) {
+                plugin.getLoginListener().recheckPending();
+            }
 
             // 每10分钟清理一次已公告列表
             if (System.currentTimeMillis() % 600000 < 50) {
                 plugin.getNotifiedBans().clear();
                 plugin.getLogger().info("已清理封禁公告缓存");
             }
+        } catch (CircuitOpenException e) {
+            // 熔断期间跳过本轮同步，继续使用本地索引
+            outcome = "circuit_open";
+            plugin.getLogger().fine("熔断器已打开，跳过本次封禁数据同步");
         } catch (IOException e) {
             plugin.getLogger().log(Level.SEVERE, "获取封禁数据失败: " + e.getMessage(), e);
+        } finally {
+            syncLatency.computeIfAbsent(outcome, result -> plugin.getMetrics().histogram("banapi_sync_seconds",
+                    "封禁列表同步耗时", "result", result)).recordSince(start);
+        }
+    }
+
+    /**
+     * 将最新的封禁列表写入本地快照（定时任务本身运行在异步线程）
+     */
+    private void saveSnapshot(BanIndex index) {
+        savedVersion = plugin.getBanCache().getVersion();
+        try {
+            plugin.getBanSnapshotStore().save(index.getRecords());
+        } catch (IOException e) {
+            plugin.getLogger().warning("保存本地封禁快照失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 计算增量游标：本次拉取的记录中最大的updatedAt（ISO 8601字符串可按字典序比较）
+     */
+    private String maxUpdatedAt(List<BanRecord> records, String current) {
+        String max = current;
+        for (BanRecord ban : records) {
+            String updatedAt = ban.getUpdatedAt();
+            if (updatedAt != null && (max == null || updatedAt.compareTo(max) > 0)) {
+                max = updatedAt;
+            }
         }
+        return max;
     }
 
     public void start() {
@@ -0,0 +1,119 @@
+package org.a.banapi.util;
+
+import org.a.banapi.config.ConfigManager;
+import org.a.banapi.model.BanRecord;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 根据配置的消息模板生成封禁提示
+ * <p>
+ * 渲染结果按封禁ID缓存。缓存项记录了生成时使用的封禁记录和模板，记录被替换
+ * （且updatedAt不同）或重新加载配置后模板变化时重新生成。
+ */
+public final class BanMessageFormatter {
+    private final int maxEntries;
+    private final ConcurrentHashMap<Integer, CachedMessage> cache = new ConcurrentHashMap<>();
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * @param maxEntries 最多缓存的消息数，超过后清空重建
+     */
+    public BanMessageFormatter(int maxEntries) {
+        this.maxEntries = Math.max(1, maxEntries);
+    }
+
+    /**
+     * 生成封禁消息，优先使用缓存
+     * @param template 封禁消息模板，占位符见 {@link ConfigManager#BAN_MESSAGE_PLACEHOLDERS}
+     * @param banInfo 封禁记录
+     * @return 封禁消息
+     */
+    public String format(MessageTemplate template, BanRecord banInfo) {
+        if (!banInfo.hasId()) {
+            return render(template, banInfo);
+        }
+
+        CachedMessage cached = cache.get(banInfo.getId());
+        if (cached != null && cached.matches(template, banInfo)) {
+            hits.incrementAndGet();
+            return cached.message;
+        }
+
+        misses.incrementAndGet();
+        String message = render(template, banInfo);
+        if (cache.size() >= maxEntries) {
+            cache.clear();
+        }
+        cache.put(banInfo.getId(), new CachedMessage(template, banInfo, message));
+        return message;
+    }
+
+    /**
+     * 不经缓存直接渲染封禁消息
+     * @param template 封禁消息模板，占位符见 {@link ConfigManager#BAN_MESSAGE_PLACEHOLDERS}
+     * @param banInfo 封禁记录
+     * @return 封禁消息
+     */
+    public static String render(MessageTemplate template, BanRecord banInfo) {
+        boolean permanent = banInfo.isPermanent();
+        // 参数顺序与 ConfigManager.BAN_MESSAGE_PLACEHOLDERS 一致
+        return template.render(
+                String.valueOf(banInfo.getId()),
+                orDefault(banInfo.getReason(), "违反服务器规则"),
+                orDefault(banInfo.getAdmin(), "系统"),
+                orDefault(banInfo.getStartTimeDisplay(), "未知时间"),
+                permanent ? "永久" : orDefault(banInfo.getEndTimeDisplay(), "未知"),
+                permanent ? "永久封禁" : "临时封禁",
+                String.valueOf(permanent));
+    }
+
+    /**
+     * 清空缓存
+     */
+    public void clear() {
+        cache.clear();
+    }
+
+    /** @return 缓存的消息数 */
+    public int size() {
+        return cache.size();
+    }
+
+    /** @return 缓存命中次数 */
+    public long getHits() {
+        return hits.get();
+    }
+
+    /** @return 缓存未命中次数 */
+    public long getMisses() {
+        return misses.get();
+    }
+
+    private static String orDefault(String value, String defaultValue) {
+        return value != null ? value : defaultValue;
+    }
+
+    private static final class CachedMessage {
+        final MessageTemplate template;
+        final BanRecord record;
+        final String message;
+
+        CachedMessage(MessageTemplate template, BanRecord record, String message) {
+            this.template = template;
+            this.record = record;
+            this.message = message;
+        }
+
+        boolean matches(MessageTemplate template, BanRecord banInfo) {
+            if (this.template != template) {
+                return false;
+            }
+            // 全量同步会生成新的记录对象，updatedAt相同说明内容没有变化
+            return record == banInfo
+                    || (record.getUpdatedAt() != null && record.getUpdatedAt().equals(banInfo.getUpdatedAt()));
+        }
+    }
+}
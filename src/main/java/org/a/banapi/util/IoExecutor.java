@@ -0,0 +1,188 @@
+package org.a.banapi.util;
+
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Logger;
+
+/**
+ * BanAPI专用的I/O线程池，所有网络请求都在这里执行，不占用Bukkit共享的异步线程池
+ * <p>
+ * 运行在Java 21及以上时使用虚拟线程，每个任务一个线程；否则使用有界的平台线程池，
+ * 队列满时拒绝新任务，避免API缓慢时无限堆积。同时统计提交、完成、失败、拒绝的任务数。
+ */
+public final class IoExecutor extends AbstractExecutorService {
+    private final ExecutorService delegate;
+    private final ThreadPoolExecutor platformPool;
+    private final AtomicLong submitted = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+
+    private IoExecutor(ExecutorService delegate, ThreadPoolExecutor platformPool) {
+        this.delegate = delegate;
+        this.platformPool = platformPool;
+    }
+
+    /**
+     * 创建线程池
+     * @param useVirtualThreads 是否在支持时使用虚拟线程
+     * @param maxThreads 平台线程池的最大线程数
+     * @param queueSize 平台线程池的等待队列长度
+     * @param logger 日志
+     * @return 线程池
+     */
+    public static IoExecutor create(boolean useVirtualThreads, int maxThreads, int queueSize, Logger logger) {
+        if (useVirtualThreads) {
+            ExecutorService virtual = newVirtualThreadExecutor();
+            if (virtual != null) {
+                logger.info("I/O线程池使用虚拟线程");
+                return new IoExecutor(virtual, null);
+            }
+        }
+
+        int threads = Math.max(1, maxThreads);
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(Math.max(1, queueSize)), new NamedThreadFactory());
+        pool.allowCoreThreadTimeOut(true);
+        logger.info("I/O线程池使用平台线程，最大线程数: " + threads + "，队列长度: " + queueSize);
+        return new IoExecutor(pool, pool);
+    }
+
+    // Java 17编译目标下无法直接引用，通过反射调用 Executors.newVirtualThreadPerTaskExecutor()
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) java.util.concurrent.Executors.class
+                    .getMethod("newVirtualThreadPerTaskExecutor")
+                    .invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public void execute(Runnable command) {
+        submitted.incrementAndGet();
+        try {
+            delegate.execute(() -> {
+                int running = active.incrementAndGet();
+                peakActive.accumulateAndGet(running, Math::max);
+                try {
+                    command.run();
+                    completed.incrementAndGet();
+                } catch (RuntimeException | Error e) {
+                    failed.incrementAndGet();
+                    throw e;
+                } finally {
+                    active.decrementAndGet();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            throw e;
+        }
+    }
+
+    /**
+     * 停止接收新任务，等待正在执行的任务结束，超时后中断剩余任务
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否在超时前全部结束
+     */
+    public boolean shutdownGracefully(long timeoutMillis) {
+        delegate.shutdown();
+        try {
+            if (delegate.awaitTermination(timeoutMillis, TimeUnit.MILLISECONDS)) {
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        delegate.shutdownNow();
+        return false;
+    }
+
+    @Override
+    public void shutdown() {
+        delegate.shutdown();
+    }
+
+    @Override
+    public List<Runnable> shutdownNow() {
+        return delegate.shutdownNow();
+    }
+
+    @Override
+    public boolean isShutdown() {
+        return delegate.isShutdown();
+    }
+
+    @Override
+    public boolean isTerminated() {
+        return delegate.isTerminated();
+    }
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit) throws InterruptedException {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+    /** @return 是否使用虚拟线程 */
+    public boolean isVirtual() {
+        return platformPool == null;
+    }
+
+    /** @return 已提交的任务数 */
+    public long getSubmitted() {
+        return submitted.get();
+    }
+
+    /** @return 正常完成的任务数 */
+    public long getCompleted() {
+        return completed.get();
+    }
+
+    /** @return 抛出异常的任务数 */
+    public long getFailed() {
+        return failed.get();
+    }
+
+    /** @return 因队列已满或已关闭而被拒绝的任务数 */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /** @return 正在执行的任务数 */
+    public int getActive() {
+        return active.get();
+    }
+
+    /** @return 同时执行任务数的峰值 */
+    public int getPeakActive() {
+        return peakActive.get();
+    }
+
+    /** @return 排队等待的任务数，虚拟线程模式下始终为0 */
+    public int getQueued() {
+        return platformPool != null ? platformPool.getQueue().size() : 0;
+    }
+
+    private static final class NamedThreadFactory implements ThreadFactory {
+        private final AtomicInteger counter = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "BanAPI-IO-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
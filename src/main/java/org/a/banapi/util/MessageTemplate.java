@@ -0,0 +1,113 @@
+package org.a.banapi.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 预编译的消息模板
+ * <p>
+ * 加载配置时把格式字符串拆分为文本段和占位符，渲染时一次遍历写入预估好容量的StringBuilder，
+ * 不再对整个模板反复调用 {@link String#replace}。未声明的占位符按原文保留。
+ */
+public final class MessageTemplate {
+    private final String source;
+    private final String[] literals;
+    private final int[] slots;
+    private final int literalLength;
+
+    private MessageTemplate(String source, String[] literals, int[] slots) {
+        this.source = source;
+        this.literals = literals;
+        this.slots = slots;
+        int length = 0;
+        for (String literal : literals) {
+            length += literal.length();
+        }
+        this.literalLength = length;
+    }
+
+    /**
+     * 编译消息模板
+     * @param format 格式字符串，占位符写作 {name}
+     * @param placeholders 支持的占位符名称，顺序即 {@link #render(String...)} 的参数顺序
+     * @return 编译后的模板
+     */
+    public static MessageTemplate compile(String format, String... placeholders) {
+        List<String> literals = new ArrayList<>();
+        List<Integer> slots = new ArrayList<>();
+        StringBuilder literal = new StringBuilder();
+        int position = 0;
+        while (position < format.length()) {
+            int open = format.indexOf('{', position);
+            int close = open < 0 ? -1 : format.indexOf('}', open + 1);
+            if (close < 0) {
+                break;
+            }
+            int slot = indexOf(placeholders, format.substring(open + 1, close));
+            if (slot < 0) {
+                // 未知占位符按普通文本处理，从'{'之后继续查找
+                literal.append(format, position, open + 1);
+                position = open + 1;
+                continue;
+            }
+            literal.append(format, position, open);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            slots.add(slot);
+            position = close + 1;
+        }
+        literal.append(format, position, format.length());
+        literals.add(literal.toString());
+
+        int[] slotArray = new int[slots.size()];
+        for (int i = 0; i < slotArray.length; i++) {
+            slotArray[i] = slots.get(i);
+        }
+        return new MessageTemplate(format, literals.toArray(new String[0]), slotArray);
+    }
+
+    private static int indexOf(String[] placeholders, String name) {
+        for (int i = 0; i < placeholders.length; i++) {
+            if (placeholders[i].equals(name)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 渲染消息
+     * @param values 占位符的值，顺序与编译时的占位符名称一致
+     * @return 渲染结果
+     */
+    public String render(String... values) {
+        if (slots.length == 0) {
+            return literals[0];
+        }
+        int length = literalLength;
+        for (int slot : slots) {
+            String value = values[slot];
+            length += value != null ? value.length() : 4;
+        }
+        StringBuilder builder = new StringBuilder(length);
+        builder.append(literals[0]);
+        for (int i = 0; i < slots.length; i++) {
+            builder.append(values[slots[i]]).append(literals[i + 1]);
+        }
+        return builder.toString();
+    }
+
+    /**
+     * @return 原始格式字符串
+     */
+    public String getSource() {
+        return source;
+    }
+
+    /**
+     * @return 模板中占位符出现的次数
+     */
+    public int getPlaceholderCount() {
+        return slots.length;
+    }
+}
@@ -0,0 +1,71 @@
+package org.a.banapi.util;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.OffsetDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+
+/**
+ * 时间解析与格式化工具，使用线程安全的DateTimeFormatter代替每次新建SimpleDateFormat
+ */
+public final class TimeFormats {
+    /** 时间缺失或无法解析 */
+    public static final long UNKNOWN = Long.MIN_VALUE;
+
+    private static final DateTimeFormatter DISPLAY_FORMAT =
+            DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss").withZone(ZoneId.systemDefault());
+
+    private TimeFormats() {
+    }
+
+    /**
+     * 解析ISO 8601时间
+     * <p>
+     * 带时区的时间（如BanAPIService的 2024-01-01T00:00:00.000Z）按其时区解析；
+     * 不带时区的时间（如公共API的 2024-01-01T00:00:00.123456）按服务器本地时区解析。
+     * @param isoTime ISO 8601时间字符串
+     * @return 毫秒时间戳，为null或无法解析时返回UNKNOWN
+     */
+    public static long parseEpochMillis(String isoTime) {
+        if (isoTime == null || isoTime.isEmpty()) {
+            return UNKNOWN;
+        }
+
+        try {
+            return Instant.parse(isoTime).toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // 继续尝试其他格式
+        }
+        try {
+            return OffsetDateTime.parse(isoTime).toInstant().toEpochMilli();
+        } catch (DateTimeParseException ignored) {
+            // 继续尝试其他格式
+        }
+        try {
+            return LocalDateTime.parse(isoTime).atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            return UNKNOWN;
+        }
+    }
+
+    /**
+     * 格式化为 yyyy-MM-dd HH:mm:ss（服务器本地时区）
+     * @param epochMillis 毫秒时间戳
+     * @return 格式化后的时间
+     */
+    public static String format(long epochMillis) {
+        return DISPLAY_FORMAT.format(Instant.ofEpochMilli(epochMillis));
+    }
+
+    /**
+     * 将原始时间转换为显示用的格式，无法解析时原样返回
+     * @param raw 原始时间字符串
+     * @param epochMillis 已解析的毫秒时间戳
+     * @return 显示用的时间
+     */
+    public static String display(String raw, long epochMillis) {
+        return epochMillis == UNKNOWN ? raw : format(epochMillis);
+    }
+}
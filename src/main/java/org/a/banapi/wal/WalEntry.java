@@ -0,0 +1,110 @@
+package org.a.banapi.wal;
+
+import org.a.banapi.model.BanRecord;
+
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * 写前日志中的一次管理员写操作
+ * <p>
+ * 新增封禁在API确认前使用临时ID（序号的相反数），解封操作可以指向这样的临时ID，
+ * 对应的封禁被确认后再改写为正式ID。
+ */
+public final class WalEntry {
+    /**
+     * 写操作类型
+     */
+    public enum Type {
+        BAN(1),
+        RELEASE(2);
+
+        final int code;
+
+        Type(int code) {
+            this.code = code;
+        }
+    }
+
+    final long seq;
+    final Type type;
+    final String idempotencyKey;
+    final long createdAt;
+    // 新增封禁
+    final String nickname;
+    final String reason;
+    final String admin;
+    final boolean permanent;
+    final Long duration;
+    // 解封，可能是临时ID
+    volatile int targetId;
+
+    // 以下字段只在内存中，不写入日志
+    /** 解封前的记录，API拒绝解封时用于恢复本地索引 */
+    volatile BanRecord previous;
+    private final CompletableFuture<BanRecord> result = new CompletableFuture<>();
+
+    WalEntry(long seq, Type type, String idempotencyKey, long createdAt,
+             String nickname, String reason, String admin, boolean permanent, Long duration, int targetId) {
+        this.seq = seq;
+        this.type = type;
+        this.idempotencyKey = idempotencyKey;
+        this.createdAt = createdAt;
+        this.nickname = nickname;
+        this.reason = reason;
+        this.admin = admin;
+        this.permanent = permanent;
+        this.duration = duration;
+        this.targetId = targetId;
+    }
+
+    static WalEntry ban(long seq, String idempotencyKey, long createdAt,
+                        String nickname, String reason, String admin, boolean permanent, Long duration) {
+        return new WalEntry(seq, Type.BAN, idempotencyKey, createdAt, nickname, reason, admin, permanent, duration, 0);
+    }
+
+    static WalEntry release(long seq, String idempotencyKey, long createdAt, int targetId) {
+        return new WalEntry(seq, Type.RELEASE, idempotencyKey, createdAt, null, null, null, false, null, targetId);
+    }
+
+    /**
+     * 根据序号计算新增封禁的临时ID
+     */
+    static int provisionalId(long seq) {
+        return (int) -seq;
+    }
+
+    /**
+     * 在API确认前代表这次新增封禁的本地记录
+     */
+    BanRecord toProvisionalRecord() {
+        String endTime = permanent || duration == null ? null : Instant.ofEpochMilli(createdAt + duration).toString();
+        return new BanRecord(provisionalId(seq), nickname, reason, admin, permanent, false,
+                Instant.ofEpochMilli(createdAt).toString(), endTime, null);
+    }
+
+    /**
+     * @return 新增封禁在API确认前的本地记录，解封操作返回null
+     */
+    public BanRecord getLocalRecord() {
+        return type == Type.BAN ? toProvisionalRecord() : null;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    /**
+     * @return 本地索引中对应记录的ID：新增封禁为临时ID，解封为目标ID
+     */
+    public int getLocalId() {
+        return type == Type.BAN ? provisionalId(seq) : targetId;
+    }
+
+    /**
+     * @return API确认后完成的future，API拒绝时以异常完成；插件重启后恢复的操作不会通知原调用方
+     */
+    public CompletableFuture<BanRecord> getResult() {
+        return result;
+    }
+}
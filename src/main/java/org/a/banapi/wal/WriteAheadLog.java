@@ -0,0 +1,318 @@
+package org.a.banapi.wal;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * 管理员写操作的追加式日志
+ * <p>
+ * 文件格式（大端序）：
+ * <pre>
+ * int   magic     'BWAL'
+ * int   version
+ * long  nextSeq   压缩时写入，保证序号（以及临时ID）不会重复
+ * 之后是若干条记录：int length、int crc32、byte[length] payload
+ * </pre>
+ * payload第一个字节为类型：1新增封禁、2解封、3确认。确认记录只包含对应操作的序号和API返回的正式ID，
+ * 解封或被拒绝的操作记为0。每次追加后都会刷盘；启动时按顺序回放，末尾不完整或校验失败的记录（写入时崩溃）会被截断。
+ */
+final class WriteAheadLog implements Closeable {
+    private static final int MAGIC = 0x4257414C;
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 4 + 4 + 8;
+    private static final int ACK = 3;
+
+    private final Path file;
+    private final Path tempFile;
+    private final List<WalEntry> recovered;
+    private FileChannel channel;
+    private long nextSeq;
+    private int acknowledgedSinceCompact;
+
+    private WriteAheadLog(Path file, FileChannel channel, List<WalEntry> recovered, long nextSeq) {
+        this.file = file;
+        this.tempFile = file.resolveSibling(file.getFileName() + ".tmp");
+        this.channel = channel;
+        this.recovered = recovered;
+        this.nextSeq = nextSeq;
+    }
+
+    /**
+     * 打开日志文件并回放其中尚未确认的操作，文件不存在时创建
+     * @param file 日志文件
+     * @param logger 用于报告被截断的记录
+     * @throws IOException 如果文件格式不正确或读取失败
+     */
+    static WriteAheadLog open(Path file, Logger logger) throws IOException {
+        if (!Files.exists(file)) {
+            writeFile(file, new ArrayList<>(), 1);
+        }
+
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file));
+        if (buffer.remaining() < HEADER_SIZE || buffer.getInt() != MAGIC) {
+            throw new IOException("写前日志格式不正确: " + file.getFileName());
+        }
+        int version = buffer.getInt();
+        if (version != VERSION) {
+            throw new IOException("不支持的写前日志版本: " + version);
+        }
+        long nextSeq = buffer.getLong();
+
+        Map<Long, WalEntry> pending = new LinkedHashMap<>();
+        long validLength = buffer.position();
+        while (buffer.hasRemaining()) {
+            ByteBuffer payload = readFrame(buffer);
+            if (payload == null) {
+                logger.warning("写前日志末尾有 " + (buffer.limit() - validLength) + " 字节不完整的记录，已截断");
+                break;
+            }
+            try {
+                long seq = apply(payload, pending);
+                nextSeq = Math.max(nextSeq, seq + 1);
+            } catch (BufferUnderflowException | IllegalArgumentException e) {
+                throw new IOException("写前日志记录损坏，位置: " + validLength);
+            }
+            validLength = buffer.position();
+        }
+
+        FileChannel channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        if (channel.size() > validLength) {
+            channel.truncate(validLength);
+            channel.force(true);
+        }
+        channel.position(validLength);
+        return new WriteAheadLog(file, channel, new ArrayList<>(pending.values()), nextSeq);
+    }
+
+    /**
+     * 读取一条记录，长度不足或校验失败时返回null
+     */
+    private static ByteBuffer readFrame(ByteBuffer buffer) {
+        if (buffer.remaining() < 8) {
+            return null;
+        }
+        int length = buffer.getInt();
+        int expectedCrc = buffer.getInt();
+        if (length < 0 || buffer.remaining() < length) {
+            return null;
+        }
+        ByteBuffer payload = buffer.slice();
+        payload.limit(length);
+        CRC32 crc = new CRC32();
+        crc.update(payload.duplicate());
+        if ((int) crc.getValue() != expectedCrc) {
+            return null;
+        }
+        buffer.position(buffer.position() + length);
+        return payload;
+    }
+
+    /**
+     * 回放一条记录
+     * @return 记录中的序号
+     */
+    private static long apply(ByteBuffer payload, Map<Long, WalEntry> pending) {
+        int type = payload.get();
+        long seq = payload.getLong();
+        if (type == ACK) {
+            int realId = payload.getInt();
+            WalEntry entry = pending.remove(seq);
+            if (entry != null && entry.type == WalEntry.Type.BAN && realId > 0) {
+                resolve(pending.values(), WalEntry.provisionalId(seq), realId);
+            }
+            return seq;
+        }
+
+        String idempotencyKey = readString(payload);
+        long createdAt = payload.getLong();
+        if (type == WalEntry.Type.BAN.code) {
+            String nickname = readString(payload);
+            String reason = readString(payload);
+            String admin = readString(payload);
+            boolean permanent = payload.get() != 0;
+            long duration = payload.getLong();
+            pending.put(seq, WalEntry.ban(seq, idempotencyKey, createdAt, nickname, reason, admin,
+                    permanent, duration >= 0 ? duration : null));
+        } else if (type == WalEntry.Type.RELEASE.code) {
+            pending.put(seq, WalEntry.release(seq, idempotencyKey, createdAt, payload.getInt()));
+        } else {
+            throw new IllegalArgumentException("未知的记录类型: " + type);
+        }
+        return seq;
+    }
+
+    /**
+     * 把指向临时ID的解封操作改为指向正式ID
+     */
+    static void resolve(Iterable<WalEntry> entries, int provisionalId, int realId) {
+        for (WalEntry entry : entries) {
+            if (entry.type == WalEntry.Type.RELEASE && entry.targetId == provisionalId) {
+                entry.targetId = realId;
+            }
+        }
+    }
+
+    /**
+     * @return 启动时回放得到的未确认操作，按写入顺序排列
+     */
+    List<WalEntry> getRecovered() {
+        return recovered;
+    }
+
+    /**
+     * 分配下一个序号，调用方应在同一把锁内完成 {@link #append(WalEntry)}
+     */
+    synchronized long nextSeq() {
+        return nextSeq++;
+    }
+
+    /**
+     * 追加一条操作并刷盘
+     * @throws IOException 如果写入失败
+     */
+    synchronized void append(WalEntry entry) throws IOException {
+        writeFrame(channel, encode(entry));
+        channel.force(false);
+    }
+
+    /**
+     * 追加一条确认记录并刷盘
+     * @param seq 被确认的操作序号
+     * @param realId 新增封禁在API中的正式ID，其他情况为0
+     * @throws IOException 如果写入失败
+     */
+    synchronized void appendAck(long seq, int realId) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(16);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(ACK);
+            out.writeLong(seq);
+            out.writeInt(realId);
+        }
+        writeFrame(channel, bytes.toByteArray());
+        channel.force(false);
+        acknowledgedSinceCompact++;
+    }
+
+    /**
+     * 只保留未确认的操作重写日志：先写临时文件并刷盘，再重命名覆盖
+     * @param pending 未确认的操作，解封目标已改写为正式ID
+     * @throws IOException 如果写入失败，此时原日志保持不变
+     */
+    synchronized void compact(List<WalEntry> pending) throws IOException {
+        writeFile(tempFile, pending, nextSeq);
+        channel.close();
+        try {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+        acknowledgedSinceCompact = 0;
+    }
+
+    /**
+     * @return 上次压缩以来追加的确认记录数
+     */
+    synchronized int getAcknowledgedSinceCompact() {
+        return acknowledgedSinceCompact;
+    }
+
+    /**
+     * @return 日志文件当前大小（字节）
+     */
+    synchronized long size() throws IOException {
+        return channel.size();
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        channel.close();
+    }
+
+    private static void writeFile(Path target, List<WalEntry> entries, long nextSeq) throws IOException {
+        try (FileChannel out = FileChannel.open(target,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putLong(nextSeq).flip();
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+            for (WalEntry entry : entries) {
+                writeFrame(out, encode(entry));
+            }
+            out.force(true);
+        }
+    }
+
+    private static void writeFrame(FileChannel out, byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(8 + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+    }
+
+    private static byte[] encode(WalEntry entry) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeByte(entry.type.code);
+            out.writeLong(entry.seq);
+            writeString(out, entry.idempotencyKey);
+            out.writeLong(entry.createdAt);
+            if (entry.type == WalEntry.Type.BAN) {
+                writeString(out, entry.nickname);
+                writeString(out, entry.reason);
+                writeString(out, entry.admin);
+                out.writeByte(entry.permanent ? 1 : 0);
+                out.writeLong(entry.duration != null ? entry.duration : -1);
+            } else {
+                out.writeInt(entry.targetId);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        int length = buffer.getInt();
+        if (length < 0) {
+            return null;
+        }
+        if (length > buffer.remaining()) {
+            throw new IllegalArgumentException("字符串长度超出记录范围");
+        }
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
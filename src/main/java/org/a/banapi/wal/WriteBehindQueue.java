@@ -0,0 +1,365 @@
+package org.a.banapi.wal;
+
+import org.a.banapi.Banapi;
+import org.a.banapi.api.APIService;
+import org.a.banapi.api.ApiStatusException;
+import org.a.banapi.cache.BanCache;
+import org.a.banapi.model.BanRecord;
+import org.bukkit.scheduler.BukkitTask;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+
+/**
+ * 管理员封禁与解封的写后提交队列
+ * <p>
+ * 写操作先追加到写前日志并刷盘，随即应用到本地封禁索引（新增封禁使用临时ID），不等待API。
+ * 后台按写入顺序逐条提交到BanAPIService，每条操作带固定的幂等键，失败时按指数退避重试且不越过失败的操作；
+ * API拒绝（4xx）的操作被放弃并恢复本地索引。已确认的操作累计到一定数量后压缩日志。
+ */
+public final class WriteBehindQueue implements Closeable {
+    private final Banapi plugin;
+    private final APIService apiService;
+    private final BanCache banCache;
+    private final WriteAheadLog log;
+    private final long retryBaseMillis;
+    private final long retryMaxMillis;
+    private final int compactAfter;
+
+    // 未确认的操作，按序号排列，由 this 保护
+    private final Deque<WalEntry> pending = new ArrayDeque<>();
+    private final AtomicBoolean draining = new AtomicBoolean();
+    private final AtomicLong acknowledged = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong retries = new AtomicLong();
+    // 只在提交线程中访问
+    private int consecutiveFailures;
+    private volatile long nextAttemptAt;
+    private volatile String lastError;
+    private volatile boolean closed;
+    private BukkitTask timer;
+
+    private WriteBehindQueue(Banapi plugin, WriteAheadLog log) {
+        this.plugin = plugin;
+        this.apiService = plugin.getApiService();
+        this.banCache = plugin.getBanCache();
+        this.log = log;
+        this.retryBaseMillis = Math.max(1, plugin.getConfigManager().getWriteBehindRetryBase());
+        this.retryMaxMillis = Math.max(retryBaseMillis, plugin.getConfigManager().getWriteBehindRetryMax());
+        this.compactAfter = Math.max(1, plugin.getConfigManager().getWriteBehindCompactAfter());
+    }
+
+    /**
+     * 打开写前日志，恢复上次未提交的操作并应用到本地索引
+     * @param file 日志文件
+     * @throws IOException 如果日志无法读取
+     */
+    public static WriteBehindQueue open(Banapi plugin, Path file) throws IOException {
+        WriteBehindQueue queue = new WriteBehindQueue(plugin, WriteAheadLog.open(file, plugin.getLogger()));
+        synchronized (queue) {
+            queue.pending.addAll(queue.log.getRecovered());
+            for (WalEntry entry : queue.pending) {
+                if (entry.type == WalEntry.Type.RELEASE) {
+                    entry.previous = plugin.getBanCache().current().findById(entry.targetId);
+                }
+            }
+            queue.applyLocal(Collections.emptyList(), Collections.emptyList());
+        }
+        int recovered = queue.getPendingCount();
+        if (recovered > 0) {
+            plugin.getLogger().info("写前日志中有 " + recovered + " 条未提交的封禁操作，将在后台继续提交");
+        }
+        return queue;
+    }
+
+    /**
+     * 启动后台提交，每秒检查一次
+     */
+    public void start() {
+        timer = plugin.getServer().getScheduler().runTaskTimerAsynchronously(plugin, this::wake, 20L, 20L);
+    }
+
+    /**
+     * 记录一次新增封禁并立即应用到本地索引
+     * @return 写入的操作，可通过 {@link WalEntry#getResult()} 等待API确认
+     * @throws IOException 如果写入日志失败，此时本地索引不变
+     */
+    public WalEntry submitBan(String nickname, String reason, String admin, boolean permanent, Long duration) throws IOException {
+        WalEntry entry;
+        synchronized (this) {
+            entry = WalEntry.ban(log.nextSeq(), UUID.randomUUID().toString(), System.currentTimeMillis(),
+                    nickname, reason, admin, permanent, permanent ? null : duration);
+            log.append(entry);
+            pending.addLast(entry);
+            applyLocal(Collections.emptyList(), Collections.emptyList());
+        }
+        onLocalChange();
+        wake();
+        return entry;
+    }
+
+    /**
+     * 记录一次解封并立即应用到本地索引
+     * @param id 封禁ID，可以是尚未确认的临时ID
+     * @return 写入的操作，可通过 {@link WalEntry#getResult()} 等待API确认
+     * @throws IOException 如果写入日志失败，此时本地索引不变
+     */
+    public WalEntry submitRelease(int id) throws IOException {
+        WalEntry entry;
+        synchronized (this) {
+            entry = WalEntry.release(log.nextSeq(), UUID.randomUUID().toString(), System.currentTimeMillis(), id);
+            entry.previous = banCache.current().findById(id);
+            log.append(entry);
+            pending.addLast(entry);
+            applyLocal(Collections.emptyList(), Collections.emptyList());
+        }
+        onLocalChange();
+        wake();
+        return entry;
+    }
+
+    /**
+     * 有未确认的操作且不在退避期间时，在I/O线程池中开始提交
+     */
+    public void wake() {
+        if (closed || getPendingCount() == 0 || System.currentTimeMillis() < nextAttemptAt
+                || !draining.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            plugin.getIoExecutor().execute(this::drain);
+        } catch (RuntimeException e) {
+            draining.set(false);
+        }
+    }
+
+    private void drain() {
+        try {
+            while (!closed && System.currentTimeMillis() >= nextAttemptAt) {
+                WalEntry head;
+                synchronized (this) {
+                    head = pending.peekFirst();
+                }
+                if (head == null || !submit(head)) {
+                    break;
+                }
+            }
+            maybeCompact();
+        } finally {
+            draining.set(false);
+        }
+    }
+
+    /**
+     * 提交一条操作
+     * @return 是否可以继续提交下一条；需要退避时返回false
+     */
+    private boolean submit(WalEntry entry) {
+        try {
+            BanRecord result;
+            if (entry.type == WalEntry.Type.BAN) {
+                result = apiService.addBan(entry.nickname, entry.reason, entry.admin, entry.permanent, entry.duration,
+                        entry.idempotencyKey);
+            } else if (entry.targetId < 0) {
+                reject(entry, "对应的封禁未能提交到API");
+                return true;
+            } else {
+                result = apiService.updateBanStatus(entry.targetId, true, entry.idempotencyKey);
+            }
+            acknowledge(entry, result);
+            consecutiveFailures = 0;
+            nextAttemptAt = 0;
+            lastError = null;
+            return true;
+        } catch (ApiStatusException e) {
+            if (e.isRejected()) {
+                reject(entry, e.getMessage());
+                return true;
+            }
+            backOff(e);
+            return false;
+        } catch (IOException e) {
+            backOff(e);
+            return false;
+        } catch (RuntimeException e) {
+            // 响应无法解析等情况同样按失败重试，避免丢失操作
+            plugin.getLogger().log(Level.WARNING, "提交封禁操作时出错", e);
+            backOff(new IOException(e));
+            return false;
+        }
+    }
+
+    private void acknowledge(WalEntry entry, BanRecord result) {
+        if (!appendAck(entry, entry.type == WalEntry.Type.BAN && result.hasId() ? result.getId() : 0)) {
+            return;
+        }
+        List<Integer> removed = Collections.emptyList();
+        synchronized (this) {
+            pending.remove(entry);
+            if (entry.type == WalEntry.Type.BAN) {
+                removed = Collections.singletonList(WalEntry.provisionalId(entry.seq));
+                if (result.hasId()) {
+                    WriteAheadLog.resolve(pending, WalEntry.provisionalId(entry.seq), result.getId());
+                }
+            }
+            applyLocal(result.hasId() ? Collections.singletonList(result) : Collections.emptyList(), removed);
+        }
+        acknowledged.incrementAndGet();
+        onLocalChange();
+        // 确认后才有正式ID，此时再同步到其他子服
+        if (plugin.getBungeeMessenger() != null) {
+            plugin.getBungeeMessenger().broadcastBan(result);
+        }
+        entry.getResult().complete(result);
+    }
+
+    private void reject(WalEntry entry, String message) {
+        if (!appendAck(entry, 0)) {
+            return;
+        }
+        synchronized (this) {
+            pending.remove(entry);
+            if (entry.type == WalEntry.Type.BAN) {
+                applyLocal(Collections.emptyList(), Collections.singletonList(WalEntry.provisionalId(entry.seq)));
+            } else {
+                // 恢复解封前的记录；重启后恢复的操作没有原记录，由下一次全量同步纠正
+                BanRecord previous = entry.previous;
+                applyLocal(previous != null ? Collections.singletonList(previous) : Collections.emptyList(),
+                        Collections.emptyList());
+            }
+        }
+        rejected.incrementAndGet();
+        plugin.getLogger().warning("BanAPIService拒绝了" + (entry.type == WalEntry.Type.BAN
+                ? "对 " + entry.nickname + " 的封禁" : "对封禁 #" + entry.targetId + " 的解封") + ": " + message);
+        onLocalChange();
+        entry.getResult().completeExceptionally(new IOException(message));
+    }
+
+    /**
+     * 写入确认记录，失败时按提交失败处理，稍后重新提交（幂等键保证不会重复生效）
+     */
+    private boolean appendAck(WalEntry entry, int realId) {
+        if (closed) {
+            // 关闭期间返回的结果不再记录，下次启动时凭幂等键重新提交
+            return false;
+        }
+        try {
+            log.appendAck(entry.seq, realId);
+            return true;
+        } catch (IOException e) {
+            plugin.getLogger().warning("写入写前日志确认记录失败: " + e.getMessage());
+            backOff(e);
+            return false;
+        }
+    }
+
+    private void backOff(IOException error) {
+        consecutiveFailures++;
+        retries.incrementAndGet();
+        long cap = Math.min(retryMaxMillis, retryBaseMillis << Math.min(consecutiveFailures - 1, 20));
+        // 等待时间在 [cap/2, cap] 之间抖动
+        long delay = cap / 2 + ThreadLocalRandom.current().nextLong(cap / 2 + 1);
+        nextAttemptAt = System.currentTimeMillis() + delay;
+        lastError = error.getMessage();
+        plugin.getLogger().fine("提交封禁操作失败，" + delay + " ms 后重试: " + error.getMessage());
+    }
+
+    /**
+     * 全部确认或确认记录累计到阈值时压缩日志
+     */
+    private synchronized void maybeCompact() {
+        int acks = log.getAcknowledgedSinceCompact();
+        if (acks == 0 || (acks < compactAfter && !pending.isEmpty())) {
+            return;
+        }
+        try {
+            log.compact(new ArrayList<>(pending));
+        } catch (IOException e) {
+            plugin.getLogger().warning("压缩写前日志失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 根据未确认的操作重新计算本地变更，连同确认结果一起应用到本地索引，调用方需持有 this 锁
+     */
+    private void applyLocal(List<BanRecord> changes, List<Integer> removedIds) {
+        Map<Integer, BanRecord> overlay = new LinkedHashMap<>();
+        for (WalEntry entry : pending) {
+            if (entry.type == WalEntry.Type.BAN) {
+                overlay.put(entry.getLocalId(), entry.toProvisionalRecord());
+                continue;
+            }
+            BanRecord base = overlay.get(entry.targetId);
+            if (base == null) {
+                base = entry.previous;
+            }
+            if (base != null) {
+                overlay.put(entry.targetId, base.asReleased());
+            }
+        }
+        banCache.applyLocal(new ArrayList<>(overlay.values()), changes, removedIds);
+    }
+
+    /**
+     * 本地索引变化后，已缓存的登录结果不再可靠
+     */
+    private void onLocalChange() {
+        if (plugin.getLoginListener() != null) {
+            plugin.getLoginListener().getDecisionCache().clear();
+        }
+    }
+
+    /**
+     * @return 尚未确认的操作数
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /** @return 已被API确认的操作数 */
+    public long getAcknowledged() {
+        return acknowledged.get();
+    }
+
+    /** @return 被API拒绝而放弃的操作数 */
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    /** @return 提交失败后等待重试的次数 */
+    public long getRetries() {
+        return retries.get();
+    }
+
+    /** @return 最近一次提交失败的原因，成功提交后清空 */
+    public String getLastError() {
+        return lastError;
+    }
+
+    /**
+     * 停止后台提交并关闭日志，未提交的操作在下次启动时继续；需要在关闭I/O线程池之前调用
+     */
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        if (timer != null) {
+            timer.cancel();
+        }
+        synchronized (this) {
+            log.close();
+        }
+    }
+}
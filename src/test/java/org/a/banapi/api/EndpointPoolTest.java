@@ -0,0 +1,284 @@
+package org.a.banapi.api;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.Dispatcher;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class EndpointPoolTest {
+    private final List<MockWebServer> servers = new ArrayList<>();
+    private final List<StubDispatcher> dispatchers = new ArrayList<>();
+    private final List<String> urls = new ArrayList<>();
+
+    @BeforeEach
+    void startServers() throws IOException {
+        for (int i = 0; i < 2; i++) {
+            StubDispatcher dispatcher = new StubDispatcher();
+            MockWebServer server = new MockWebServer();
+            server.setDispatcher(dispatcher);
+            server.start();
+            servers.add(server);
+            dispatchers.add(dispatcher);
+            String url = server.url("/").toString();
+            urls.add(url.substring(0, url.length() - 1));
+        }
+    }
+
+    @AfterEach
+    void stopServers() throws IOException {
+        for (StubDispatcher dispatcher : dispatchers) {
+            dispatcher.gate.countDown();
+        }
+        for (MockWebServer server : servers) {
+            server.shutdown();
+        }
+    }
+
+    @Test
+    void routesRequestsToEveryEndpoint() throws Exception {
+        EndpointPool pool = pool(3, 60_000);
+        OkHttpClient client = client(pool);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, get(client, "/bans?page=" + i));
+        }
+
+        // 请求按第一个地址构建，路径和参数原样转发到选中的地址
+        assertTrue(servers.get(0).getRequestCount() > 0);
+        assertTrue(servers.get(1).getRequestCount() > 0);
+        assertEquals(50, servers.get(0).getRequestCount() + servers.get(1).getRequestCount());
+        assertTrue(servers.get(1).takeRequest().getPath().startsWith("/bans?page="));
+    }
+
+    @Test
+    void matchesBaseUrlAfterNormalization() throws Exception {
+        // 配置中的地址大小写与OkHttp规范化后的不同，仍应经过负载均衡
+        EndpointPool pool = new EndpointPool(List.of(url(0).toUpperCase(), url(1)), 3, 60_000, 60_000);
+        OkHttpClient client = client(pool);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, get(client, "/bans"));
+        }
+        assertTrue(servers.get(1).getRequestCount() > 0);
+        assertEquals(50, pool.getEndpoints().get(0).getRequests() + pool.getEndpoints().get(1).getRequests());
+    }
+
+    @Test
+    void rewritesPathPrefixOnSegmentBoundary() throws Exception {
+        EndpointPool pool = new EndpointPool(List.of(url(0) + "/api", url(1) + "/v2/"), 3, 60_000, 60_000);
+        OkHttpClient client = client(pool);
+
+        for (int i = 0; i < 50; i++) {
+            assertEquals(200, get(client, "/api/bans?page=" + i));
+        }
+        assertTrue(servers.get(0).takeRequest().getPath().startsWith("/api/bans?page="));
+        assertTrue(servers.get(1).takeRequest().getPath().startsWith("/v2/bans?page="));
+
+        // 只有路径前缀相同、但不在路径分隔处的请求不属于基础地址
+        long routed = pool.getEndpoints().get(0).getRequests() + pool.getEndpoints().get(1).getRequests();
+        assertEquals(200, get(client, "/apix/bans"));
+        assertEquals(routed, pool.getEndpoints().get(0).getRequests() + pool.getEndpoints().get(1).getRequests());
+    }
+
+    @Test
+    void prefersEndpointWithFewerOutstandingRequests() throws Exception {
+        EndpointPool pool = pool(3, 60_000);
+        OkHttpClient client = client(pool);
+
+        // 一个慢请求挂起在其中一个地址上，之后的请求都应选择另一个地址
+        CompletableFuture<Integer> slow = getAsync(client, "/slow");
+        awaitRequests(1);
+        int busy = servers.get(0).getRequestCount() == 1 ? 0 : 1;
+        int idle = 1 - busy;
+
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, get(client, "/fast"));
+        }
+        assertEquals(1, servers.get(busy).getRequestCount());
+        assertEquals(20, servers.get(idle).getRequestCount());
+
+        dispatchers.get(busy).gate.countDown();
+        assertEquals(200, slow.get(5, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void ejectsFailingEndpointAndFailsOver() throws Exception {
+        dispatchers.get(0).code = 500;
+        EndpointPool pool = pool(2, 60_000);
+        OkHttpClient client = client(pool);
+
+        for (int i = 0; i < 30; i++) {
+            get(client, "/bans");
+        }
+
+        // 连续失败两次后摘除，之后的请求全部转到健康的地址
+        assertEquals(2, servers.get(0).getRequestCount());
+        assertEquals(28, servers.get(1).getRequestCount());
+        assertTrue(pool.getEndpoints().get(0).isEjected());
+        assertEquals(1, pool.getEndpoints().get(0).getEjections());
+        assertFalse(pool.getEndpoints().get(1).isEjected());
+    }
+
+    @Test
+    void failsOverWhenEndpointIsUnreachable() throws Exception {
+        EndpointPool pool = pool(2, 60_000);
+        OkHttpClient client = client(pool);
+        servers.get(0).shutdown();
+
+        int failures = 0;
+        for (int i = 0; i < 30; i++) {
+            try {
+                assertEquals(200, get(client, "/bans"));
+            } catch (IOException e) {
+                failures++;
+            }
+        }
+
+        assertEquals(2, failures);
+        assertEquals(28, servers.get(1).getRequestCount());
+        assertTrue(pool.getEndpoints().get(0).isEjected());
+    }
+
+    @Test
+    void allowsSingleProbePerEndpointAndRecovers() throws Exception {
+        dispatchers.get(0).code = 500;
+        dispatchers.get(1).code = 500;
+        EndpointPool pool = pool(1, 200);
+        OkHttpClient client = client(pool);
+
+        // 阈值为1，两次请求后两个地址都被摘除
+        get(client, "/bans");
+        get(client, "/bans");
+        assertTrue(pool.getEndpoints().get(0).isEjected());
+        assertTrue(pool.getEndpoints().get(1).isEjected());
+
+        dispatchers.get(0).code = 200;
+        dispatchers.get(1).code = 200;
+        Thread.sleep(300);
+
+        // 摘除到期后每个地址只放行一个探测请求
+        List<CompletableFuture<Integer>> probes = new ArrayList<>();
+        probes.add(getAsync(client, "/slow"));
+        probes.add(getAsync(client, "/slow"));
+        awaitRequests(4);
+        assertEquals(2, servers.get(0).getRequestCount());
+        assertEquals(2, servers.get(1).getRequestCount());
+
+        // 两个地址都在等待探测结果，其他请求直接失败，不再发往任何地址
+        assertThrows(IOException.class, () -> get(client, "/bans"));
+        assertEquals(2, servers.get(0).getRequestCount());
+        assertEquals(2, servers.get(1).getRequestCount());
+
+        dispatchers.get(0).gate.countDown();
+        dispatchers.get(1).gate.countDown();
+        for (CompletableFuture<Integer> probe : probes) {
+            assertEquals(200, probe.get(5, TimeUnit.SECONDS));
+        }
+
+        // 探测成功后恢复
+        assertFalse(pool.getEndpoints().get(0).isEjected());
+        assertFalse(pool.getEndpoints().get(1).isEjected());
+        for (int i = 0; i < 20; i++) {
+            assertEquals(200, get(client, "/bans"));
+        }
+        assertEquals(24, servers.get(0).getRequestCount() + servers.get(1).getRequestCount());
+    }
+
+    @Test
+    void failedProbeEjectsAgainWithLongerDuration() throws Exception {
+        dispatchers.get(0).code = 500;
+        EndpointPool pool = new EndpointPool(List.of(url(0)), 1, 200, 10_000);
+        OkHttpClient client = client(pool);
+
+        get(client, "/bans");
+        assertEquals(1, pool.getEndpoints().get(0).getEjections());
+
+        Thread.sleep(300);
+        assertEquals(500, get(client, "/bans"));
+        assertEquals(2, pool.getEndpoints().get(0).getEjections());
+
+        // 第二次摘除时长加倍，300毫秒后仍处于摘除状态，请求按最早到期的地址发送
+        Thread.sleep(300);
+        dispatchers.get(0).code = 200;
+        assertEquals(200, get(client, "/bans"));
+        assertFalse(pool.getEndpoints().get(0).isEjected());
+    }
+
+    private EndpointPool pool(int failureThreshold, long ejectMillis) {
+        return new EndpointPool(List.of(url(0), url(1)), failureThreshold, ejectMillis, ejectMillis * 8);
+    }
+
+    private String url(int index) {
+        return urls.get(index);
+    }
+
+    private OkHttpClient client(EndpointPool pool) {
+        return new OkHttpClient.Builder()
+                .addInterceptor(pool)
+                .retryOnConnectionFailure(false)
+                .readTimeout(10, TimeUnit.SECONDS)
+                .build();
+    }
+
+    private int get(OkHttpClient client, String path) throws IOException {
+        Request request = new Request.Builder().url(url(0) + path).build();
+        try (Response response = client.newCall(request).execute()) {
+            return response.code();
+        }
+    }
+
+    private CompletableFuture<Integer> getAsync(OkHttpClient client, String path) {
+        return CompletableFuture.supplyAsync(() -> {
+            try {
+                return get(client, path);
+            } catch (IOException e) {
+                throw new RuntimeException(e);
+            }
+        });
+    }
+
+    /**
+     * 等待服务器收到的请求总数达到expected
+     */
+    private void awaitRequests(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (servers.get(0).getRequestCount() + servers.get(1).getRequestCount() < expected
+                && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    /**
+     * 按code响应；路径以/slow开头的请求在gate打开前一直挂起
+     */
+    private static final class StubDispatcher extends Dispatcher {
+        private final CountDownLatch gate = new CountDownLatch(1);
+        private volatile int code = 200;
+
+        @Override
+        public MockResponse dispatch(RecordedRequest request) throws InterruptedException {
+            if (request.getPath().startsWith("/slow")) {
+                gate.await(10, TimeUnit.SECONDS);
+            }
+            return new MockResponse().setResponseCode(code);
+        }
+    }
+}
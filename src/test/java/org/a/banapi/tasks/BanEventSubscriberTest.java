@@ -0,0 +1,251 @@
+package org.a.banapi.tasks;
+
+import okhttp3.OkHttpClient;
+import okhttp3.Request;
+import okhttp3.Response;
+import okhttp3.mockwebserver.MockResponse;
+import okhttp3.mockwebserver.MockWebServer;
+import okhttp3.mockwebserver.RecordedRequest;
+import okhttp3.sse.EventSource;
+import okhttp3.sse.EventSourceListener;
+import okhttp3.sse.EventSources;
+import org.a.banapi.model.BanRecord;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BanEventSubscriberTest {
+    private MockWebServer server;
+    private StubHost host;
+    private BanEventSubscriber subscriber;
+    // 订阅者处理完每个回调后记录一条，测试据此等待
+    private final BlockingQueue<String> callbacks = new LinkedBlockingQueue<>();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        server = new MockWebServer();
+        server.start();
+        host = new StubHost();
+        subscriber = new BanEventSubscriber(host, this::connect, 60_000);
+    }
+
+    @AfterEach
+    void tearDown() throws IOException {
+        subscriber.stop();
+        server.shutdown();
+    }
+
+    @Test
+    void resumesFromLastAppliedEvent() throws Exception {
+        server.enqueue(stream(event("1", "ban", 1), event("2", "ban", 2)));
+        server.enqueue(stream(event("3", "unban", 1)));
+
+        subscriber.start();
+        awaitCallback("closed");
+        assertNull(server.takeRequest().getHeader("Last-Event-ID"));
+        assertEquals(List.of(1, 2), host.appliedIds());
+        // 首次连接没有事件ID，补一次同步
+        assertEquals(List.of(false), host.syncs);
+        assertFalse(subscriber.isConnected());
+
+        host.runScheduled();
+        awaitCallback("closed");
+        assertEquals("2", server.takeRequest().getHeader("Last-Event-ID"));
+        assertEquals(List.of(1, 2, 1), host.appliedIds());
+        assertEquals(List.of(false), host.syncs);
+        assertEquals(3, subscriber.getEvents());
+        assertEquals(2, subscriber.getReconnects());
+    }
+
+    @Test
+    void keepsEventIdOfLastAppliedEventWhenIndexIsNotLoaded() throws Exception {
+        server.enqueue(stream(event("1", "ban", 1)));
+        server.enqueue(stream(event("2", "ban", 2), event("3", "ban", 3)));
+        server.enqueue(stream());
+
+        subscriber.start();
+        awaitCallback("closed");
+        server.takeRequest();
+
+        // 首次同步尚未完成，事件无法合并，事件ID不推进，由同步补上
+        host.loaded = false;
+        host.runScheduled();
+        awaitCallback("closed");
+        assertEquals("1", server.takeRequest().getHeader("Last-Event-ID"));
+        assertEquals(List.of(1), host.appliedIds());
+        assertEquals(List.of(false, false), host.syncs);
+
+        host.loaded = true;
+        host.runScheduled();
+        awaitCallback("closed");
+        assertEquals("1", server.takeRequest().getHeader("Last-Event-ID"));
+    }
+
+    @Test
+    void fallsBackToPollingWhenPushIsNotSupported() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(404));
+
+        subscriber.start();
+        awaitCallback("failure");
+        assertFalse(subscriber.isConnected());
+        assertNull(host.scheduled);
+        assertEquals(0, subscriber.getReconnects());
+        assertEquals(1, server.getRequestCount());
+    }
+
+    @Test
+    void fallsBackToPollingWhenPushIsNotImplemented() throws Exception {
+        server.enqueue(new MockResponse().setResponseCode(501));
+
+        subscriber.start();
+        awaitCallback("failure");
+        assertFalse(subscriber.isConnected());
+        assertNull(host.scheduled);
+        assertEquals(0, subscriber.getReconnects());
+    }
+
+    @Test
+    void resetsEventIdWhenHistoryIsGone() throws Exception {
+        server.enqueue(stream(event("5", "ban", 5)));
+        server.enqueue(new MockResponse().setResponseCode(410));
+        server.enqueue(stream());
+
+        subscriber.start();
+        awaitCallback("closed");
+        server.takeRequest();
+
+        host.runScheduled();
+        awaitCallback("failure");
+        assertEquals("5", server.takeRequest().getHeader("Last-Event-ID"));
+        assertNotNull(host.scheduled);
+
+        // 无法补发时不带事件ID重连，连接建立后补一次同步
+        host.runScheduled();
+        awaitCallback("closed");
+        assertNull(server.takeRequest().getHeader("Last-Event-ID"));
+        assertEquals(List.of(false, false), host.syncs);
+    }
+
+    @Test
+    void requestsFullSyncOnResyncEvent() throws Exception {
+        server.enqueue(stream(event("1", "resync", null), event("2", "heartbeat", null)));
+
+        subscriber.start();
+        awaitCallback("closed");
+        assertEquals(List.of(false, true), host.syncs);
+        assertTrue(host.applied.isEmpty());
+
+        server.enqueue(stream());
+        host.runScheduled();
+        awaitCallback("closed");
+        server.takeRequest();
+        assertEquals("2", server.takeRequest().getHeader("Last-Event-ID"));
+    }
+
+    /**
+     * 与APIService.subscribeBanEvents一样携带Last-Event-ID，回调转交订阅者后记录到callbacks
+     */
+    private EventSource connect(String lastEventId, EventSourceListener listener) {
+        Request.Builder builder = new Request.Builder()
+                .url(server.url("/events"))
+                .header("Accept", "text/event-stream");
+        if (lastEventId != null) {
+            builder.header("Last-Event-ID", lastEventId);
+        }
+        return EventSources.createFactory(new OkHttpClient()).newEventSource(builder.build(), new EventSourceListener() {
+            @Override
+            public void onOpen(EventSource eventSource, Response response) {
+                listener.onOpen(eventSource, response);
+            }
+
+            @Override
+            public void onEvent(EventSource eventSource, String id, String type, String data) {
+                listener.onEvent(eventSource, id, type, data);
+            }
+
+            @Override
+            public void onClosed(EventSource eventSource) {
+                listener.onClosed(eventSource);
+                callbacks.add("closed");
+            }
+
+            @Override
+            public void onFailure(EventSource eventSource, Throwable t, Response response) {
+                listener.onFailure(eventSource, t, response);
+                callbacks.add("failure");
+            }
+        });
+    }
+
+    private void awaitCallback(String expected) throws InterruptedException {
+        assertEquals(expected, callbacks.poll(5, TimeUnit.SECONDS));
+    }
+
+    private static MockResponse stream(String... events) {
+        return new MockResponse()
+                .setHeader("Content-Type", "text/event-stream")
+                .setBody(String.join("", events));
+    }
+
+    private static String event(String id, String type, Integer banId) {
+        String data = banId != null
+                ? "{\"id\":" + banId + ",\"nickname\":\"player" + banId + "\",\"reason\":\"test\",\"isPermanent\":true,\"isReleased\":false}"
+                : "{}";
+        return "id: " + id + "\nevent: " + type + "\ndata: " + data + "\n\n";
+    }
+
+    private static final class StubHost implements BanEventSubscriber.Host {
+        private final List<BanRecord> applied = new CopyOnWriteArrayList<>();
+        private final List<Boolean> syncs = new CopyOnWriteArrayList<>();
+        private volatile boolean loaded = true;
+        private volatile Runnable scheduled;
+
+        @Override
+        public boolean apply(BanRecord ban) {
+            if (!loaded) {
+                return false;
+            }
+            applied.add(ban);
+            return true;
+        }
+
+        @Override
+        public void requestSync(boolean full) {
+            syncs.add(full);
+        }
+
+        @Override
+        public void schedule(Runnable task, long delayMillis) {
+            scheduled = task;
+        }
+
+        @Override
+        public Logger getLogger() {
+            return Logger.getLogger(BanEventSubscriberTest.class.getName());
+        }
+
+        private List<Integer> appliedIds() {
+            return applied.stream().map(BanRecord::getId).toList();
+        }
+
+        private void runScheduled() {
+            Runnable task = scheduled;
+            scheduled = null;
+            task.run();
+        }
+    }
+}